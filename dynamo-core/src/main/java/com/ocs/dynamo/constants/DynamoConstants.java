@@ -182,6 +182,74 @@ public final class DynamoConstants {
      */
     public static final String SP_MAX_ROWS_STREAMING_PIVOTED = "ocs.max.rows.streaming.pivot";
 
+    /**
+     * System property that indicates the default number of entities that are saved before the
+     * persistence context is flushed and cleared during a bulk save
+     */
+    public static final String SP_DEFAULT_BATCH_SIZE = "ocs.default.batch.size";
+
+    /**
+     * System property that indicates the maximum number of translated queries that are kept in the
+     * query cache of the JpaQueryBuilder. Set to 0 to disable the cache
+     */
+    public static final String SP_QUERY_CACHE_SIZE = "ocs.query.cache.size";
+
+    /**
+     * System property that indicates whether layouts for which no fetch joins are specified derive
+     * their fetch joins from the entity model
+     */
+    public static final String SP_PLAN_FETCH_JOINS = "ocs.plan.fetch.joins";
+
+    /**
+     * System property that indicates the number of threads that are used to execute the
+     * asynchronous service methods
+     */
+    public static final String SP_ASYNC_POOL_SIZE = "ocs.async.pool.size";
+
+    /**
+     * System property that contains a comma separated list of the (simple) class names of the
+     * services whose reads are directed to the read replica
+     */
+    public static final String SP_REPLICA_SERVICES = "ocs.replica.services";
+
+    /**
+     * System property that indicates whether service calls are directed to the primary database or
+     * the read replica by the ReadReplicaAspect
+     */
+    public static final String SP_READ_REPLICA = "ocs.read.replica";
+
+    /**
+     * System property that indicates whether the latencies of service calls are recorded by the
+     * ServiceMetricsAspect
+     */
+    public static final String SP_SERVICE_METRICS = "ocs.service.metrics";
+
+    /**
+     * System property that indicates whether the SQL statements that are executed during service
+     * calls are monitored by the StatementMonitorAspect
+     */
+    public static final String SP_STATEMENT_MONITOR = "ocs.statement.monitor";
+
+    /**
+     * System property that indicates how often the same SQL statement may be executed within a
+     * single service call or request before it is reported as a possible N+1 problem
+     */
+    public static final String SP_STATEMENT_REPEAT_THRESHOLD = "ocs.statement.repeat.threshold";
+
+    /**
+     * System property that indicates whether subtrees and ancestors of tree entities are retrieved
+     * using a recursive query (common table expression). Only enable this when the database
+     * supports "WITH RECURSIVE"
+     */
+    public static final String SP_TREE_RECURSIVE_QUERY = "ocs.tree.recursive.query";
+
+    /**
+     * System property that contains a comma separated list of the packages that are scanned for
+     * entities at startup. The entity models of these entities are constructed before the
+     * application starts handling requests
+     */
+    public static final String SP_ENTITY_MODEL_WARMUP_PACKAGES = "ocs.entity.model.warmup.packages";
+
     /**
      * The name of the variable that is used to store the user
      */
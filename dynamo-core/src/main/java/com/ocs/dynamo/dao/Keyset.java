@@ -0,0 +1,62 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.dao;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.apache.commons.lang.builder.ReflectionToStringBuilder;
+
+/**
+ * The position of the last row of a page, used for keyset (seek) pagination. It consists of the
+ * values of the sort properties of the last row (in the order of the sort orders) and the ID of
+ * that row, which acts as the final tie breaker
+ *
+ * @author bas.rutten
+ */
+public class Keyset implements Serializable {
+
+	private static final long serialVersionUID = 7436218765394018462L;
+
+	private final Object[] values;
+
+	private final Object id;
+
+	/**
+	 * Constructor
+	 *
+	 * @param id
+	 *            the ID of the last row of the previous page
+	 * @param values
+	 *            the values of the sort properties of the last row of the previous page (excluding
+	 *            the ID tie breaker)
+	 */
+	public Keyset(Object id, Object... values) {
+		this.id = id;
+		this.values = values == null ? new Object[0] : values;
+	}
+
+	public Object getId() {
+		return id;
+	}
+
+	public Object[] getValues() {
+		return Arrays.copyOf(values, values.length);
+	}
+
+	@Override
+	public String toString() {
+		return ReflectionToStringBuilder.toString(this);
+	}
+}
@@ -41,4 +41,15 @@ public @interface Model {
 
     // the default sort order for this entity
     String sortOrder() default "";
+
+    // whether the service caches entities of this type when they are looked up by ID - meant for
+    // reference data that rarely changes. Cached entities are shared between callers and must not
+    // be modified; they must be serializable and may not have lazily loaded associations
+    boolean cacheable() default false;
+
+    // the maximum number of entities to cache
+    int cacheSize() default 500;
+
+    // the time (in seconds) after which a cached entity is retrieved from the database again
+    int cacheTimeToLive() default 300;
 }
@@ -0,0 +1,151 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.domain.model.metadata;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.ocs.dynamo.exception.OCSRuntimeException;
+
+/**
+ * Metadata about the properties of an entity (or embeddable) class that is generated at compile
+ * time by the {@link EntityMetadataProcessor}. It contains the information that would otherwise
+ * have to be determined using introspection and generic type resolution when the entity model is
+ * constructed. The generated class is named after the entity class, followed by
+ * {@value #SUFFIX}, and resides in the same package
+ * 
+ * @author bas.rutten
+ * @param <T>
+ *            the type of the entity
+ */
+public abstract class EntityMetadata<T> {
+
+    /**
+     * The suffix that is appended to the name of the entity class to form the name of the
+     * generated metadata class
+     */
+    public static final String SUFFIX = "_Metadata";
+
+    /**
+     * Marker value for classes for which no metadata has been generated
+     */
+    private static final EntityMetadata<Object> NONE = new EntityMetadata<Object>(Object.class) {
+    };
+
+    private static final ClassValue<EntityMetadata<?>> METADATA = new ClassValue<EntityMetadata<?>>() {
+
+        @Override
+        protected EntityMetadata<?> computeValue(Class<?> type) {
+            return load(type);
+        }
+    };
+
+    private final Class<T> entityClass;
+
+    private final Map<String, PropertyMetadata> properties = new LinkedHashMap<>();
+
+    /**
+     * Constructor
+     * 
+     * @param entityClass
+     *            the class of the entity
+     */
+    protected EntityMetadata(Class<T> entityClass) {
+        this.entityClass = entityClass;
+    }
+
+    /**
+     * Returns the generated metadata for a class
+     * 
+     * @param clazz
+     *            the class
+     * @return the metadata, or <code>null</code> if no metadata has been generated for the class
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> EntityMetadata<T> forClass(Class<T> clazz) {
+        EntityMetadata<?> result = METADATA.get(clazz);
+        return result == NONE ? null : (EntityMetadata<T>) result;
+    }
+
+    /**
+     * Loads the generated metadata class for a class
+     * 
+     * @param clazz
+     *            the class
+     * @return the metadata, or {@link #NONE} if there is no (valid) generated metadata
+     */
+    private static EntityMetadata<?> load(Class<?> clazz) {
+        ClassLoader loader = clazz.getClassLoader();
+        if (loader == null || clazz.isArray() || clazz.isPrimitive()) {
+            return NONE;
+        }
+        try {
+            Class<?> metadataClass = Class.forName(clazz.getName() + SUFFIX, true, loader);
+            if (!EntityMetadata.class.isAssignableFrom(metadataClass)) {
+                return NONE;
+            }
+            EntityMetadata<?> result = (EntityMetadata<?>) metadataClass.newInstance();
+            return clazz.equals(result.getEntityClass()) ? result : NONE;
+        } catch (ClassNotFoundException e) {
+            return NONE;
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new OCSRuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Adds a property. Intended to be called from the constructor of the generated class, in the
+     * alphabetical order of the property names
+     * 
+     * @param name
+     *            the name of the property
+     * @param type
+     *            the (resolved) type of the property
+     * @param elementType
+     *            the first type argument of the property type (e.g. the member type of a
+     *            collection), or <code>null</code> if there is none
+     * @return the property, to which the annotations can be added
+     */
+    protected PropertyMetadata addProperty(String name, Class<?> type, Class<?> elementType) {
+        PropertyMetadata property = new PropertyMetadata(name, type, elementType);
+        properties.put(name, property);
+        return property;
+    }
+
+    public Class<T> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * Returns the properties, in alphabetical order
+     * 
+     * @return
+     */
+    public Collection<PropertyMetadata> getProperties() {
+        return Collections.unmodifiableCollection(properties.values());
+    }
+
+    /**
+     * Returns a property
+     * 
+     * @param name
+     *            the name of the property
+     * @return the property, or <code>null</code> if the entity has no property with this name
+     */
+    public PropertyMetadata getProperty(String name) {
+        return properties.get(name);
+    }
+}
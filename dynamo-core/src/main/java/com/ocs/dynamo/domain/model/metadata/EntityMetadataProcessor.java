@@ -0,0 +1,265 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.domain.model.metadata;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * Annotation processor that generates an {@link EntityMetadata} class for every entity,
+ * embeddable and class annotated with @Model. The generated class lists the bean properties of the
+ * class (as they would be returned by introspection) with their resolved types, so that the entity
+ * models can be constructed without introspection or generic type resolution.
+ * 
+ * The processor is not registered as a service. Configure it explicitly, e.g. as an additional
+ * execution of the apt-maven-plugin next to the Querydsl processor
+ * 
+ * @author bas.rutten
+ */
+@SupportedAnnotationTypes({ "javax.persistence.Entity", "javax.persistence.Embeddable",
+        "com.ocs.dynamo.domain.model.annotation.Model" })
+public class EntityMetadataProcessor extends AbstractProcessor {
+
+    private static final String GET = "get";
+
+    private static final String IS = "is";
+
+    private static final String SET = "set";
+
+    private static final String CLASS = "class";
+
+    private static final String GENERATED = "javax.annotation.Generated";
+
+    private static final String INDENT = "        ";
+
+    // the classes for which metadata has been generated
+    private final Set<String> generated = new HashSet<>();
+
+    /**
+     * The type of a bean property and its accessors
+     */
+    private static final class Property {
+
+        private TypeMirror type;
+
+        private boolean getter;
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (TypeElement type : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(annotation))) {
+                if (type.getKind() == ElementKind.CLASS && generated.add(type.getQualifiedName().toString())) {
+                    if (isAccessible(type)) {
+                        generate(type);
+                    } else {
+                        processingEnv.getMessager().printMessage(Kind.NOTE,
+                                "No entity metadata generated for inaccessible class " + type, type);
+                    }
+                }
+            }
+        }
+        // other processors (e.g. Querydsl) must also be able to process the annotations
+        return false;
+    }
+
+    /**
+     * Checks whether a class can be referenced from a generated top level class in the same package
+     * 
+     * @param type
+     *            the class
+     * @return
+     */
+    private boolean isAccessible(TypeElement type) {
+        Element current = type;
+        while (current instanceof TypeElement) {
+            TypeElement element = (TypeElement) current;
+            if (element.getModifiers().contains(Modifier.PRIVATE)
+                    || (element.getNestingKind() == NestingKind.MEMBER && !element.getModifiers().contains(
+                            Modifier.STATIC))
+                    || element.getNestingKind() == NestingKind.LOCAL
+                    || element.getNestingKind() == NestingKind.ANONYMOUS) {
+                return false;
+            }
+            current = element.getEnclosingElement();
+        }
+        return true;
+    }
+
+    /**
+     * Generates the metadata class for a class
+     * 
+     * @param type
+     *            the class
+     */
+    private void generate(TypeElement type) {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = pkg.getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+                + EntityMetadata.SUFFIX;
+        String entityName = erasure(type.asType());
+
+        try (Writer writer = processingEnv.getFiler()
+                .createSourceFile(binaryName + EntityMetadata.SUFFIX, type).openWriter()) {
+            if (!packageName.isEmpty()) {
+                writer.write("package " + packageName + ";\n\n");
+            }
+            writer.write("/**\n * Entity model metadata for {@link " + entityName + "}\n */\n");
+            if (processingEnv.getElementUtils().getTypeElement(GENERATED) != null) {
+                writer.write("@" + GENERATED + "(\"" + getClass().getName() + "\")\n");
+            }
+            writer.write("public final class " + simpleName + " extends " + EntityMetadata.class.getName() + "<"
+                    + entityName + "> {\n\n");
+            writer.write("    public " + simpleName + "() {\n");
+            writer.write(INDENT + "super(" + entityName + ".class);\n");
+
+            for (Entry<String, Property> entry : getProperties(type).entrySet()) {
+                writeProperty(writer, entry.getKey(), entry.getValue().type);
+            }
+            writer.write("    }\n}\n");
+        } catch (IOException e) {
+            // the entity model factory falls back to introspection
+            processingEnv.getMessager().printMessage(Kind.WARNING,
+                    "Cannot generate entity metadata for " + type + ": " + e.getMessage(), type);
+        }
+    }
+
+    /**
+     * Writes the statement that adds a property to the metadata
+     */
+    private void writeProperty(Writer writer, String name, TypeMirror propertyType) throws IOException {
+        String elementType = "null";
+        if (propertyType.getKind() == TypeKind.DECLARED) {
+            List<? extends TypeMirror> arguments = ((DeclaredType) propertyType).getTypeArguments();
+            if (!arguments.isEmpty()) {
+                TypeMirror argument = arguments.get(0);
+                if (argument.getKind() == TypeKind.WILDCARD) {
+                    TypeMirror bound = ((WildcardType) argument).getExtendsBound();
+                    argument = bound != null ? bound
+                            : processingEnv.getElementUtils().getTypeElement(Object.class.getName()).asType();
+                }
+                elementType = erasure(argument) + ".class";
+            }
+        }
+
+        writer.write(INDENT + "addProperty(" + processingEnv.getElementUtils().getConstantExpression(name) + ", "
+                + erasure(propertyType) + ".class, " + elementType + ");\n");
+    }
+
+    /**
+     * Determines the bean properties of a class, following the rules of the
+     * {@link java.beans.Introspector}: a public getter (or "is" method returning a boolean) or a
+     * public setter defines a property. The types are resolved against the class, so that type
+     * parameters declared by a superclass are replaced by the actual types
+     * 
+     * @param type
+     *            the class
+     * @return the properties, in alphabetical order
+     */
+    private Map<String, Property> getProperties(TypeElement type) {
+        DeclaredType declared = (DeclaredType) type.asType();
+        Map<String, Property> result = new TreeMap<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if (!method.getModifiers().contains(Modifier.PUBLIC) || method.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            ExecutableType resolved = (ExecutableType) processingEnv.getTypeUtils().asMemberOf(declared, method);
+            String methodName = method.getSimpleName().toString();
+            int count = method.getParameters().size();
+            TypeMirror returnType = resolved.getReturnType();
+
+            String name = null;
+            TypeMirror propertyType = null;
+            boolean getter = false;
+            if (count == 0 && methodName.startsWith(GET) && methodName.length() > GET.length()
+                    && returnType.getKind() != TypeKind.VOID) {
+                name = decapitalize(methodName.substring(GET.length()));
+                propertyType = returnType;
+                getter = true;
+            } else if (count == 0 && methodName.startsWith(IS) && methodName.length() > IS.length()
+                    && returnType.getKind() == TypeKind.BOOLEAN) {
+                name = decapitalize(methodName.substring(IS.length()));
+                propertyType = returnType;
+                getter = true;
+            } else if (count == 1 && methodName.startsWith(SET) && methodName.length() > SET.length()
+                    && returnType.getKind() == TypeKind.VOID) {
+                name = decapitalize(methodName.substring(SET.length()));
+                propertyType = resolved.getParameterTypes().get(0);
+            }
+
+            if (name != null && !CLASS.equals(name)) {
+                Property property = result.get(name);
+                if (property == null) {
+                    property = new Property();
+                    result.put(name, property);
+                }
+                // the type of the getter takes precedence over the type of the setter
+                if (property.type == null || (getter && !property.getter)) {
+                    property.type = propertyType;
+                    property.getter = getter;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the name of the erasure of a type, in a form that can be used in source code
+     */
+    private String erasure(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    /**
+     * Translates (the remainder of) a method name to a property name in the same way as
+     * {@link java.beans.Introspector#decapitalize(String)}
+     */
+    private static String decapitalize(String name) {
+        if (name.length() > 1 && Character.isUpperCase(name.charAt(1)) && Character.isUpperCase(name.charAt(0))) {
+            return name;
+        }
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.domain.model.metadata;
+
+import java.beans.PropertyDescriptor;
+
+/**
+ * Metadata about a single property of an entity: its type and, for a generic type such as a
+ * collection, its first type argument
+ * 
+ * @author bas.rutten
+ */
+public final class PropertyMetadata {
+
+    private final String name;
+
+    private final Class<?> type;
+
+    private final Class<?> elementType;
+
+    private final boolean preferred;
+
+    private final boolean hidden;
+
+    /**
+     * Constructor
+     * 
+     * @param name
+     *            the name of the property
+     * @param type
+     *            the type of the property
+     * @param elementType
+     *            the first type argument of the property type
+     */
+    PropertyMetadata(String name, Class<?> type, Class<?> elementType) {
+        this.name = name;
+        this.type = type;
+        this.elementType = elementType;
+        this.preferred = false;
+        this.hidden = false;
+    }
+
+    /**
+     * Constructor for a property that is determined at runtime using introspection
+     * 
+     * @param descriptor
+     *            the property descriptor
+     */
+    public PropertyMetadata(PropertyDescriptor descriptor) {
+        this.name = descriptor.getName();
+        this.type = descriptor.getPropertyType();
+        this.elementType = null;
+        this.preferred = descriptor.isPreferred();
+        this.hidden = descriptor.isHidden();
+    }
+
+    public Class<?> getElementType() {
+        return elementType;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public boolean isHidden() {
+        return hidden;
+    }
+
+    public boolean isPreferred() {
+        return preferred;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
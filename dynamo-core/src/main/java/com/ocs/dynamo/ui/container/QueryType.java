@@ -14,11 +14,24 @@
 package com.ocs.dynamo.ui.container;
 
 /**
- * Query types for use with the lazy query container
+ * Query types for use with the lazy query container. KEYSET performs paging by continuing from the
+ * last row of the previous page rather than by skipping rows, which is much cheaper when scrolling
+ * sequentially through large result sets. PROJECTION only retrieves the properties that are visible
+ * in the table and is meant for read-only tables
  * 
  * @author bas.rutten
  */
 public enum QueryType {
 
-    NONE, PAGING, ID_BASED;
+    NONE, PAGING, ID_BASED, KEYSET, PROJECTION;
+
+    /**
+     * Indicates whether the query that retrieves the entities is limited to a single page. An
+     * ID_BASED query only pages over the IDs and then fetches the entities for those IDs in full
+     * 
+     * @return
+     */
+    public boolean isPaged() {
+        return this == PAGING || this == KEYSET || this == PROJECTION;
+    }
 }
@@ -23,12 +23,20 @@ import com.ocs.dynamo.constants.DynamoConstants;
  */
 public final class SystemPropertyUtils {
 
+    private static final int DEFAULT_ASYNC_POOL_SIZE = 4;
+
+    private static final int DEFAULT_BATCH_SIZE = 50;
+
     private static final int DEFAULT_DECIMAL_PRECISION = 2;
 
     private static final int DEFAULT_LISTSELECT_ROWS = 3;
 
     private static final int DEFAULT_LOOKUP_FIELD_MAX_ITEMS = 3;
 
+    private static final int DEFAULT_QUERY_CACHE_SIZE = 500;
+
+    private static final int DEFAULT_STATEMENT_REPEAT_THRESHOLD = 10;
+
     private SystemPropertyUtils() {
     }
 
@@ -41,6 +49,15 @@ public final class SystemPropertyUtils {
         return Boolean.getBoolean(DynamoConstants.SP_ALLOW_TABLE_EXPORT);
     }
 
+    /**
+     * The number of threads that are used to execute the asynchronous service methods
+     * 
+     * @return
+     */
+    public static int getAsyncPoolSize() {
+        return Integer.getInteger(DynamoConstants.SP_ASYNC_POOL_SIZE, DEFAULT_ASYNC_POOL_SIZE);
+    }
+
     /**
      * 
      * @return the CSV separator character
@@ -57,6 +74,16 @@ public final class SystemPropertyUtils {
         return System.getProperty(DynamoConstants.SP_EXPORT_CSV_QUOTE, "\"");
     }
 
+    /**
+     * The default number of entities to save before flushing and clearing the persistence context
+     * during a bulk save. Should match the "hibernate.jdbc.batch_size" setting
+     * 
+     * @return
+     */
+    public static int getDefaultBatchSize() {
+        return Integer.getInteger(DynamoConstants.SP_DEFAULT_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+    }
+
     /**
      * The default currency symbol
      * 
@@ -166,6 +193,89 @@ public final class SystemPropertyUtils {
         return Integer.getInteger(DynamoConstants.SP_MAX_ROWS_STREAMING_PIVOTED, 30000);
     }
 
+    /**
+     * The maximum number of translated queries to keep in the query cache
+     * 
+     * @return
+     */
+    public static int getQueryCacheSize() {
+        return Integer.getInteger(DynamoConstants.SP_QUERY_CACHE_SIZE, DEFAULT_QUERY_CACHE_SIZE);
+    }
+
+    /**
+     * The number of times the same SQL statement may be executed within a single service call or
+     * request before it is reported as a possible N+1 problem
+     * 
+     * @return
+     */
+    public static int getStatementRepeatThreshold() {
+        return Integer.getInteger(DynamoConstants.SP_STATEMENT_REPEAT_THRESHOLD,
+                DEFAULT_STATEMENT_REPEAT_THRESHOLD);
+    }
+
+    /**
+     * The comma separated list of the services whose reads are directed to the read replica
+     * 
+     * @return
+     */
+    public static String getReplicaServices() {
+        return System.getProperty(DynamoConstants.SP_REPLICA_SERVICES, "");
+    }
+
+    /**
+     * Whether to direct service calls to either the primary database or the read replica
+     * 
+     * @return
+     */
+    public static boolean useReadReplica() {
+        return Boolean.getBoolean(DynamoConstants.SP_READ_REPLICA);
+    }
+
+    /**
+     * The packages that are scanned for entities whose models are constructed at startup
+     * 
+     * @return
+     */
+    public static String getEntityModelWarmUpPackages() {
+        return System.getProperty(DynamoConstants.SP_ENTITY_MODEL_WARMUP_PACKAGES, "");
+    }
+
+    /**
+     * Whether to record the latencies of service calls
+     * 
+     * @return
+     */
+    public static boolean useServiceMetrics() {
+        return Boolean.getBoolean(DynamoConstants.SP_SERVICE_METRICS);
+    }
+
+    /**
+     * Whether to monitor the SQL statements that are executed during service calls
+     * 
+     * @return
+     */
+    public static boolean useStatementMonitor() {
+        return Boolean.getBoolean(DynamoConstants.SP_STATEMENT_MONITOR);
+    }
+
+    /**
+     * Whether to derive the fetch joins from the entity model when a layout does not specify any
+     * 
+     * @return
+     */
+    public static boolean useFetchJoinPlanner() {
+        return Boolean.getBoolean(DynamoConstants.SP_PLAN_FETCH_JOINS);
+    }
+
+    /**
+     * Whether to retrieve subtrees and ancestors of tree entities using a recursive query
+     * 
+     * @return
+     */
+    public static boolean useRecursiveTreeQueries() {
+        return Boolean.getBoolean(DynamoConstants.SP_TREE_RECURSIVE_QUERY);
+    }
+
     /**
      * Whether to include thousands groupings in edit mode
      * 
@@ -0,0 +1,72 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.domain.model.metadata;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EntityMetadataTest {
+
+    /**
+     * Class for which the metadata is "generated" below
+     */
+    public static class Sample {
+
+        private String name;
+
+        private List<Integer> values;
+
+        public String getName() {
+            return name;
+        }
+
+        public List<Integer> getValues() {
+            return values;
+        }
+    }
+
+    /**
+     * The metadata as the EntityMetadataProcessor would generate it
+     */
+    public static final class Sample_Metadata extends EntityMetadata<Sample> {
+
+        public Sample_Metadata() {
+            super(Sample.class);
+            addProperty("name", String.class, null);
+            addProperty("values", List.class, Integer.class);
+        }
+    }
+
+    @Test
+    public void testForClass() {
+        EntityMetadata<Sample> metadata = EntityMetadata.forClass(Sample.class);
+        Assert.assertNotNull(metadata);
+        Assert.assertSame(metadata, EntityMetadata.forClass(Sample.class));
+        Assert.assertEquals(Sample.class, metadata.getEntityClass());
+        Assert.assertEquals(2, metadata.getProperties().size());
+
+        PropertyMetadata values = metadata.getProperty("values");
+        Assert.assertEquals(List.class, values.getType());
+        Assert.assertEquals(Integer.class, values.getElementType());
+        Assert.assertEquals(String.class, metadata.getProperty("name").getType());
+        Assert.assertNull(metadata.getProperty("name").getElementType());
+        Assert.assertNull(metadata.getProperty("unknown"));
+
+        // no metadata has been generated for these classes
+        Assert.assertNull(EntityMetadata.forClass(EntityMetadataTest.class));
+        Assert.assertNull(EntityMetadata.forClass(String.class));
+    }
+}
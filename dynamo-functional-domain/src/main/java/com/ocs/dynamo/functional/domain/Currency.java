@@ -27,7 +27,7 @@ import com.ocs.dynamo.domain.model.annotation.Model;
  */
 @Entity
 @DiscriminatorValue("CURRENCY")
-@Model(displayNamePlural = "Currencies", displayProperty = "codeAndName", sortOrder = "name asc")
+@Model(displayNamePlural = "Currencies", displayProperty = "codeAndName", sortOrder = "name asc", cacheable = true)
 public class Currency extends Domain {
 
     private static final long serialVersionUID = 3270223599926941961L;
@@ -98,6 +98,17 @@ public class DomainServiceTest extends BaseIntegrationTest {
 		Assert.assertEquals(3, all.size());
 	}
 
+	@Test
+	public void testEntityCache() {
+		// currencies are cached, regions and countries are not since they have lazy associations
+		Assert.assertNotNull(currencyService.getEntityCache());
+
+		// within a read-write transaction the persistence context is used rather than the cache
+		Currency euro = currencyService.findByUniqueProperty("code", "EU", false);
+		Assert.assertSame(euro, currencyService.findById(euro.getId()));
+		Assert.assertEquals(0, currencyService.getEntityCache().getSize());
+	}
+
 	@Test
 	public void testFindChildren() {
 		Domain deu = regionService.findByUniqueProperty("code", "EU", false);
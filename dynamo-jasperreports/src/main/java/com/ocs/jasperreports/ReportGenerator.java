@@ -45,7 +45,10 @@ import net.sf.jasperreports.j2ee.servlets.BaseHttpServlet;
 
 import org.springframework.stereotype.Service;
 
+import com.ocs.dynamo.dao.routing.DataSourceContext;
+import com.ocs.dynamo.dao.routing.DataSourceType;
 import com.ocs.dynamo.exception.OCSRuntimeException;
+import com.ocs.dynamo.utils.SystemPropertyUtils;
 
 /**
  * Class to support the generation of jasperreports
@@ -57,6 +60,7 @@ public class ReportGenerator {
 
 	private DataSource dataSource;
 	private boolean showMargins = false;
+	private final boolean useReadReplica = SystemPropertyUtils.useReadReplica();
 
 	@Inject
 	public ReportGenerator(DataSource dataSource) {
@@ -108,9 +112,17 @@ public class ReportGenerator {
 		try {
 			if (jrDataSource != null) {
 				return JasperFillManager.fillReport(jasperReport, parameters, jrDataSource);
+			} else if (!useReadReplica) {
+				try (Connection connection = dataSource.getConnection()) {
+					return JasperFillManager.fillReport(jasperReport, parameters, connection);
+				}
 			} else {
+				// reports only read data, so they can be executed against the read replica
+				DataSourceType previous = DataSourceContext.set(DataSourceType.REPLICA);
 				try (Connection connection = dataSource.getConnection()) {
 					return JasperFillManager.fillReport(jasperReport, parameters, connection);
+				} finally {
+					DataSourceContext.restore(previous);
 				}
 			}
 		} catch (SQLException | JRException e) {
@@ -14,8 +14,12 @@
 package com.ocs.dynamo.dao;
 
 import java.util.List;
+import java.util.Map;
 
 import com.mysema.query.types.Predicate;
+import com.ocs.dynamo.dao.query.Aggregate;
+import com.ocs.dynamo.dao.query.AggregateResult;
+import com.ocs.dynamo.dao.query.CloseableIterator;
 import com.ocs.dynamo.dao.query.FetchJoinInformation;
 import com.ocs.dynamo.domain.AbstractEntity;
 import com.ocs.dynamo.filter.Filter;
@@ -31,6 +35,22 @@ import com.ocs.dynamo.filter.Filter;
  */
 public interface BaseDao<ID, T extends AbstractEntity<ID>> {
 
+    /**
+     * Calculates aggregates (counts, sums, averages etc.) over the entities that match the
+     * provided filter. The calculation is performed by the database using a single GROUP BY query,
+     * so only one row per group is transferred
+     * 
+     * @param filter
+     *            the filter
+     * @param groupBy
+     *            the properties to group by - when empty, a single row is returned that contains the
+     *            aggregates over all matching entities
+     * @param aggregates
+     *            the aggregates to calculate
+     * @return the results, ordered by the values of the group by properties
+     */
+    List<AggregateResult> aggregate(Filter filter, String[] groupBy, Aggregate... aggregates);
+
     /**
      * Returns the total number of entities of this type
      * 
@@ -49,6 +69,20 @@ public interface BaseDao<ID, T extends AbstractEntity<ID>> {
      */
     long count(Filter filter, boolean distinct);
 
+    /**
+     * Counts the entities that match the provided filter, but stops counting once the limit has
+     * been exceeded. This is much cheaper than an exact count when the filter matches a very large
+     * number of rows
+     * 
+     * @param filter
+     *            the filter
+     * @param limit
+     *            the limit
+     * @return the number of matching entities, or <code>limit + 1</code> if there are more than
+     *         <code>limit</code> matching entities
+     */
+    long countUpTo(Filter filter, int limit);
+
     /**
      * Returns the number of entities that match the provided predicate
      * 
@@ -58,6 +92,20 @@ public interface BaseDao<ID, T extends AbstractEntity<ID>> {
      */
     long count(Predicate predicate);
 
+    /**
+     * Deletes all entities that match the provided filter using a single bulk delete statement.
+     * Bulk operations bypass the persistence context: no entity lifecycle callbacks are invoked,
+     * cascades are not applied (so child rows must be removed separately or via a database level
+     * cascade), and the AuditAspect does not fill in any audit fields. Any pending changes are
+     * flushed beforehand and the persistence context is cleared afterwards. Filters on nested
+     * properties are not supported since bulk statements cannot contain joins
+     * 
+     * @param filter
+     *            the filter
+     * @return the number of deleted rows
+     */
+    int deleteByFilter(Filter filter);
+
     /**
      * Deletes all entities in the provided list
      * 
@@ -111,6 +159,45 @@ public interface BaseDao<ID, T extends AbstractEntity<ID>> {
      */
     List<T> fetch(Filter filter, SortOrders orders, FetchJoinInformation... joins);
 
+    /**
+     * Fetches the page of entities that directly follows the provided keyset ("seek" pagination).
+     * Unlike offset based paging, the cost of retrieving a page does not depend on how far the
+     * page is from the start of the result set
+     * 
+     * @param filter
+     *            the filter
+     * @param keyset
+     *            the sort values and ID of the last row of the previous page, or
+     *            <code>null</code> to fetch the first page
+     * @param pageSize
+     *            the page size
+     * @param sortOrders
+     *            the sort orders - the ID is added as the final sort order when needed
+     * @param joins
+     *            the desired relations to fetch
+     * @return
+     */
+    List<T> fetchAfter(Filter filter, Keyset keyset, int pageSize, SortOrders sortOrders,
+            FetchJoinInformation... joins);
+
+    /**
+     * Fetches entities that match the provided filter, but only retrieves the ID and the provided
+     * properties rather than all columns. The returned entities are new, detached instances in
+     * which only these properties are set - they are meant for display purposes only and must not
+     * be saved
+     * 
+     * @param filter
+     *            the filter
+     * @param pageable
+     *            the page info (including the sort orders)
+     * @param properties
+     *            the names of the (top level, single valued) properties to retrieve. Properties
+     *            that are not persistent attributes of the entity (e.g. transient properties) are
+     *            ignored; an OCSRuntimeException is thrown for a property that does not exist
+     * @return
+     */
+    List<T> fetchProjection(Filter filter, Pageable pageable, String... properties);
+
     /**
      * Fetches an entity (and its relations) based on its ID
      * 
@@ -123,7 +210,10 @@ public interface BaseDao<ID, T extends AbstractEntity<ID>> {
     T fetchById(ID id, FetchJoinInformation... joins);
 
     /**
-     * Fetches the entities identified by the provided IDs
+     * Fetches the entities identified by the provided IDs. Large lists of IDs are split into
+     * fixed-size buckets that are fetched one after the other. Without sort orders, the results are
+     * returned in the order of the provided IDs. With sort orders, a single bucket is sorted by the
+     * database and multiple buckets are sorted in memory
      * 
      * @param ids
      *            the IDs of the entities to fetch
@@ -250,6 +340,25 @@ public interface BaseDao<ID, T extends AbstractEntity<ID>> {
      */
     void flushAndClear();
 
+    /**
+     * Iterates over all entities that match the provided filter using a forward-only database
+     * cursor. The persistence context is cleared after every <code>fetchSize</code> rows, so any
+     * pending changes must be flushed before calling this method, and entities that were returned
+     * earlier must not be modified afterwards. Must be called within a transaction, and the
+     * iterator must be closed after use. Fetch joins on collections are not supported
+     * 
+     * @param filter
+     *            the filter
+     * @param sortOrders
+     *            the sort orders
+     * @param fetchSize
+     *            the number of rows to retrieve per database round trip
+     * @param joins
+     *            the desired relations to fetch
+     * @return
+     */
+    CloseableIterator<T> stream(Filter filter, SortOrders sortOrders, int fetchSize, FetchJoinInformation... joins);
+
     /**
      * Returns the class of the entity managed by this DAO
      * 
@@ -257,6 +366,24 @@ public interface BaseDao<ID, T extends AbstractEntity<ID>> {
      */
     Class<T> getEntityClass();
 
+    /**
+     * Updates all entities that match the provided filter using a single bulk update statement.
+     * Any pending changes are flushed beforehand. Afterwards the persistence context is cleared,
+     * since the entities it contains may no longer match the database; entities that were loaded
+     * before the update are detached and must be retrieved again. The statement bypasses the
+     * entity lifecycle: the version of optimistically locked entities is not incremented (so
+     * concurrent edits of the same rows are not detected) and the AuditAspect does not fill in the
+     * "changedBy" and "changedOn" fields - include these in the values if required. Filters on
+     * nested properties are not supported since bulk statements cannot contain joins
+     * 
+     * @param filter
+     *            the filter
+     * @param values
+     *            the new property values, keyed by property name
+     * @return the number of updated rows
+     */
+    int updateByFilter(Filter filter, Map<String, Object> values);
+
     /**
      * Saves the provide list of entities
      * 
@@ -266,6 +393,36 @@ public interface BaseDao<ID, T extends AbstractEntity<ID>> {
      */
     List<T> save(List<T> list);
 
+    /**
+     * Saves the provided list of entities in batches. After every <code>batchSize</code> entities,
+     * the persistence context is flushed and cleared so that it does not keep growing, and the
+     * insert and update statements can be sent to the database in JDBC batches (provided that
+     * "hibernate.jdbc.batch_size" is set and the entities do not use IDENTITY generation). Note
+     * that clearing also detaches any other entities that are managed by the current persistence
+     * context
+     * 
+     * @param list
+     *            the list of entities
+     * @param batchSize
+     *            the number of entities after which to flush and clear. If this is not positive,
+     *            the default batch size (see the "ocs.default.batch.size" system property) is used
+     * @return the saved entities - only the entities in the last batch are still managed
+     */
+    List<T> save(List<T> list, int batchSize);
+
+    /**
+     * Saves the provided list of entities in batches (see {@link #save(List, int)}) and only
+     * returns the IDs of the saved entities
+     * 
+     * @param list
+     *            the list of entities
+     * @param batchSize
+     *            the number of entities after which to flush and clear. If this is not positive,
+     *            the default batch size is used
+     * @return the IDs of the saved entities, in the same order as the provided list
+     */
+    List<ID> saveAndReturnIds(List<T> list, int batchSize);
+
     /**
      * Saves the provided entity
      * 
@@ -41,4 +41,33 @@ public interface TreeDao<ID, T extends AbstractEntity<ID>> extends BaseDao<ID, T
      */
     List<T> findByParent(T parent);
 
+    /**
+     * Find all children for a collection of parents. The parents are queried in batches rather
+     * than one by one
+     * 
+     * @param parents
+     *            the parents
+     * @return all children of the given parents
+     */
+    List<T> findByParents(List<T> parents);
+
+    /**
+     * Find all ancestors of a given node
+     * 
+     * @param node
+     *            the node
+     * @return the ancestors, starting with the parent of the node and ending with the root
+     */
+    List<T> findAncestors(T node);
+
+    /**
+     * Find all descendants of a given node, using a single recursive query (if enabled) or one
+     * query per level of the tree
+     * 
+     * @param root
+     *            the root of the subtree
+     * @return the descendants (not including the root itself), ordered by level
+     */
+    List<T> findSubtree(T root);
+
 }
@@ -0,0 +1,106 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.dao.query;
+
+import java.io.Serializable;
+
+import org.apache.commons.lang.ObjectUtils;
+
+/**
+ * A DTO representing an aggregate function (count, sum, average, minimum or maximum) that is
+ * calculated by the database over a property
+ * 
+ * @author bas.rutten
+ */
+public class Aggregate implements Serializable {
+
+    private static final long serialVersionUID = 6470932871290941432L;
+
+    /**
+     * The supported aggregate functions
+     */
+    public enum Function {
+        COUNT, SUM, AVG, MIN, MAX
+    }
+
+    private final Function function;
+
+    private final String property;
+
+    /**
+     * Constructor
+     * 
+     * @param function
+     *            the aggregate function
+     * @param property
+     *            the property to aggregate over - may be <code>null</code> for a count, in which
+     *            case the rows are counted
+     */
+    public Aggregate(Function function, String property) {
+        this.function = function;
+        this.property = property;
+    }
+
+    public static Aggregate avg(String property) {
+        return new Aggregate(Function.AVG, property);
+    }
+
+    public static Aggregate count() {
+        return new Aggregate(Function.COUNT, null);
+    }
+
+    public static Aggregate count(String property) {
+        return new Aggregate(Function.COUNT, property);
+    }
+
+    public static Aggregate max(String property) {
+        return new Aggregate(Function.MAX, property);
+    }
+
+    public static Aggregate min(String property) {
+        return new Aggregate(Function.MIN, property);
+    }
+
+    public static Aggregate sum(String property) {
+        return new Aggregate(Function.SUM, property);
+    }
+
+    public Function getFunction() {
+        return function;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    @Override
+    public int hashCode() {
+        return ObjectUtils.hashCode(function) + ObjectUtils.hashCode(property);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Aggregate)) {
+            return false;
+        }
+        Aggregate other = (Aggregate) obj;
+        return ObjectUtils.equals(this.getFunction(), other.getFunction())
+                && ObjectUtils.equals(this.getProperty(), other.getProperty());
+    }
+
+    @Override
+    public String toString() {
+        return function + "(" + (property == null ? "*" : property) + ")";
+    }
+}
@@ -0,0 +1,80 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.dao.query;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A single row of the result of an aggregate query: the values of the properties that the
+ * results are grouped by, followed by the values of the aggregates
+ * 
+ * @author bas.rutten
+ */
+public class AggregateResult implements Serializable {
+
+    private static final long serialVersionUID = -1386563916282424853L;
+
+    private final Object[] groupValues;
+
+    private final Object[] aggregateValues;
+
+    /**
+     * Constructor
+     * 
+     * @param groupValues
+     *            the values of the properties that the results are grouped by
+     * @param aggregateValues
+     *            the values of the aggregates, in the order in which the aggregates were requested
+     */
+    public AggregateResult(Object[] groupValues, Object[] aggregateValues) {
+        this.groupValues = groupValues;
+        this.aggregateValues = aggregateValues;
+    }
+
+    /**
+     * Returns the value of an aggregate
+     * 
+     * @param index
+     *            the index of the aggregate
+     * @return
+     */
+    public Object getAggregateValue(int index) {
+        return aggregateValues[index];
+    }
+
+    public int getAggregateCount() {
+        return aggregateValues.length;
+    }
+
+    /**
+     * Returns the value of a property that the results are grouped by
+     * 
+     * @param index
+     *            the index of the property
+     * @return
+     */
+    public Object getGroupValue(int index) {
+        return groupValues[index];
+    }
+
+    public int getGroupCount() {
+        return groupValues.length;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(groupValues) + " " + Arrays.toString(aggregateValues);
+    }
+}
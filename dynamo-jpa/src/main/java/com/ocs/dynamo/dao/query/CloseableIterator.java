@@ -0,0 +1,33 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.dao.query;
+
+import java.util.Iterator;
+
+/**
+ * An iterator that is backed by an open database cursor. The iterator must be closed after use
+ * (preferably using a try-with-resources statement) in order to release the cursor
+ *
+ * @author bas.rutten
+ * @param <T>
+ *            the type of the elements
+ */
+public interface CloseableIterator<T> extends Iterator<T>, AutoCloseable {
+
+	/**
+	 * Closes the iterator and releases the underlying cursor
+	 */
+	@Override
+	void close();
+}
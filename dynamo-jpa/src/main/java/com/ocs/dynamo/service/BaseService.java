@@ -14,9 +14,15 @@
 package com.ocs.dynamo.service;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
 
+import com.ocs.dynamo.dao.Keyset;
 import com.ocs.dynamo.dao.SortOrder;
 import com.ocs.dynamo.dao.SortOrders;
+import com.ocs.dynamo.dao.query.Aggregate;
+import com.ocs.dynamo.dao.query.AggregateResult;
+import com.ocs.dynamo.dao.query.CloseableIterator;
 import com.ocs.dynamo.dao.query.FetchJoinInformation;
 import com.ocs.dynamo.domain.AbstractEntity;
 import com.ocs.dynamo.filter.Filter;
@@ -31,6 +37,20 @@ import com.ocs.dynamo.filter.Filter;
  */
 public interface BaseService<ID, T extends AbstractEntity<ID>> {
 
+	/**
+	 * Calculates aggregates (counts, sums, averages etc.) over the entities that match the
+	 * provided filter using a single GROUP BY query
+	 * 
+	 * @param filter
+	 *            the filter
+	 * @param groupBy
+	 *            the properties to group by - may be empty
+	 * @param aggregates
+	 *            the aggregates to calculate
+	 * @return the results, ordered by the values of the group by properties
+	 */
+	List<AggregateResult> aggregate(Filter filter, String[] groupBy, Aggregate... aggregates);
+
 	/**
 	 * Returns the total number of entities of this type
 	 * 
@@ -49,6 +69,31 @@ public interface BaseService<ID, T extends AbstractEntity<ID>> {
 	 */
 	long count(Filter filter, boolean distinct);
 
+	/**
+	 * Asynchronous version of {@link #count(Filter, boolean)}. The count is performed on a
+	 * separate thread in its own read-only transaction
+	 * 
+	 * @param filter
+	 *            the filter
+	 * @param distinct
+	 *            whether to return only distinct results
+	 * @return
+	 */
+	Future<Long> countAsync(Filter filter, boolean distinct);
+
+	/**
+	 * Counts the entities that match the provided filter, but stops counting once the limit has
+	 * been exceeded
+	 * 
+	 * @param filter
+	 *            the filter
+	 * @param limit
+	 *            the limit
+	 * @return the number of matching entities, or <code>limit + 1</code> if there are more than
+	 *         <code>limit</code> matching entities
+	 */
+	long countUpTo(Filter filter, int limit);
+
 	/**
 	 * Creates a new entity
 	 * 
@@ -56,6 +101,17 @@ public interface BaseService<ID, T extends AbstractEntity<ID>> {
 	 */
 	T createNewEntity();
 
+	/**
+	 * Deletes all entities that match the provided filter using a single bulk delete statement.
+	 * No validation, cascading or auditing takes place - see
+	 * {@link com.ocs.dynamo.dao.BaseDao#deleteByFilter(Filter)}
+	 * 
+	 * @param filter
+	 *            the filter
+	 * @return the number of deleted rows
+	 */
+	int deleteByFilter(Filter filter);
+
 	/**
 	 * Deletes all entities in the provided list
 	 * 
@@ -128,6 +184,64 @@ public interface BaseService<ID, T extends AbstractEntity<ID>> {
 	 */
 	List<T> fetch(Filter filter, SortOrders orders, FetchJoinInformation... joins);
 
+	/**
+	 * Asynchronous version of {@link #fetch(Filter, int, int, SortOrders, FetchJoinInformation...)}.
+	 * The entities are fetched on a separate thread in their own read-only transaction, so they are
+	 * detached once the future completes - make sure to fetch all relations that are needed
+	 * 
+	 * @param filter
+	 *            the filter
+	 * @param pageNumber
+	 *            the page number of the page to fetch
+	 * @param pageSize
+	 *            the page size
+	 * @param sortOrders
+	 *            any sort orders to apply to the search results
+	 * @param joins
+	 *            the desired relations to fetch
+	 * @return
+	 */
+	Future<List<T>> fetchAsync(Filter filter, int pageNumber, int pageSize, SortOrders sortOrders,
+	        FetchJoinInformation... joins);
+
+	/**
+	 * Fetches the page of entities that directly follows the provided keyset ("seek" pagination)
+	 * 
+	 * @param filter
+	 *            the filter
+	 * @param keyset
+	 *            the sort values and ID of the last row of the previous page, or
+	 *            <code>null</code> to fetch the first page
+	 * @param pageSize
+	 *            the page size
+	 * @param sortOrders
+	 *            the sort orders - the ID is added as the final sort order when needed
+	 * @param joins
+	 *            the desired relations to fetch
+	 * @return
+	 */
+	List<T> fetchAfter(Filter filter, Keyset keyset, int pageSize, SortOrders sortOrders, FetchJoinInformation... joins);
+
+	/**
+	 * Fetches a page of entities that match the provided filter, retrieving only the ID and the
+	 * provided properties. The returned entities are detached and only partially populated, so
+	 * they are meant for display purposes only and must not be saved
+	 * 
+	 * @param filter
+	 *            the filter
+	 * @param pageNumber
+	 *            the page number of the page to fetch
+	 * @param pageSize
+	 *            the page size
+	 * @param sortOrders
+	 *            any sort orders to apply to the search results
+	 * @param properties
+	 *            the names of the (top level, single valued) properties to retrieve. Properties
+	 *            that are not persistent attributes of the entity are ignored
+	 * @return
+	 */
+	List<T> fetchProjection(Filter filter, int pageNumber, int pageSize, SortOrders sortOrders, String... properties);
+
 	/**
 	 * Fetches an entity (and its relations) based on its ID
 	 * 
@@ -163,6 +277,19 @@ public interface BaseService<ID, T extends AbstractEntity<ID>> {
 	 */
 	List<T> fetchByIds(List<ID> ids, SortOrders sortOrders, FetchJoinInformation... joins);
 
+	/**
+	 * Asynchronous version of {@link #fetchByIds(List, SortOrders, FetchJoinInformation...)}
+	 * 
+	 * @param ids
+	 *            the IDs of the entities to fetch
+	 * @param sortOrders
+	 *            the sort orders
+	 * @param joins
+	 *            the desired relations to fetch
+	 * @return
+	 */
+	Future<List<T>> fetchByIdsAsync(List<ID> ids, SortOrders sortOrders, FetchJoinInformation... joins);
+
 	/**
 	 * Fetches an entity based on a unique property
 	 * 
@@ -263,6 +390,35 @@ public interface BaseService<ID, T extends AbstractEntity<ID>> {
 	 */
 	List<ID> findIds(Filter filter, SortOrder... orders);
 
+	/**
+	 * Asynchronous version of {@link #findIds(Filter, SortOrder...)}
+	 * 
+	 * @param filter
+	 *            the filter
+	 * @param orders
+	 *            the sort orders
+	 * @return
+	 */
+	Future<List<ID>> findIdsAsync(Filter filter, SortOrder... orders);
+
+	/**
+	 * Iterates over all entities that match the provided filter using a forward-only database
+	 * cursor, clearing the persistence context after every <code>fetchSize</code> rows. Use this
+	 * instead of loading all IDs up front when processing very large data sets. Must be called
+	 * within a transaction, and the iterator must be closed after use
+	 * 
+	 * @param filter
+	 *            the filter
+	 * @param sortOrders
+	 *            the sort orders
+	 * @param fetchSize
+	 *            the number of rows to retrieve per database round trip
+	 * @param joins
+	 *            the desired relations to fetch
+	 * @return
+	 */
+	CloseableIterator<T> stream(Filter filter, SortOrders sortOrders, int fetchSize, FetchJoinInformation... joins);
+
 	/**
 	 * Returns the class of the entity managed by this DAO
 	 * 
@@ -270,6 +426,36 @@ public interface BaseService<ID, T extends AbstractEntity<ID>> {
 	 */
 	Class<T> getEntityClass();
 
+	/**
+	 * Updates all entities that match the provided filter using a single bulk update statement.
+	 * No validation, cascading or auditing takes place - see
+	 * {@link com.ocs.dynamo.dao.BaseDao#updateByFilter(Filter, Map)}
+	 * 
+	 * @param filter
+	 *            the filter
+	 * @param values
+	 *            the new property values, keyed by property name
+	 * @return the number of updated rows
+	 */
+	int updateByFilter(Filter filter, Map<String, Object> values);
+
+	/**
+	 * Saves a set of changes (e.g. those made in an editable table) in a single transaction. The
+	 * modified and removed entities that still exist are retrieved using a single query, so that
+	 * they do not have to be retrieved one by one. Removed entities that do not exist (anymore)
+	 * are ignored. All statements are sent to the database when the transaction is committed, so
+	 * they can be combined into JDBC batches (see the "hibernate.jdbc.batch_size" setting)
+	 * 
+	 * @param added
+	 *            the entities to add
+	 * @param modified
+	 *            the entities to update
+	 * @param removed
+	 *            the entities to remove
+	 * @return the saved (modified and added) entities
+	 */
+	List<T> saveChanges(List<T> added, List<T> modified, List<T> removed);
+
 	/**
 	 * Saves the provide list of entities
 	 * 
@@ -279,6 +465,31 @@ public interface BaseService<ID, T extends AbstractEntity<ID>> {
 	 */
 	List<T> save(List<T> list);
 
+	/**
+	 * Validates and saves the provided list of entities in batches, flushing and clearing the
+	 * persistence context after every <code>batchSize</code> entities. Use this for large imports
+	 * 
+	 * @param list
+	 *            the list of entities
+	 * @param batchSize
+	 *            the number of entities after which to flush and clear, or 0 to use the default
+	 *            batch size (see the "ocs.default.batch.size" system property)
+	 * @return the saved entities
+	 */
+	List<T> save(List<T> list, int batchSize);
+
+	/**
+	 * Validates and saves the provided list of entities in batches and only returns their IDs
+	 * 
+	 * @param list
+	 *            the list of entities
+	 * @param batchSize
+	 *            the number of entities after which to flush and clear, or 0 to use the default
+	 *            batch size
+	 * @return the IDs of the saved entities, in the same order as the provided list
+	 */
+	List<ID> saveAndReturnIds(List<T> list, int batchSize);
+
 	/**
 	 * Saves the provided entity
 	 * 
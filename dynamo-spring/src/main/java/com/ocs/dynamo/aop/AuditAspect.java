@@ -32,6 +32,9 @@ import com.ocs.dynamo.service.UserDetailsService;
  * Can be used in your application simply by adding "com.ocs.dynamo.aop" to the list of packages to
  * scan for components
  * 
+ * Note that bulk operations (BaseService.updateByFilter and deleteByFilter) do not pass through
+ * this aspect - when needed, include the audit fields in the map of values to update
+ * 
  * @author bas.rutten
  *
  */
@@ -0,0 +1,164 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.aop;
+
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.ocs.dynamo.dao.routing.DataSourceContext;
+import com.ocs.dynamo.dao.routing.DataSourceType;
+import com.ocs.dynamo.utils.SystemPropertyUtils;
+
+/**
+ * Aspect that directs service calls to either the primary database or the read replica (see
+ * ReplicaRoutingDataSource). A call is directed to the replica when the method is marked with
+ * <code>@Transactional(readOnly = true)</code>, or when it is not transactional at all and the
+ * service is listed in the "ocs.replica.services" system property. Methods that are marked
+ * <code>@Transactional</code> (such as the save and delete methods of BaseServiceImpl) always use
+ * the primary database.
+ * 
+ * The decision is taken by the outermost service call and is kept for the duration of any
+ * transaction. The aspect runs before the transaction interceptor, so that the connection is
+ * obtained after the decision has been made
+ * 
+ * Can be used in your application by adding "com.ocs.dynamo.aop" to the list of packages to scan
+ * for components and setting the "ocs.read.replica" system property to true
+ * 
+ * @author bas.rutten
+ *
+ */
+@Service("readReplicaAspect")
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ReadReplicaAspect {
+
+    /**
+     * The routing decision for a method
+     */
+    private enum Routing {
+        REPLICA, PRIMARY, WRITE
+    }
+
+    private final boolean enabled = SystemPropertyUtils.useReadReplica();
+
+    private final Set<String> replicaServices = new HashSet<>();
+
+    // cached routing decision per method and target class
+    private final ConcurrentMap<String, Routing> decisions = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor
+     */
+    public ReadReplicaAspect() {
+        for (String service : SystemPropertyUtils.getReplicaServices().split(",")) {
+            if (!service.trim().isEmpty()) {
+                replicaServices.add(service.trim());
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Intercept all public methods on all classes that inherit from BaseService
+     */
+    @Pointcut("execution(public * com.ocs.dynamo.service.BaseService+.*(..))")
+    public static void anyServiceMethod() {
+        // pointcut method for intercepting any service method
+    }
+
+    /**
+     * Determines the data source for a method
+     * 
+     * @param method
+     *            the method that is called
+     * @param targetClass
+     *            the class of the service
+     * @return
+     */
+    private Routing determine(Method method, Class<?> targetClass) {
+        Method specific = AopUtils.getMostSpecificMethod(method, targetClass);
+        Transactional transactional = AnnotationUtils.findAnnotation(specific, Transactional.class);
+        if (transactional == null) {
+            transactional = AnnotationUtils.findAnnotation(targetClass, Transactional.class);
+        }
+
+        if (transactional != null) {
+            return transactional.readOnly() ? Routing.REPLICA : Routing.WRITE;
+        }
+        return replicaServices.contains(targetClass.getSimpleName())
+                || replicaServices.contains(targetClass.getName()) ? Routing.REPLICA : Routing.PRIMARY;
+    }
+
+    /**
+     * Executes the service call against the appropriate data source
+     * 
+     * @param joinPoint
+     *            the join point
+     * @return
+     * @throws Throwable
+     */
+    @Around("anyServiceMethod()")
+    public Object route(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!enabled) {
+            return joinPoint.proceed();
+        }
+
+        // never switch data sources in the middle of a transaction
+        if (DataSourceContext.get() != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Class<?> targetClass = AopUtils.getTargetClass(joinPoint.getTarget());
+        String key = targetClass.getName() + "#" + method.toGenericString();
+        Routing routing = decisions.get(key);
+        if (routing == null) {
+            routing = determine(method, targetClass);
+            decisions.put(key, routing);
+        }
+
+        DataSourceType previous = DataSourceContext.set(Routing.REPLICA.equals(routing) ? DataSourceType.REPLICA
+                : DataSourceType.PRIMARY);
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } finally {
+            DataSourceContext.restore(previous);
+        }
+        if (Routing.WRITE.equals(routing)) {
+            // the replica may lag behind for a while after a (successful) write
+            DataSourceContext.registerWrite();
+        }
+        return result;
+    }
+}
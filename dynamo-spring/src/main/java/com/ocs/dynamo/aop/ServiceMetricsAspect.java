@@ -0,0 +1,117 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.aop;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.stereotype.Service;
+
+import com.ocs.dynamo.service.BaseService;
+import com.ocs.dynamo.service.metrics.ServiceMetrics;
+import com.ocs.dynamo.utils.SystemPropertyUtils;
+
+/**
+ * Aspect that records the latency, the number of calls and the number of errors of the fetch,
+ * find, count, save and delete methods of all services that inherit from BaseService. The metrics
+ * are kept per entity class and are available through <code>getMetrics</code> and JMX
+ * 
+ * Can be used in your application by adding "com.ocs.dynamo.aop" to the list of packages to scan
+ * for components and setting the "ocs.service.metrics" system property to true
+ * 
+ * @author bas.rutten
+ *
+ */
+@Service("serviceMetricsAspect")
+@Aspect
+public class ServiceMetricsAspect {
+
+    private final boolean enabled = SystemPropertyUtils.useServiceMetrics();
+
+    private final ServiceMetrics metrics = new ServiceMetrics();
+
+    /**
+     * Intercept the fetch, find, count, save and delete methods on all classes that inherit from
+     * BaseService. The asynchronous variants are excluded since they return as soon as the work has
+     * been submitted
+     */
+    @Pointcut("(execution(public * com.ocs.dynamo.service.BaseService+.fetch*(..))"
+            + " || execution(public * com.ocs.dynamo.service.BaseService+.find*(..))"
+            + " || execution(public * com.ocs.dynamo.service.BaseService+.count*(..))"
+            + " || execution(public * com.ocs.dynamo.service.BaseService+.save*(..))"
+            + " || execution(public * com.ocs.dynamo.service.BaseService+.delete*(..)))"
+            + " && !execution(* com.ocs.dynamo.service.BaseService+.*Async(..))")
+    public static void anyMeasuredMethod() {
+        // pointcut method for intercepting the measured service methods
+    }
+
+    public ServiceMetrics getMetrics() {
+        return metrics;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Records the duration of a service call
+     * 
+     * @param joinPoint
+     *            the join point
+     * @param service
+     *            the service that is called
+     * @return
+     * @throws Throwable
+     */
+    @Around("anyMeasuredMethod() && target(service)")
+    public Object measure(ProceedingJoinPoint joinPoint, BaseService<?, ?> service) throws Throwable {
+        if (!enabled) {
+            return joinPoint.proceed();
+        }
+        boolean error = true;
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            error = false;
+            return result;
+        } finally {
+            metrics.getHistogram(service.getEntityClass(), joinPoint.getSignature().getName()).record(
+                    System.nanoTime() - start, error);
+        }
+    }
+
+    /**
+     * Registers the metrics with JMX
+     */
+    @PostConstruct
+    public void register() {
+        if (enabled) {
+            metrics.registerMBean();
+        }
+    }
+
+    /**
+     * Removes the metrics from JMX
+     */
+    @PreDestroy
+    public void unregister() {
+        if (enabled) {
+            metrics.unregisterMBean();
+        }
+    }
+}
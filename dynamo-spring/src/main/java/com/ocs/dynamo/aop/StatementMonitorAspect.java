@@ -0,0 +1,75 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.aop;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.stereotype.Service;
+
+import com.ocs.dynamo.dao.monitor.StatementMonitor;
+import com.ocs.dynamo.utils.SystemPropertyUtils;
+
+/**
+ * Aspect that monitors the SQL statements that are executed during every call to a service that
+ * inherits from BaseService. The statements themselves are only counted when the
+ * StatementCountingInterceptor has been registered with Hibernate
+ * 
+ * Can be used in your application by adding "com.ocs.dynamo.aop" to the list of packages to scan
+ * for components and setting the "ocs.statement.monitor" system property to true
+ * 
+ * @author bas.rutten
+ *
+ */
+@Service("statementMonitorAspect")
+@Aspect
+public class StatementMonitorAspect {
+
+    private final boolean enabled = SystemPropertyUtils.useStatementMonitor();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Intercept all public methods on all classes that inherit from BaseService
+     */
+    @Pointcut("execution(public * com.ocs.dynamo.service.BaseService+.*(..))")
+    public static void anyServiceMethod() {
+        // pointcut method for intercepting any service method
+    }
+
+    /**
+     * Executes the service call inside a new monitoring scope
+     * 
+     * @param joinPoint
+     *            the join point
+     * @return
+     * @throws Throwable
+     */
+    @Around("anyServiceMethod()")
+    public Object monitor(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!enabled) {
+            return joinPoint.proceed();
+        }
+        StatementMonitor.begin(joinPoint.getTarget().getClass().getSimpleName() + "."
+                + joinPoint.getSignature().getName());
+        try {
+            return joinPoint.proceed();
+        } finally {
+            StatementMonitor.end();
+        }
+    }
+}
@@ -14,7 +14,10 @@
 package com.ocs.dynamo.dao.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
@@ -23,7 +26,11 @@ import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
 import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaDelete;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+
+import org.hibernate.ScrollMode;
 
 import com.mysema.query.jpa.impl.JPADeleteClause;
 import com.mysema.query.jpa.impl.JPAQuery;
@@ -35,14 +42,21 @@ import com.mysema.query.types.Predicate;
 import com.mysema.query.types.path.EntityPathBase;
 import com.mysema.query.types.path.PathBuilder;
 import com.ocs.dynamo.dao.BaseDao;
+import com.ocs.dynamo.dao.Keyset;
 import com.ocs.dynamo.dao.Pageable;
 import com.ocs.dynamo.dao.SortOrder;
 import com.ocs.dynamo.dao.SortOrders;
+import com.ocs.dynamo.dao.query.Aggregate;
+import com.ocs.dynamo.dao.query.AggregateResult;
+import com.ocs.dynamo.dao.query.CloseableIterator;
 import com.ocs.dynamo.dao.query.FetchJoinInformation;
 import com.ocs.dynamo.dao.query.JpaQueryBuilder;
 import com.ocs.dynamo.domain.AbstractEntity;
+import com.ocs.dynamo.domain.comparator.SortOrderComparator;
 import com.ocs.dynamo.exception.OCSRuntimeException;
 import com.ocs.dynamo.filter.Filter;
+import com.ocs.dynamo.utils.ClassUtils;
+import com.ocs.dynamo.utils.SystemPropertyUtils;
 
 /**
  * Base class for all DAO implementations
@@ -55,6 +69,11 @@ import com.ocs.dynamo.filter.Filter;
  */
 public abstract class BaseDaoImpl<ID, T extends AbstractEntity<ID>> implements BaseDao<ID, T> {
 
+	/**
+	 * The sizes of the buckets in which lists of IDs are split when fetching entities by their IDs
+	 */
+	private static final int[] ID_BUCKET_SIZES = { 16, 64, 256, 1024 };
+
 	@PersistenceContext
 	private EntityManager entityManager;
 
@@ -94,6 +113,27 @@ public abstract class BaseDaoImpl<ID, T extends AbstractEntity<ID>> implements B
 		}
 	}
 
+	@Override
+	public List<AggregateResult> aggregate(Filter filter, String[] groupBy, Aggregate... aggregates) {
+		String[] groups = groupBy == null ? new String[0] : groupBy;
+		CriteriaQuery<Tuple> cq = JpaQueryBuilder.createAggregateQuery(filter, entityManager, getEntityClass(),
+		        groups, aggregates);
+
+		List<AggregateResult> result = new ArrayList<>();
+		for (Tuple tuple : entityManager.createQuery(cq).getResultList()) {
+			Object[] groupValues = new Object[groups.length];
+			for (int i = 0; i < groupValues.length; i++) {
+				groupValues[i] = tuple.get(i);
+			}
+			Object[] aggregateValues = new Object[aggregates.length];
+			for (int i = 0; i < aggregateValues.length; i++) {
+				aggregateValues[i] = tuple.get(groups.length + i);
+			}
+			result.add(new AggregateResult(groupValues, aggregateValues));
+		}
+		return result;
+	}
+
 	@Override
 	public long count() {
 		return createQuery().count();
@@ -101,11 +141,18 @@ public abstract class BaseDaoImpl<ID, T extends AbstractEntity<ID>> implements B
 
 	@Override
 	public long count(Filter filter, boolean distinct) {
-		CriteriaQuery<Long> cq = JpaQueryBuilder.createCountQuery(entityManager, getEntityClass(), filter, distinct);
-		TypedQuery<Long> query = entityManager.createQuery(cq);
+		TypedQuery<Long> query = JpaQueryBuilder.prepareCountQuery(entityManager, getEntityClass(), filter, distinct);
 		return query.getSingleResult();
 	}
 
+	@Override
+	public long countUpTo(Filter filter, int limit) {
+		// retrieve at most limit + 1 IDs rather than counting all matching rows
+		TypedQuery<Tuple> query = JpaQueryBuilder.prepareIdQuery(entityManager, getEntityClass(), filter);
+		query.setMaxResults(limit + 1);
+		return query.getResultList().size();
+	}
+
 	@Override
 	public long count(Predicate predicate) {
 		JPAQuery query = createQuery();
@@ -157,6 +204,15 @@ public abstract class BaseDaoImpl<ID, T extends AbstractEntity<ID>> implements B
 		entityManager.remove(t);
 	}
 
+	@Override
+	public int deleteByFilter(Filter filter) {
+		entityManager.flush();
+		CriteriaDelete<T> cd = JpaQueryBuilder.createDeleteQuery(entityManager, getEntityClass(), filter);
+		int result = entityManager.createQuery(cd).executeUpdate();
+		entityManager.clear();
+		return result;
+	}
+
 	@Override
 	public List<T> fetch(Filter filter, FetchJoinInformation... joins) {
 		return fetch(filter, null, null, joins);
@@ -181,12 +237,10 @@ public abstract class BaseDaoImpl<ID, T extends AbstractEntity<ID>> implements B
 	 * @return
 	 */
 	private List<T> fetch(Filter filter, Pageable pageable, SortOrders sortOrders, FetchJoinInformation... joins) {
-		CriteriaQuery<T> cq = JpaQueryBuilder.createSelectQuery(filter, entityManager, getEntityClass(),
+		TypedQuery<T> query = JpaQueryBuilder.prepareSelectQuery(filter, entityManager, getEntityClass(),
 		        (joins == null || joins.length == 0) ? getFetchJoins() : joins,
 		        sortOrders == null ? null : sortOrders.toArray());
 
-		TypedQuery<T> query = entityManager.createQuery(cq);
-
 		if (pageable != null) {
 			query.setFirstResult(pageable.getOffset());
 			query.setMaxResults(pageable.getPageSize());
@@ -199,6 +253,48 @@ public abstract class BaseDaoImpl<ID, T extends AbstractEntity<ID>> implements B
 		return fetch(filter, null, sortOrders, joins);
 	}
 
+	@Override
+	public List<T> fetchAfter(Filter filter, Keyset keyset, int pageSize, SortOrders sortOrders,
+	        FetchJoinInformation... joins) {
+		CriteriaQuery<T> cq = JpaQueryBuilder.createKeysetQuery(filter, entityManager, getEntityClass(),
+		        (joins == null || joins.length == 0) ? getFetchJoins() : joins, keyset,
+		        sortOrders == null ? null : sortOrders.toArray());
+
+		TypedQuery<T> query = entityManager.createQuery(cq);
+		query.setMaxResults(pageSize);
+		return query.getResultList();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<T> fetchProjection(Filter filter, Pageable pageable, String... properties) {
+		String[] selected = JpaQueryBuilder.getPersistentProperties(entityManager, getEntityClass(), properties);
+		CriteriaQuery<Tuple> cq = JpaQueryBuilder.createProjectionQuery(filter, entityManager, getEntityClass(),
+		        selected, (pageable == null || pageable.getSortOrders() == null) ? null : pageable.getSortOrders()
+		                .toArray());
+
+		TypedQuery<Tuple> query = entityManager.createQuery(cq);
+		if (pageable != null) {
+			query.setFirstResult(pageable.getOffset());
+			query.setMaxResults(pageable.getPageSize());
+		}
+
+		// copy the selected values to new (detached) instances of the entity
+		List<T> result = new ArrayList<>();
+		for (Tuple tuple : query.getResultList()) {
+			T t = ClassUtils.instantiateClass(getEntityClass());
+			t.setId((ID) tuple.get(0));
+			for (int i = 0; i < selected.length; i++) {
+				Object value = tuple.get(i + 1);
+				if (value != null) {
+					ClassUtils.setFieldValue(t, selected[i], value);
+				}
+			}
+			result.add(t);
+		}
+		return result;
+	}
+
 	@Override
 	public T fetchById(ID id, FetchJoinInformation... joins) {
 		CriteriaQuery<T> cq = JpaQueryBuilder.createFetchSingleObjectQuery(entityManager, getEntityClass(), id,
@@ -213,9 +309,85 @@ public abstract class BaseDaoImpl<ID, T extends AbstractEntity<ID>> implements B
 			return new ArrayList<T>();
 		}
 
-		CriteriaQuery<T> cq = JpaQueryBuilder.createFetchQuery(entityManager, getEntityClass(), ids, sortOrders,
-		        (joins != null && joins.length > 0) ? joins : getFetchJoins());
+		FetchJoinInformation[] fetchJoins = (joins != null && joins.length > 0) ? joins : getFetchJoins();
+		boolean sorted = sortOrders != null && sortOrders.toArray().length > 0;
+		List<List<ID>> buckets = createIdBuckets(ids);
+		if (buckets.size() == 1 && sorted) {
+			// a single bucket can be sorted by the database
+			return fetchBucket(buckets.get(0), sortOrders, fetchJoins);
+		}
+
+		List<T> fetched = new ArrayList<>();
+		for (List<ID> bucket : buckets) {
+			fetched.addAll(fetchBucket(bucket, null, fetchJoins));
+		}
+
+		// merge the buckets back in the requested order
+		Map<ID, T> byId = new HashMap<>();
+		for (T t : fetched) {
+			byId.put(t.getId(), t);
+		}
+		List<T> result = new ArrayList<>(byId.size());
+		for (ID id : ids) {
+			T t = byId.remove(id);
+			if (t != null) {
+				result.add(t);
+			}
+		}
+		if (sorted) {
+			// the sorting was not applied across buckets (the sort is stable so ties keep the
+			// order of the IDs)
+			Collections.sort(result, new SortOrderComparator<T>(sortOrders));
+		}
+		return result;
+	}
+
+	/**
+	 * Splits a list of IDs into buckets. Every bucket is padded (by repeating its last ID) to one
+	 * of the fixed {@link #ID_BUCKET_SIZES}, so that only a handful of different statements are
+	 * ever sent to the database and the IN-list never exceeds the largest bucket size
+	 * 
+	 * @param ids
+	 *            the IDs
+	 * @return
+	 */
+	private List<List<ID>> createIdBuckets(List<ID> ids) {
+		int maxSize = ID_BUCKET_SIZES[ID_BUCKET_SIZES.length - 1];
+		List<List<ID>> buckets = new ArrayList<>();
+		for (int start = 0; start < ids.size(); start += maxSize) {
+			List<ID> bucket = new ArrayList<>(ids.subList(start, Math.min(ids.size(), start + maxSize)));
+			int size = maxSize;
+			for (int bucketSize : ID_BUCKET_SIZES) {
+				if (bucketSize >= bucket.size()) {
+					size = bucketSize;
+					break;
+				}
+			}
+			ID last = bucket.get(bucket.size() - 1);
+			while (bucket.size() < size) {
+				bucket.add(last);
+			}
+			buckets.add(bucket);
+		}
+		return buckets;
+	}
+
+	/**
+	 * Fetches the entities for a single bucket of IDs
+	 * 
+	 * @param ids
+	 *            the (padded) IDs
+	 * @param sortOrders
+	 *            the sort orders
+	 * @param joins
+	 *            the fetch joins
+	 * @return
+	 */
+	private List<T> fetchBucket(List<ID> ids, SortOrders sortOrders, FetchJoinInformation[] joins) {
+		CriteriaQuery<T> cq = JpaQueryBuilder.createParameterizedFetchQuery(entityManager, getEntityClass(),
+		        sortOrders, joins);
 		TypedQuery<T> query = entityManager.createQuery(cq);
+		query.setParameter(JpaQueryBuilder.IDS_PARAMETER, ids);
 		return query.getResultList();
 	}
 
@@ -252,11 +424,9 @@ public abstract class BaseDaoImpl<ID, T extends AbstractEntity<ID>> implements B
 	 */
 	private List<T> find(Filter filter, Pageable pageable, SortOrders sortOrders) {
 		// Create select and where clauses
-		CriteriaQuery<T> cq = JpaQueryBuilder.createSelectQuery(filter, entityManager, getEntityClass(), null,
+		TypedQuery<T> query = JpaQueryBuilder.prepareSelectQuery(filter, entityManager, getEntityClass(), null,
 		        sortOrders == null ? null : sortOrders.toArray());
 
-		TypedQuery<T> query = entityManager.createQuery(cq);
-
 		// Limit results
 		if (pageable != null) {
 			query.setFirstResult(pageable.getOffset());
@@ -345,9 +515,7 @@ public abstract class BaseDaoImpl<ID, T extends AbstractEntity<ID>> implements B
 	@Override
 	@SuppressWarnings("unchecked")
 	public List<ID> findIds(Filter filter, SortOrder... sortOrders) {
-		CriteriaQuery<Tuple> cq = JpaQueryBuilder.createIdQuery(entityManager, getEntityClass(), filter, sortOrders);
-
-		TypedQuery<Tuple> query = entityManager.createQuery(cq);
+		TypedQuery<Tuple> query = JpaQueryBuilder.prepareIdQuery(entityManager, getEntityClass(), filter, sortOrders);
 		List<Tuple> temp = query.getResultList();
 		List<ID> result = new ArrayList<>();
 
@@ -397,6 +565,15 @@ public abstract class BaseDaoImpl<ID, T extends AbstractEntity<ID>> implements B
 		return list != null && !list.isEmpty() ? list.get(0) : null;
 	}
 
+	@Override
+	public int updateByFilter(Filter filter, Map<String, Object> values) {
+		entityManager.flush();
+		CriteriaUpdate<T> cu = JpaQueryBuilder.createUpdateQuery(entityManager, getEntityClass(), filter, values);
+		int result = entityManager.createQuery(cu).executeUpdate();
+		entityManager.clear();
+		return result;
+	}
+
 	@Override
 	public List<T> save(List<T> list) {
 		for (int i = 0; i < list.size(); i++) {
@@ -407,6 +584,79 @@ public abstract class BaseDaoImpl<ID, T extends AbstractEntity<ID>> implements B
 		return list;
 	}
 
+	@Override
+	public CloseableIterator<T> stream(Filter filter, SortOrders sortOrders, int fetchSize,
+	        FetchJoinInformation... joins) {
+		CriteriaQuery<T> cq = JpaQueryBuilder.createSelectQuery(filter, entityManager, getEntityClass(),
+		        (joins == null || joins.length == 0) ? getFetchJoins() : joins,
+		        sortOrders == null ? null : sortOrders.toArray());
+
+		org.hibernate.Query query = entityManager.createQuery(cq).unwrap(org.hibernate.Query.class);
+		query.setFetchSize(fetchSize);
+		query.setReadOnly(true);
+		query.setCacheable(false);
+		return new ScrollableResultsIterator<>(query.scroll(ScrollMode.FORWARD_ONLY), entityManager, fetchSize);
+	}
+
+	@Override
+	public List<T> save(List<T> list, int batchSize) {
+		int size = resolveBatchSize(batchSize);
+		List<T> result = new ArrayList<>(list.size());
+		for (int i = 0; i < list.size(); i++) {
+			result.add(save(list.get(i)));
+			if ((i + 1) % size == 0) {
+				flushAndClear();
+			}
+		}
+		entityManager.flush();
+		return result;
+	}
+
+	@Override
+	public List<ID> saveAndReturnIds(List<T> list, int batchSize) {
+		int size = resolveBatchSize(batchSize);
+		List<ID> result = new ArrayList<>(list.size());
+		List<T> batch = new ArrayList<>();
+		for (T t : list) {
+			batch.add(save(t));
+			if (batch.size() == size) {
+				saveBatch(batch, result);
+			}
+		}
+		saveBatch(batch, result);
+		return result;
+	}
+
+	/**
+	 * Returns the batch size to use for a bulk save
+	 * 
+	 * @param batchSize
+	 *            the requested batch size
+	 * @return the requested batch size, or the default batch size (see the "ocs.default.batch.size"
+	 *         system property) if the requested size is not positive
+	 */
+	private int resolveBatchSize(int batchSize) {
+		return batchSize > 0 ? batchSize : SystemPropertyUtils.getDefaultBatchSize();
+	}
+
+	/**
+	 * Flushes the current batch of saved entities, collects their (database assigned) IDs and then
+	 * clears the persistence context
+	 * 
+	 * @param batch
+	 *            the entities in the current batch
+	 * @param ids
+	 *            the list to add the IDs to
+	 */
+	private void saveBatch(List<T> batch, List<ID> ids) {
+		entityManager.flush();
+		for (T t : batch) {
+			ids.add(t.getId());
+		}
+		entityManager.clear();
+		batch.clear();
+	}
+
 	@Override
 	public T save(T t) {
 		if (t.getId() == null) {
@@ -0,0 +1,110 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.dao.impl;
+
+import java.util.NoSuchElementException;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.ScrollableResults;
+
+import com.ocs.dynamo.dao.query.CloseableIterator;
+
+/**
+ * Iterator that wraps a forward-only Hibernate cursor. The persistence context is cleared every
+ * time a certain number of rows has been processed, so that the memory usage stays constant no
+ * matter how many rows are traversed
+ *
+ * @author bas.rutten
+ * @param <T>
+ *            the type of the entity
+ */
+class ScrollableResultsIterator<T> implements CloseableIterator<T> {
+
+	private final ScrollableResults results;
+
+	private final EntityManager entityManager;
+
+	private final int clearInterval;
+
+	// the number of rows returned since the persistence context was last cleared
+	private int processed;
+
+	// whether the cursor has been moved to the next row but this row has not been returned yet
+	private boolean advanced;
+
+	private boolean hasNext;
+
+	private boolean closed;
+
+	/**
+	 * Constructor
+	 *
+	 * @param results
+	 *            the cursor
+	 * @param entityManager
+	 *            the entity manager that owns the cursor
+	 * @param clearInterval
+	 *            the number of rows after which to clear the persistence context
+	 */
+	ScrollableResultsIterator(ScrollableResults results, EntityManager entityManager, int clearInterval) {
+		this.results = results;
+		this.entityManager = entityManager;
+		this.clearInterval = clearInterval;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (closed) {
+			return false;
+		}
+		if (!advanced) {
+			// the previous row has been processed at this point, so it is safe to clear
+			if (clearInterval > 0 && processed >= clearInterval) {
+				entityManager.clear();
+				processed = 0;
+			}
+			hasNext = results.next();
+			advanced = true;
+			if (!hasNext) {
+				close();
+			}
+		}
+		return hasNext;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		advanced = false;
+		processed++;
+		return (T) results.get(0);
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void close() {
+		if (!closed) {
+			closed = true;
+			results.close();
+		}
+	}
+}
@@ -13,15 +13,33 @@
  */
 package com.ocs.dynamo.dao.impl;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.hibernate.SQLQuery;
+import org.hibernate.Session;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
 
 import com.mysema.query.jpa.impl.JPAQuery;
 import com.mysema.query.types.path.EntityPathBase;
 import com.ocs.dynamo.dao.TreeDao;
 import com.ocs.dynamo.domain.AbstractEntity;
+import com.ocs.dynamo.utils.ClassUtils;
+import com.ocs.dynamo.utils.SystemPropertyUtils;
 
 /**
- * Base implementation of a DAO with tree support
+ * Base implementation of a DAO with tree support. Subtrees are retrieved either by using a
+ * recursive query (when the "ocs.tree.recursive.query" system property is set) or by querying the
+ * tree level by level, in which case the number of queries depends on the depth of the tree
+ * rather than on the number of nodes
  * 
  * @author bas.rutten
  * @param <ID>
@@ -32,6 +50,16 @@ import com.ocs.dynamo.domain.AbstractEntity;
 public abstract class TreeDaoImpl<ID, T extends AbstractEntity<ID>> extends BaseDaoImpl<ID, T>
         implements TreeDao<ID, T> {
 
+    /**
+     * The maximum number of parents in a single "in" clause
+     */
+    private static final int MAX_PARENTS_PER_QUERY = 1000;
+
+    /**
+     * The maximum number of levels that a recursive query descends (or ascends)
+     */
+    private static final int MAX_RECURSION_DEPTH = 1000;
+
     /**
      * @return the QueryDSL path to the parent
      */
@@ -51,4 +79,169 @@ public abstract class TreeDaoImpl<ID, T extends AbstractEntity<ID>> extends Base
         return query.list(getDslRoot());
     }
 
+    @Override
+    public List<T> findByParents(List<T> parents) {
+        List<T> result = new ArrayList<>();
+        for (int i = 0; i < parents.size(); i += MAX_PARENTS_PER_QUERY) {
+            JPAQuery query = createQuery();
+            query.where(getParentPath().in(parents.subList(i, Math.min(parents.size(), i + MAX_PARENTS_PER_QUERY))));
+            result.addAll(query.list(getDslRoot()));
+        }
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<T> findAncestors(T node) {
+        if (useRecursiveQuery()) {
+            return fetchInOrder(executeRecursiveQuery(node, false));
+        }
+
+        // the parent is eagerly fetched, so navigating upwards normally does not cause any queries
+        String parentProperty = getParentPath().getMetadata().getName();
+        List<T> result = new ArrayList<>();
+        Set<ID> visited = new HashSet<>();
+        visited.add(node.getId());
+        T current = (T) ClassUtils.getFieldValue(node, parentProperty);
+        while (current != null && visited.add(current.getId())) {
+            result.add(current);
+            current = (T) ClassUtils.getFieldValue(current, parentProperty);
+        }
+        return result;
+    }
+
+    @Override
+    public List<T> findSubtree(T root) {
+        if (useRecursiveQuery()) {
+            return fetchInOrder(executeRecursiveQuery(root, true));
+        }
+
+        List<T> result = new ArrayList<>();
+        Set<ID> visited = new HashSet<>();
+        visited.add(root.getId());
+        List<T> level = findByParent(root);
+        while (!level.isEmpty()) {
+            List<T> next = new ArrayList<>();
+            for (T t : level) {
+                // protect against cycles in corrupt data
+                if (visited.add(t.getId())) {
+                    next.add(t);
+                }
+            }
+            result.addAll(next);
+            level = next.isEmpty() ? next : findByParents(next);
+        }
+        return result;
+    }
+
+    /**
+     * Executes a recursive query (common table expression) that returns the IDs of either the
+     * descendants or the ancestors of a node, ordered by their distance to the node. To protect
+     * against cycles in corrupt data, the recursion stops after {@link #MAX_RECURSION_DEPTH}
+     * levels and every node is returned only once
+     * 
+     * @param node
+     *            the node
+     * @param descendants
+     *            whether to retrieve the descendants (true) or the ancestors (false)
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    private List<ID> executeRecursiveQuery(T node, boolean descendants) {
+        Session session = getEntityManager().unwrap(Session.class);
+        AbstractEntityPersister persister = (AbstractEntityPersister) session.getSessionFactory().getClassMetadata(
+                getEntityClass());
+        String table = persister.getTableName();
+        String id = persister.getIdentifierColumnNames()[0];
+        String parent = persister.getPropertyColumnNames(getParentPath().getMetadata().getName())[0];
+
+        // H2 ignores parameters inside a recursive query, so there the ID is included in the
+        // statement directly
+        boolean inline = isH2(session);
+        String value = inline ? toLiteral(node.getId()) : "?";
+
+        String sql;
+        if (descendants) {
+            sql = "with recursive tree_nodes (node_id, node_level) as (select " + id + ", 1 from " + table
+                    + " where " + parent + " = " + value + " union all select t." + id + ", n.node_level + 1 from " + table
+                    + " t join tree_nodes n on t." + parent + " = n.node_id where n.node_level < "
+                    + MAX_RECURSION_DEPTH + ")";
+        } else {
+            sql = "with recursive tree_nodes (node_id, node_parent, node_level) as (select t." + id + ", t." + parent
+                    + ", 1 from " + table + " t join " + table + " c on c." + parent + " = t." + id + " where c."
+                    + id + " = " + value + " union all select t." + id + ", t." + parent + ", n.node_level + 1 from " + table
+                    + " t join tree_nodes n on t." + id + " = n.node_parent where n.node_level < "
+                    + MAX_RECURSION_DEPTH + ")";
+        }
+        sql += " select node_id from tree_nodes order by node_level";
+
+        SQLQuery query = session.createSQLQuery(sql).addScalar("node_id", persister.getIdentifierType());
+        if (!inline) {
+            query.setParameter(0, node.getId());
+        }
+
+        // a node that is part of a cycle shows up more than once (and may even include the node
+        // itself) - only its first occurrence (closest to the node) is kept
+        Set<ID> ids = new LinkedHashSet<>(query.list());
+        ids.remove(node.getId());
+        return new ArrayList<>(ids);
+    }
+
+    /**
+     * Indicates whether the database is H2
+     * 
+     * @param session
+     *            the Hibernate session
+     * @return
+     */
+    private static boolean isH2(Session session) {
+        return ((SessionFactoryImplementor) session.getSessionFactory()).getDialect() instanceof H2Dialect;
+    }
+
+    /**
+     * Converts an ID to an SQL literal
+     * 
+     * @param id
+     *            the ID
+     * @return
+     */
+    private static String toLiteral(Object id) {
+        if (id instanceof Number) {
+            // cannot contain any SQL
+            return id.toString();
+        }
+        return "'" + StringUtils.replace(id.toString(), "'", "''") + "'";
+    }
+
+    /**
+     * Fetches the entities with the provided IDs, in the order of the IDs
+     * 
+     * @param ids
+     *            the IDs
+     * @return
+     */
+    private List<T> fetchInOrder(List<ID> ids) {
+        Map<ID, T> byId = new HashMap<>();
+        for (T t : fetchByIds(ids, null)) {
+            byId.put(t.getId(), t);
+        }
+        List<T> result = new ArrayList<>(byId.size());
+        for (ID id : ids) {
+            T t = byId.get(id);
+            if (t != null) {
+                result.add(t);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Indicates whether subtrees and ancestors are retrieved using a recursive query. Override
+     * this method to enable or disable recursive queries for a specific DAO
+     * 
+     * @return
+     */
+    protected boolean useRecursiveQuery() {
+        return SystemPropertyUtils.useRecursiveTreeQueries();
+    }
 }
@@ -0,0 +1,42 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.dao.monitor;
+
+import java.io.Serializable;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.type.Type;
+
+/**
+ * Hibernate interceptor that reports every statement that is prepared and every entity that is
+ * loaded to the StatementMonitor. Register it using the "hibernate.ejb.interceptor" property
+ * 
+ * @author bas.rutten
+ */
+public class StatementCountingInterceptor extends EmptyInterceptor {
+
+	private static final long serialVersionUID = -4006434541925305578L;
+
+	@Override
+	public boolean onLoad(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		StatementMonitor.registerEntityLoad();
+		return false;
+	}
+
+	@Override
+	public String onPrepareStatement(String sql) {
+		StatementMonitor.registerStatement(sql);
+		return sql;
+	}
+}
@@ -0,0 +1,155 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.dao.monitor;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.log4j.Logger;
+
+import com.ocs.dynamo.utils.SystemPropertyUtils;
+
+/**
+ * Keeps track of the SQL statements that are executed by the current thread. A scope (e.g. a
+ * service call or a request) is started by calling <code>begin</code> and ended by calling
+ * <code>end</code>. Scopes can be nested - a statement is registered with every scope that is
+ * active at the time of execution.
+ * 
+ * The statements themselves are reported by the StatementCountingInterceptor, which must be
+ * registered with Hibernate using the "hibernate.ejb.interceptor" property. Scopes are started
+ * by the StatementMonitorAspect (for service calls, when enabled) and the StatementMonitorFilter (for requests)
+ * 
+ * @author bas.rutten
+ */
+public final class StatementMonitor {
+
+	private static final Logger LOG = Logger.getLogger(StatementMonitor.class);
+
+	private static final ThreadLocal<Deque<StatementStatistics>> SCOPES = new ThreadLocal<Deque<StatementStatistics>>() {
+
+		@Override
+		protected Deque<StatementStatistics> initialValue() {
+			return new ArrayDeque<>();
+		}
+	};
+
+	private static final List<StatementListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+	private StatementMonitor() {
+		// hidden constructor
+	}
+
+	/**
+	 * Registers a listener that is notified when a scope ends
+	 * 
+	 * @param listener
+	 *            the listener
+	 */
+	public static void addListener(StatementListener listener) {
+		LISTENERS.add(listener);
+	}
+
+	/**
+	 * Starts a new scope for the current thread
+	 * 
+	 * @param name
+	 *            the name of the scope (e.g. the name of the service method)
+	 */
+	public static void begin(String name) {
+		Deque<StatementStatistics> scopes = SCOPES.get();
+		scopes.push(new StatementStatistics(name, !scopes.isEmpty(), SystemPropertyUtils
+		        .getStatementRepeatThreshold()));
+	}
+
+	/**
+	 * Ends the innermost scope of the current thread and notifies the listeners. Repeated
+	 * statements are logged for the outermost scope
+	 * 
+	 * @return the statistics of the scope, or <code>null</code> if no scope was active
+	 */
+	public static StatementStatistics end() {
+		Deque<StatementStatistics> scopes = SCOPES.get();
+		StatementStatistics statistics = scopes.poll();
+		if (statistics == null) {
+			return null;
+		}
+		if (scopes.isEmpty()) {
+			SCOPES.remove();
+		}
+		statistics.close();
+
+		if (!statistics.isNested() && statistics.hasRepeatedStatements()) {
+			for (Entry<String, Integer> entry : statistics.getRepeatedStatements().entrySet()) {
+				LOG.warn("Possible N+1 select problem in " + statistics.getName() + ": statement executed "
+				        + entry.getValue() + " times: " + entry.getKey());
+			}
+		}
+		if (LOG.isDebugEnabled()) {
+			LOG.debug(statistics);
+		}
+
+		for (StatementListener listener : LISTENERS) {
+			try {
+				listener.scopeCompleted(statistics);
+			} catch (RuntimeException ex) {
+				// a misbehaving listener must not break the service call
+				LOG.error(ex.getMessage(), ex);
+			}
+		}
+		return statistics;
+	}
+
+	/**
+	 * Returns the statistics of the innermost active scope of the current thread
+	 * 
+	 * @return the statistics, or <code>null</code> if no scope is active
+	 */
+	public static StatementStatistics getCurrent() {
+		return SCOPES.get().peek();
+	}
+
+	/**
+	 * Registers that an entity has been loaded
+	 */
+	public static void registerEntityLoad() {
+		for (StatementStatistics statistics : SCOPES.get()) {
+			statistics.registerEntityLoad();
+		}
+	}
+
+	/**
+	 * Registers the execution of a statement
+	 * 
+	 * @param sql
+	 *            the SQL of the statement
+	 */
+	public static void registerStatement(String sql) {
+		for (StatementStatistics statistics : SCOPES.get()) {
+			statistics.registerStatement(sql);
+		}
+	}
+
+	/**
+	 * Removes a listener
+	 * 
+	 * @param listener
+	 *            the listener to remove
+	 */
+	public static void removeListener(StatementListener listener) {
+		LISTENERS.remove(listener);
+	}
+}
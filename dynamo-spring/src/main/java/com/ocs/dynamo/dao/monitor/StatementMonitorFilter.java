@@ -0,0 +1,57 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.dao.monitor;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Servlet filter that monitors the SQL statements that are executed while handling a single
+ * (Vaadin) request. Add it to the web.xml or register it with the servlet context in front of the
+ * Vaadin servlet
+ * 
+ * @author bas.rutten
+ */
+public class StatementMonitorFilter implements Filter {
+
+	@Override
+	public void destroy() {
+		// nothing to do
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException,
+	        ServletException {
+		String name = request instanceof HttpServletRequest ? ((HttpServletRequest) request).getRequestURI()
+		        : request.getRemoteAddr();
+		StatementMonitor.begin(name);
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			StatementMonitor.end();
+		}
+	}
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+		// nothing to do
+	}
+}
@@ -0,0 +1,171 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.dao.monitor;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The SQL statements that were executed during a single service call or request. Identical
+ * statements are counted separately, so that statements that are executed over and over again
+ * (typically the lazy loading of a relation for every row in a table) can be detected
+ * 
+ * @author bas.rutten
+ */
+public class StatementStatistics {
+
+	/**
+	 * The maximum number of distinct statements that are tracked
+	 */
+	private static final int MAX_DISTINCT_STATEMENTS = 500;
+
+	private final String name;
+
+	private final boolean nested;
+
+	private final int repeatThreshold;
+
+	private final long start = System.nanoTime();
+
+	private long end;
+
+	private int statementCount;
+
+	private int entityCount;
+
+	private final Map<String, Integer> statements = new LinkedHashMap<>();
+
+	/**
+	 * Constructor
+	 * 
+	 * @param name
+	 *            the name of the service call or request
+	 * @param nested
+	 *            whether the scope is nested inside another scope
+	 * @param repeatThreshold
+	 *            the number of times a statement may be executed before it is reported
+	 */
+	StatementStatistics(String name, boolean nested, int repeatThreshold) {
+		this.name = name;
+		this.nested = nested;
+		this.repeatThreshold = repeatThreshold;
+	}
+
+	/**
+	 * Marks the end of the scope
+	 */
+	void close() {
+		end = System.nanoTime();
+	}
+
+	/**
+	 * Registers that an entity has been loaded
+	 */
+	void registerEntityLoad() {
+		entityCount++;
+	}
+
+	/**
+	 * Registers the execution of a statement
+	 * 
+	 * @param sql
+	 *            the SQL of the statement
+	 */
+	void registerStatement(String sql) {
+		statementCount++;
+		Integer count = statements.get(sql);
+		if (count != null) {
+			statements.put(sql, count + 1);
+		} else if (statements.size() < MAX_DISTINCT_STATEMENTS) {
+			statements.put(sql, 1);
+		}
+	}
+
+	/**
+	 * Returns the elapsed time in milliseconds. For a scope that has not ended yet, this is the
+	 * time that has elapsed so far
+	 * 
+	 * @return
+	 */
+	public long getElapsedMillis() {
+		return TimeUnit.NANOSECONDS.toMillis((end == 0 ? System.nanoTime() : end) - start);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the statements that have been executed at least as often as the repeat threshold,
+	 * along with the number of executions
+	 * 
+	 * @return
+	 */
+	public Map<String, Integer> getRepeatedStatements() {
+		Map<String, Integer> result = new LinkedHashMap<>();
+		for (Entry<String, Integer> entry : statements.entrySet()) {
+			if (entry.getValue() >= repeatThreshold) {
+				result.put(entry.getKey(), entry.getValue());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of entities that have been loaded. This is not necessarily the number of
+	 * rows that were read, since a single row can contain several entities (fetch joins) and
+	 * projections and scalar queries do not load any entities
+	 * 
+	 * @return
+	 */
+	public int getEntityCount() {
+		return entityCount;
+	}
+
+	public int getStatementCount() {
+		return statementCount;
+	}
+
+	/**
+	 * Returns the number of executions per distinct statement
+	 * 
+	 * @return
+	 */
+	public Map<String, Integer> getStatements() {
+		return Collections.unmodifiableMap(statements);
+	}
+
+	/**
+	 * Indicates whether any statement has been executed at least as often as the repeat threshold,
+	 * which is usually a sign of an N+1 select problem
+	 * 
+	 * @return
+	 */
+	public boolean hasRepeatedStatements() {
+		return !getRepeatedStatements().isEmpty();
+	}
+
+	public boolean isNested() {
+		return nested;
+	}
+
+	@Override
+	public String toString() {
+		return name + ": " + statementCount + " statement(s), " + entityCount + " entities loaded, " + getElapsedMillis()
+		        + " ms";
+	}
+}
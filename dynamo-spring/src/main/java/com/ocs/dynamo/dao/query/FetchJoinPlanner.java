@@ -0,0 +1,163 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.dao.query;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import com.ocs.dynamo.domain.model.AttributeModel;
+import com.ocs.dynamo.domain.model.AttributeType;
+import com.ocs.dynamo.domain.model.EntityModel;
+
+/**
+ * Derives the fetch joins that are needed to display a screen from the entity model, so that
+ * displaying the screen does not lead to a cascade of lazy loads. Single valued relations
+ * (MASTER attributes) are always fetched. Collections (DETAIL attributes) are only fetched when
+ * the query is not paged, since Hibernate would otherwise perform the paging in memory - use
+ * batch fetching (e.g. the "hibernate.default_batch_fetch_size" setting) for those instead
+ * 
+ * @author bas.rutten
+ */
+public final class FetchJoinPlanner {
+
+	private static final Logger LOG = Logger.getLogger(FetchJoinPlanner.class);
+
+	private FetchJoinPlanner() {
+		// hidden constructor
+	}
+
+	/**
+	 * Adds the fetch join for a MASTER attribute, and for the relation that is used to display the
+	 * related entity (when its display property is itself a relation)
+	 * 
+	 * @param am
+	 *            the attribute model
+	 * @param prefix
+	 *            the path of the parent attribute
+	 * @param result
+	 *            the set of joins to add to
+	 */
+	private static void addMasterJoin(AttributeModel am, String prefix, Set<FetchJoinInformation> result) {
+		String path = prefix + am.getName();
+		result.add(new FetchJoinInformation(path));
+
+		EntityModel<?> nested = am.getNestedEntityModel();
+		if (nested != null && nested.getDisplayProperty() != null) {
+			AttributeModel display = nested.getAttributeModel(nested.getDisplayProperty());
+			if (display != null && AttributeType.MASTER.equals(display.getAttributeType())) {
+				result.add(new FetchJoinInformation(path + "." + display.getName()));
+			}
+		}
+	}
+
+	/**
+	 * Removes the joins that are already covered by a join on a nested property (e.g. "a" when
+	 * "a.b" is also present), since every join on a nested property also fetches its parents
+	 * 
+	 * @param joins
+	 *            the joins
+	 * @return
+	 */
+	private static FetchJoinInformation[] removeCoveredJoins(Set<FetchJoinInformation> joins) {
+		List<FetchJoinInformation> result = new ArrayList<>();
+		for (FetchJoinInformation join : joins) {
+			boolean covered = false;
+			for (FetchJoinInformation other : joins) {
+				if (other.getProperty().startsWith(join.getProperty() + ".")) {
+					covered = true;
+					break;
+				}
+			}
+			if (!covered) {
+				result.add(join);
+			}
+		}
+		return result.toArray(new FetchJoinInformation[0]);
+	}
+
+	/**
+	 * Creates the fetch joins for a screen that displays a single entity (e.g. an edit form). All
+	 * visible relations are fetched. Since Hibernate cannot fetch more than one list ("bag") at
+	 * once, only the first visible list-valued collection is fetched
+	 * 
+	 * @param model
+	 *            the entity model
+	 * @return
+	 */
+	public static FetchJoinInformation[] createDetailJoins(EntityModel<?> model) {
+		Set<FetchJoinInformation> result = new LinkedHashSet<>();
+		boolean bagFetched = false;
+		for (AttributeModel am : model.getAttributeModels()) {
+			if (!am.isVisible()) {
+				continue;
+			}
+			if (AttributeType.MASTER.equals(am.getAttributeType())) {
+				addMasterJoin(am, "", result);
+			} else if (AttributeType.DETAIL.equals(am.getAttributeType())) {
+				if (List.class.isAssignableFrom(am.getType())) {
+					if (bagFetched) {
+						LOG.warn("Not fetching " + model.getEntityClass().getSimpleName() + "." + am.getName()
+						        + " since only one list can be fetched at a time - consider batch fetching");
+						continue;
+					}
+					bagFetched = true;
+				}
+				result.add(new FetchJoinInformation(am.getName()));
+			}
+		}
+		return removeCoveredJoins(result);
+	}
+
+	/**
+	 * Creates the fetch joins for a table that displays the attributes that are visible in the
+	 * table
+	 * 
+	 * @param model
+	 *            the entity model
+	 * @param paged
+	 *            whether the table retrieves its data in pages
+	 * @return
+	 */
+	public static FetchJoinInformation[] createTableJoins(EntityModel<?> model, boolean paged) {
+		Set<FetchJoinInformation> result = new LinkedHashSet<>();
+		boolean bagFetched = false;
+		for (AttributeModel am : model.getAttributeModels()) {
+			if (!am.isVisibleInTable()) {
+				continue;
+			}
+			if (AttributeType.MASTER.equals(am.getAttributeType())) {
+				addMasterJoin(am, "", result);
+			} else if (AttributeType.DETAIL.equals(am.getAttributeType())) {
+				if (paged) {
+					// fetching a collection together with paging forces Hibernate to retrieve all
+					// rows and perform the paging in memory
+					LOG.warn("Not fetching collection " + model.getEntityClass().getSimpleName() + "."
+					        + am.getName() + " in a paged query since this would force in-memory pagination"
+					        + " - consider batch fetching");
+				} else if (List.class.isAssignableFrom(am.getType()) && bagFetched) {
+					LOG.warn("Not fetching " + model.getEntityClass().getSimpleName() + "." + am.getName()
+					        + " since only one list can be fetched at a time - consider batch fetching");
+				} else {
+					bagFetched |= List.class.isAssignableFrom(am.getType());
+					result.add(new FetchJoinInformation(am.getName()));
+				}
+			}
+		}
+		return removeCoveredJoins(result);
+	}
+}
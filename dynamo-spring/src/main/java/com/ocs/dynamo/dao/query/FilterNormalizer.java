@@ -0,0 +1,161 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.dao.query;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.ocs.dynamo.filter.AbstractJunctionFilter;
+import com.ocs.dynamo.filter.And;
+import com.ocs.dynamo.filter.Compare;
+import com.ocs.dynamo.filter.Filter;
+import com.ocs.dynamo.filter.In;
+import com.ocs.dynamo.filter.Not;
+import com.ocs.dynamo.filter.Or;
+
+/**
+ * Rewrites a filter into an equivalent but simpler filter before it is translated to a query. The
+ * following transformations are applied:
+ * <ul>
+ * <li>nested "And" and "Or" filters are flattened into a single (n-ary) filter</li>
+ * <li>empty junctions (which do not restrict the result) are removed</li>
+ * <li>junctions that contain a single filter are replaced by that filter</li>
+ * <li>duplicate filters within a junction are removed</li>
+ * <li>"Equal" and "In" filters on the same property within an "Or" are merged into a single "In"
+ * filter</li>
+ * <li>double negations are removed</li>
+ * </ul>
+ * The provided filter is never modified. Normalizing a normalized filter returns an identical
+ * filter, so the result can safely be used to construct the query cache key
+ *
+ * @author bas.rutten
+ */
+final class FilterNormalizer {
+
+	private FilterNormalizer() {
+		// hidden constructor
+	}
+
+	/**
+	 * Adds the (normalized) children of a junction to a set, flattening any nested junctions of
+	 * the same type
+	 *
+	 * @param junction
+	 *            the junction
+	 * @param result
+	 *            the set to add the children to
+	 */
+	private static void collectChildren(AbstractJunctionFilter junction, Set<Filter> result) {
+		for (Filter child : junction.getFilters()) {
+			Filter normalized = normalize(child);
+			if (normalized != null && normalized.getClass().equals(junction.getClass())) {
+				result.addAll(((AbstractJunctionFilter) normalized).getFilters());
+			} else if (normalized != null) {
+				result.add(normalized);
+			}
+		}
+	}
+
+	/**
+	 * Merges all "Equal" and "In" filters on the same property into a single "In" filter. The
+	 * merged filter takes the place of the first filter on that property
+	 *
+	 * @param filters
+	 *            the children of an "Or" filter
+	 * @return
+	 */
+	private static List<Filter> mergeEquals(Set<Filter> filters) {
+		Map<String, Set<Object>> valuesByProperty = new LinkedHashMap<>();
+		Map<String, Integer> countByProperty = new LinkedHashMap<>();
+		for (Filter filter : filters) {
+			String property = getMergeableProperty(filter);
+			if (property != null) {
+				Set<Object> values = valuesByProperty.get(property);
+				if (values == null) {
+					values = new LinkedHashSet<>();
+					valuesByProperty.put(property, values);
+					countByProperty.put(property, 0);
+				}
+				if (filter instanceof In) {
+					values.addAll(((In) filter).getValues());
+				} else {
+					values.add(JpaQueryBuilder.normalizeCompareValue(((Compare) filter).getValue()));
+				}
+				countByProperty.put(property, countByProperty.get(property) + 1);
+			}
+		}
+
+		List<Filter> result = new ArrayList<>(filters.size());
+		for (Filter filter : filters) {
+			String property = getMergeableProperty(filter);
+			if (property == null || countByProperty.get(property) == 1) {
+				result.add(filter);
+			} else if (valuesByProperty.containsKey(property)) {
+				result.add(new In(property, new ArrayList<>(valuesByProperty.remove(property))));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the property of a filter that can be merged into an "In" filter
+	 *
+	 * @param filter
+	 *            the filter
+	 * @return the property, or <code>null</code> if the filter cannot be merged
+	 */
+	private static String getMergeableProperty(Filter filter) {
+		if (filter instanceof Compare.Equal && ((Compare) filter).getValue() != null) {
+			return ((Compare) filter).getPropertyId();
+		} else if (filter instanceof In && ((In) filter).getValues() != null && !((In) filter).getValues().isEmpty()) {
+			return ((In) filter).getPropertyId();
+		}
+		return null;
+	}
+
+	/**
+	 * Normalizes a filter
+	 *
+	 * @param filter
+	 *            the filter to normalize
+	 * @return the normalized filter, or <code>null</code> if the filter does not restrict the
+	 *         result at all
+	 */
+	static Filter normalize(Filter filter) {
+		if (filter instanceof And || filter instanceof Or) {
+			Set<Filter> children = new LinkedHashSet<>();
+			collectChildren((AbstractJunctionFilter) filter, children);
+
+			List<Filter> result = filter instanceof Or ? mergeEquals(children) : new ArrayList<>(children);
+			if (result.isEmpty()) {
+				return null;
+			} else if (result.size() == 1) {
+				return result.get(0);
+			}
+			return filter instanceof And ? new And(result) : new Or(result);
+		} else if (filter instanceof Not) {
+			Filter original = ((Not) filter).getFilter();
+			Filter child = normalize(original);
+			if (child instanceof Not) {
+				return ((Not) child).getFilter();
+			}
+			return child == original || child == null ? filter : new Not(child);
+		}
+		return filter;
+	}
+}
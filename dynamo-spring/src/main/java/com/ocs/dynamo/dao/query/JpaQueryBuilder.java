@@ -14,24 +14,37 @@
 package com.ocs.dynamo.dao.query;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaDelete;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
 import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.Fetch;
 import javax.persistence.criteria.FetchParent;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.ParameterExpression;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
 import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
 
 import com.google.common.collect.Lists;
 import com.ocs.dynamo.constants.DynamoConstants;
+import com.ocs.dynamo.dao.Keyset;
 import com.ocs.dynamo.dao.SortOrder;
 import com.ocs.dynamo.dao.SortOrders;
+import com.ocs.dynamo.exception.OCSRuntimeException;
+import com.ocs.dynamo.filter.AbstractJunctionFilter;
 import com.ocs.dynamo.filter.And;
 import com.ocs.dynamo.filter.Between;
 import com.ocs.dynamo.filter.Compare;
@@ -43,6 +56,10 @@ import com.ocs.dynamo.filter.Like;
 import com.ocs.dynamo.filter.Modulo;
 import com.ocs.dynamo.filter.Not;
 import com.ocs.dynamo.filter.Or;
+import com.ocs.dynamo.filter.PropertyFilter;
+import com.ocs.dynamo.utils.ClassUtils;
+import com.ocs.dynamo.utils.PropertyPath;
+import com.ocs.dynamo.utils.SystemPropertyUtils;
 
 /**
  * @author patrick.deenen
@@ -50,6 +67,24 @@ import com.ocs.dynamo.filter.Or;
  */
 public final class JpaQueryBuilder {
 
+	/**
+	 * The name of the parameter that holds the IDs in a parameterized fetch query
+	 */
+	public static final String IDS_PARAMETER = "ids";
+
+	private static final JpaQueryCache QUERY_CACHE = new JpaQueryCache(SystemPropertyUtils.getQueryCacheSize());
+
+	/**
+	 * Callback for constructing a criteria query, either with literal values or with parameters
+	 * 
+	 * @param <R>
+	 *            the result type of the query
+	 */
+	private interface CriteriaCallback<R> {
+
+		CriteriaQuery<R> create(QueryParameters parameters);
+	}
+
 	private JpaQueryBuilder() {
 		// hidden private constructor
 	}
@@ -71,8 +106,7 @@ public final class JpaQueryBuilder {
 
 				// Support nested properties
 				FetchParent<T, ?> fetch = root;
-				String[] ppath = s.getProperty().split("\\.");
-				for (String prop : ppath) {
+				for (String prop : PropertyPath.of(s.getProperty()).getSegments()) {
 					fetch = fetch.fetch(prop, s.getJoinType());
 				}
 
@@ -120,21 +154,26 @@ public final class JpaQueryBuilder {
 	 *            the root object
 	 * @param filter
 	 *            the "And" filter
+	 * @param parameters
+	 *            the parameters to use for the values - <code>null</code> to use literals
 	 * @return
 	 */
-	private static Predicate createAndPredicate(CriteriaBuilder builder, Root<?> root, Filter filter) {
+	private static Predicate createAndPredicate(CriteriaBuilder builder, Root<?> root, Filter filter,
+	        QueryParameters parameters) {
 		And and = (And) filter;
-		List<Filter> filters = new ArrayList<>(and.getFilters());
+		List<Predicate> predicates = new ArrayList<>(and.getFilters().size());
+		for (Filter child : and.getFilters()) {
+			Predicate next = createPredicate(child, builder, root, parameters);
+			if (next != null) {
+				predicates.add(next);
+			}
+		}
 
 		Predicate predicate = null;
-		if (!filters.isEmpty()) {
-			predicate = createPredicate(filters.remove(0), builder, root);
-			while (!filters.isEmpty()) {
-				Predicate next = createPredicate(filters.remove(0), builder, root);
-				if (next != null) {
-					predicate = builder.and(predicate, next);
-				}
-			}
+		if (predicates.size() == 1) {
+			predicate = predicates.get(0);
+		} else if (!predicates.isEmpty()) {
+			predicate = builder.and(predicates.toArray(new Predicate[predicates.size()]));
 		}
 		return predicate;
 	}
@@ -145,32 +184,32 @@ public final class JpaQueryBuilder {
 	 * @param builder
 	 * @param root
 	 * @param filter
+	 * @param parameters
 	 * @return
 	 */
 	@SuppressWarnings({ "rawtypes", "unchecked" })
-	private static Predicate createComparePredicate(CriteriaBuilder builder, Root<?> root, Filter filter) {
+	private static Predicate createComparePredicate(CriteriaBuilder builder, Root<?> root, Filter filter,
+	        QueryParameters parameters) {
 		Compare compare = (Compare) filter;
 		Expression<Comparable> property = (Expression) getPropertyPath(root, compare.getPropertyId());
-		Object value = compare.getValue();
-
-		// number representation may contain locale specific separators.
-		// Here, we remove
-		// those and make sure a period is used in all cases
-		if (value instanceof String) {
+		Object value = normalizeCompareValue(compare.getValue());
 
-			// strip out any "%" sign from decimal fields
-			value = ((String) value).replace('%', ' ').trim();
-
-			String str = (String) value;
-			if (str != null
-			        && org.apache.commons.lang.StringUtils.isNumeric(str.replaceAll("\\.", "").replaceAll(",", ""))) {
-				// first remove all periods (which may be used as
-				// thousand
-				// separators), then replace comma by period
-				str = str.replaceAll("\\.", "").replace(',', '.');
-				value = str;
+		if (parameters != null) {
+			Expression<Comparable> param = (Expression) parameters.create(builder, property, value);
+			switch (compare.getOperation()) {
+			case EQUAL:
+				return builder.equal(property, param);
+			case GREATER:
+				return builder.greaterThan(property, param);
+			case GREATER_OR_EQUAL:
+				return builder.greaterThanOrEqualTo(property, param);
+			case LESS:
+				return builder.lessThan(property, param);
+			case LESS_OR_EQUAL:
+				return builder.lessThanOrEqualTo(property, param);
+			default:
+				return null;
 			}
-
 		}
 
 		switch (compare.getOperation()) {
@@ -189,6 +228,92 @@ public final class JpaQueryBuilder {
 		}
 	}
 
+	/**
+	 * Creates a query that calculates aggregates, grouped by the provided properties. The tuples
+	 * that are returned contain the values of the group by properties, followed by the values of
+	 * the aggregates
+	 * 
+	 * @param filter
+	 *            the filter to apply
+	 * @param entityManager
+	 *            the entity manager
+	 * @param entityClass
+	 *            the entity class
+	 * @param groupBy
+	 *            the (possibly nested) properties to group by
+	 * @param aggregates
+	 *            the aggregates to calculate
+	 * @return
+	 */
+	public static <T> CriteriaQuery<Tuple> createAggregateQuery(Filter filter, EntityManager entityManager,
+	        Class<T> entityClass, String[] groupBy, Aggregate... aggregates) {
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Tuple> cq = builder.createTupleQuery();
+		Root<T> root = cq.from(entityClass);
+
+		List<Selection<?>> selections = new ArrayList<>();
+		List<Expression<?>> groups = new ArrayList<>();
+		List<javax.persistence.criteria.Order> orders = new ArrayList<>();
+		for (String property : groupBy) {
+			Path<Object> path = getPropertyPath(root, property);
+			selections.add(path);
+			groups.add(path);
+			orders.add(builder.asc(path));
+		}
+		for (Aggregate aggregate : aggregates) {
+			selections.add(createAggregateExpression(builder, root, aggregate));
+		}
+		cq.multiselect(selections);
+
+		Predicate p = createPredicate(filter, builder, root);
+		if (p != null) {
+			cq.where(p);
+		}
+		if (!groups.isEmpty()) {
+			cq.groupBy(groups);
+			cq.orderBy(orders);
+		}
+		return cq;
+	}
+
+	/**
+	 * Creates the expression for a single aggregate
+	 * 
+	 * @param builder
+	 *            the criteria builder
+	 * @param root
+	 *            the query root
+	 * @param aggregate
+	 *            the aggregate
+	 * @return
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Expression<?> createAggregateExpression(CriteriaBuilder builder, Root<?> root, Aggregate aggregate) {
+		if (aggregate.getProperty() == null) {
+			if (Aggregate.Function.COUNT.equals(aggregate.getFunction())) {
+				return builder.count(root);
+			}
+			throw new OCSRuntimeException("No property specified for aggregate " + aggregate);
+		}
+
+		Path path = getPropertyPath(root, aggregate.getProperty());
+		switch (aggregate.getFunction()) {
+		case COUNT:
+			return builder.count(path);
+		case SUM:
+			return builder.sum(path);
+		case AVG:
+			return builder.avg(path);
+		case MIN:
+			// least/greatest also support non-numeric values such as dates
+			return builder.least(path);
+		case MAX:
+			return builder.greatest(path);
+		default:
+			throw new OCSRuntimeException("Unsupported aggregate function " + aggregate.getFunction());
+		}
+	}
+
 	/**
 	 * Creates a query that performs a count
 	 * 
@@ -204,19 +329,48 @@ public final class JpaQueryBuilder {
 	 */
 	public static <T> CriteriaQuery<Long> createCountQuery(EntityManager entityManager, Class<T> entityClass,
 	        Filter filter, boolean distinct) {
+		return createCountQuery(entityManager, entityClass, filter, distinct, null);
+	}
+
+	private static <T> CriteriaQuery<Long> createCountQuery(EntityManager entityManager, Class<T> entityClass,
+	        Filter filter, boolean distinct, QueryParameters parameters) {
 		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
 		CriteriaQuery<Long> cq = builder.createQuery(Long.class);
 		Root<T> root = cq.from(entityClass);
 
 		cq.select(distinct ? builder.countDistinct(root) : builder.count(root));
 
-		Predicate p = createPredicate(filter, builder, root);
+		Predicate p = createPredicate(FilterNormalizer.normalize(filter), builder, root, parameters);
 		if (p != null) {
 			cq.where(p);
 		}
 		return cq;
 	}
 
+	/**
+	 * Creates a bulk delete statement that removes all entities that match the provided filter
+	 * 
+	 * @param entityManager
+	 *            the entity manager
+	 * @param entityClass
+	 *            the entity class
+	 * @param filter
+	 *            the filter to apply
+	 * @return
+	 */
+	public static <T> CriteriaDelete<T> createDeleteQuery(EntityManager entityManager, Class<T> entityClass,
+	        Filter filter) {
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaDelete<T> cd = builder.createCriteriaDelete(entityClass);
+		Root<T> root = cd.from(entityClass);
+
+		Predicate p = createPredicate(filter, builder, root);
+		if (p != null) {
+			cd.where(p);
+		}
+		return cd;
+	}
+
 	/**
 	 * Creates a query that fetches objects based on their IDs
 	 * 
@@ -247,6 +401,38 @@ public final class JpaQueryBuilder {
 		return addSortInformation(builder, cq, root, sortOrders == null ? null : sortOrders.toArray());
 	}
 
+	/**
+	 * Create a query for fetching entities by their IDs. Unlike
+	 * {@link #createFetchQuery(EntityManager, Class, List, SortOrders, FetchJoinInformation[])},
+	 * the IDs are not included in the query as literals but must be bound to the
+	 * {@link #IDS_PARAMETER} parameter, so the statement text only depends on the number of IDs
+	 * 
+	 * @param entityManager
+	 *            the entity manager
+	 * @param entityClass
+	 *            the entity class
+	 * @param sortOrders
+	 *            the sort orders
+	 * @param fetchJoins
+	 *            the desired fetch joins
+	 * @return
+	 */
+	@SuppressWarnings("rawtypes")
+	public static <T> CriteriaQuery<T> createParameterizedFetchQuery(EntityManager entityManager,
+	        Class<T> entityClass, SortOrders sortOrders, FetchJoinInformation[] fetchJoins) {
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<T> cq = builder.createQuery(entityClass);
+		Root<T> root = cq.from(entityClass);
+
+		boolean distinct = addFetchJoinInformation(root, fetchJoins);
+
+		ParameterExpression<Collection> ids = builder.parameter(Collection.class, IDS_PARAMETER);
+		cq.where(root.get(DynamoConstants.ID).in(ids));
+		cq.distinct(distinct);
+
+		return addSortInformation(builder, cq, root, sortOrders == null ? null : sortOrders.toArray());
+	}
+
 	/**
 	 * Create a query for fetching a single object
 	 * 
@@ -287,6 +473,11 @@ public final class JpaQueryBuilder {
 	 */
 	public static <T> CriteriaQuery<Tuple> createIdQuery(EntityManager entityManager, Class<T> entityClass,
 	        Filter filter, SortOrder... sortOrders) {
+		return createIdQuery(entityManager, entityClass, filter, null, sortOrders);
+	}
+
+	private static <T> CriteriaQuery<Tuple> createIdQuery(EntityManager entityManager, Class<T> entityClass,
+	        Filter filter, QueryParameters parameters, SortOrder... sortOrders) {
 		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
 		CriteriaQuery<Tuple> cq = builder.createTupleQuery();
 		Root<T> root = cq.from(entityClass);
@@ -295,7 +486,7 @@ public final class JpaQueryBuilder {
 		cq.multiselect(root.get(DynamoConstants.ID));
 
 		// Set where clause
-		Predicate p = createPredicate(filter, builder, root);
+		Predicate p = createPredicate(FilterNormalizer.normalize(filter), builder, root, parameters);
 		if (p != null) {
 			cq.where(p);
 		}
@@ -306,14 +497,18 @@ public final class JpaQueryBuilder {
 	}
 
 	@SuppressWarnings({ "rawtypes", "unchecked" })
-	private static Predicate createLikePredicate(CriteriaBuilder builder, Root<?> root, Filter filter) {
+	private static Predicate createLikePredicate(CriteriaBuilder builder, Root<?> root, Filter filter,
+	        QueryParameters parameters) {
 		Like like = (Like) filter;
-		if (like.isCaseSensitive()) {
-			return builder.like((Expression) getPropertyPath(root, like.getPropertyId()), like.getValue());
-		} else {
-			return builder.like(builder.lower((Expression) getPropertyPath(root, like.getPropertyId())), like
-			        .getValue().toLowerCase());
+		Expression property = getPropertyPath(root, like.getPropertyId());
+		if (!like.isCaseSensitive()) {
+			property = builder.lower(property);
 		}
+		String value = getLikeValue(like);
+		if (parameters != null) {
+			return builder.like(property, (Expression<String>) parameters.create(builder, property, value));
+		}
+		return builder.like(property, value);
 	}
 
 	/**
@@ -321,40 +516,100 @@ public final class JpaQueryBuilder {
 	 * 
 	 * @param builder
 	 * @param filter
+	 * @param parameters
 	 * @return
 	 */
 	@SuppressWarnings({ "rawtypes", "unchecked" })
-	private static Predicate createModuloPredicate(CriteriaBuilder builder, Root<?> root, Filter filter) {
+	private static Predicate createModuloPredicate(CriteriaBuilder builder, Root<?> root, Filter filter,
+	        QueryParameters parameters) {
 		Modulo modulo = (Modulo) filter;
+		Expression<Integer> mod;
 		if (modulo.getModExpression() != null) {
-			// compare to a literal expression
-			return builder.equal(builder.mod((Expression) getPropertyPath(root, modulo.getPropertyId()),
-			        (Expression) getPropertyPath(root, modulo.getModExpression())), modulo.getResult());
-		} else {
 			// compare to a property
-			return builder.equal(builder.mod((Expression) getPropertyPath(root, modulo.getPropertyId()), modulo
-			        .getModValue().intValue()), modulo.getResult());
+			mod = builder.mod((Expression) getPropertyPath(root, modulo.getPropertyId()),
+			        (Expression) getPropertyPath(root, modulo.getModExpression()));
+		} else if (parameters != null) {
+			mod = builder.mod((Expression) getPropertyPath(root, modulo.getPropertyId()),
+			        (Expression<Integer>) parameters.create(builder, Integer.class, modulo.getModValue().intValue()));
+		} else {
+			// compare to a literal expression
+			mod = builder.mod((Expression) getPropertyPath(root, modulo.getPropertyId()), modulo.getModValue()
+			        .intValue());
+		}
+
+		if (parameters != null) {
+			return builder.equal(mod, parameters.create(builder, mod, modulo.getResult()));
 		}
+		return builder.equal(mod, modulo.getResult());
 	}
 
-	private static Predicate createOrPredicate(CriteriaBuilder builder, Root<?> root, Filter filter) {
+	private static Predicate createOrPredicate(CriteriaBuilder builder, Root<?> root, Filter filter,
+	        QueryParameters parameters) {
 		Or or = (Or) filter;
-		List<Filter> filters = new ArrayList<>(or.getFilters());
+		List<Predicate> predicates = new ArrayList<>(or.getFilters().size());
+		for (Filter child : or.getFilters()) {
+			Predicate next = createPredicate(child, builder, root, parameters);
+			if (next != null) {
+				predicates.add(next);
+			}
+		}
 
 		Predicate predicate = null;
-		if (!filters.isEmpty()) {
-			predicate = createPredicate(filters.remove(0), builder, root);
-			while (!filters.isEmpty()) {
-				Predicate next = createPredicate(filters.remove(0), builder, root);
-				if (next != null) {
-					predicate = builder.or(predicate, next);
-				}
-			}
+		if (predicates.size() == 1) {
+			predicate = predicates.get(0);
+		} else if (!predicates.isEmpty()) {
+			predicate = builder.or(predicates.toArray(new Predicate[predicates.size()]));
 		}
 
 		return predicate;
 	}
 
+	/**
+	 * Creates a query that selects only the ID and the provided properties of the entities that
+	 * match a filter. Associations are selected using a left outer join, so that entities for
+	 * which the association is empty are still returned
+	 * 
+	 * @param filter
+	 *            the filter
+	 * @param entityManager
+	 *            the entity manager
+	 * @param entityClass
+	 *            the entity class
+	 * @param properties
+	 *            the names of the (top level, single valued, persistent) properties to select -
+	 *            see {@link #getPersistentProperties(EntityManager, Class, String...)}
+	 * @param sortOrders
+	 *            the sorting information
+	 * @return
+	 */
+	public static <T> CriteriaQuery<Tuple> createProjectionQuery(Filter filter, EntityManager entityManager,
+	        Class<T> entityClass, String[] properties, SortOrder... sortOrders) {
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Tuple> cq = builder.createTupleQuery();
+		Root<T> root = cq.from(entityClass);
+
+		List<Selection<?>> selections = new ArrayList<>();
+		selections.add(root.get(DynamoConstants.ID));
+		for (String property : properties) {
+			Attribute<? super T, ?> attribute = root.getModel().getAttribute(property);
+			if (attribute.isCollection()) {
+				throw new OCSRuntimeException("Collection property " + property
+				        + " cannot be included in a projection");
+			} else if (attribute.isAssociation()) {
+				selections.add(root.join(property, JoinType.LEFT));
+			} else {
+				selections.add(root.get(property));
+			}
+		}
+		cq.multiselect(selections);
+
+		Predicate p = createPredicate(filter, builder, root);
+		if (p != null) {
+			cq.where(p);
+		}
+		return addSortInformation(builder, cq, root, sortOrders);
+	}
+
 	/**
 	 * Creates a JPA2 predicate based on a Filter
 	 * 
@@ -366,44 +621,78 @@ public final class JpaQueryBuilder {
 	 *            the entity root
 	 * @return
 	 */
-	@SuppressWarnings({ "unchecked", "rawtypes" })
 	private static Predicate createPredicate(Filter filter, CriteriaBuilder builder, Root<?> root) {
+		return createPredicate(FilterNormalizer.normalize(filter), builder, root, null);
+	}
+
+	/**
+	 * Creates a JPA2 predicate based on a Filter. When parameters are provided, every value is
+	 * bound as a named parameter rather than as a literal, in the same order in which
+	 * {@link #appendShape} collects the values
+	 * 
+	 * @param filter
+	 *            the filter
+	 * @param builder
+	 *            the criteria builder
+	 * @param root
+	 *            the entity root
+	 * @param parameters
+	 *            the parameters to use for the values - <code>null</code> to use literals
+	 * @return
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Predicate createPredicate(Filter filter, CriteriaBuilder builder, Root<?> root,
+	        QueryParameters parameters) {
 		if (filter == null) {
 			return null;
 		}
 
 		if (filter instanceof And) {
-			return createAndPredicate(builder, root, filter);
+			return createAndPredicate(builder, root, filter, parameters);
 		} else if (filter instanceof Or) {
-			return createOrPredicate(builder, root, filter);
+			return createOrPredicate(builder, root, filter, parameters);
 		} else if (filter instanceof Not) {
 			Not not = (Not) filter;
-			return builder.not(createPredicate(not.getFilter(), builder, root));
+			return builder.not(createPredicate(not.getFilter(), builder, root, parameters));
 		} else if (filter instanceof Between) {
 			Between between = (Between) filter;
 			Expression property = getPropertyPath(root, between.getPropertyId());
+			if (parameters != null) {
+				return builder.between(property, (Expression) parameters.create(builder, property,
+				        between.getStartValue()), (Expression) parameters.create(builder, property,
+				        between.getEndValue()));
+			}
 			return builder.between(property, (Comparable) between.getStartValue(), (Comparable) between.getEndValue());
 		} else if (filter instanceof Compare) {
-			return createComparePredicate(builder, root, filter);
+			return createComparePredicate(builder, root, filter, parameters);
 		} else if (filter instanceof IsNull) {
 			IsNull isNull = (IsNull) filter;
 			return builder.isNull(getPropertyPath(root, isNull.getPropertyId()));
 		} else if (filter instanceof Like) {
-			return createLikePredicate(builder, root, filter);
+			return createLikePredicate(builder, root, filter, parameters);
 		} else if (filter instanceof Contains) {
 			Contains contains = (Contains) filter;
-			return builder.isMember(contains.getValue(), (Expression) getPropertyPath(root, contains.getPropertyId()));
+			Expression collection = getPropertyPath(root, contains.getPropertyId());
+			if (parameters != null) {
+				return builder.isMember(
+				        (Expression) parameters.create(builder, contains.getValue().getClass(), contains.getValue()),
+				        collection);
+			}
+			return builder.isMember(contains.getValue(), collection);
 		} else if (filter instanceof In) {
 			In in = (In) filter;
-			if (in.getValues() != null && !in.getValues().isEmpty()) {
-				Expression exp = getPropertyPath(root, in.getPropertyId());
-				return exp.in(in.getValues());
-			} else {
-				Expression exp = getPropertyPath(root, in.getPropertyId());
-				return exp.in(Lists.newArrayList(-1));
+			Expression exp = getPropertyPath(root, in.getPropertyId());
+			Collection<?> values = getInValues(in);
+			if (parameters != null) {
+				List<Expression<?>> params = new ArrayList<>();
+				for (Object value : values) {
+					params.add(parameters.create(builder, exp, value));
+				}
+				return exp.in(params.toArray(new Expression[0]));
 			}
+			return exp.in(values);
 		} else if (filter instanceof Modulo) {
-			return createModuloPredicate(builder, root, filter);
+			return createModuloPredicate(builder, root, filter, parameters);
 		}
 
 		throw new UnsupportedOperationException("Filter: " + filter.getClass().getName() + " not recognized");
@@ -424,6 +713,12 @@ public final class JpaQueryBuilder {
 	 */
 	public static <T> CriteriaQuery<T> createSelectQuery(Filter filter, EntityManager entityManager,
 	        Class<T> entityClass, FetchJoinInformation[] fetchJoins, SortOrder... sortOrders) {
+		return createSelectQuery(filter, entityManager, entityClass, fetchJoins, null, sortOrders);
+	}
+
+	private static <T> CriteriaQuery<T> createSelectQuery(Filter filter, EntityManager entityManager,
+	        Class<T> entityClass, FetchJoinInformation[] fetchJoins, QueryParameters parameters,
+	        SortOrder... sortOrders) {
 		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
 		CriteriaQuery<T> cq = builder.createQuery(entityClass);
 		Root<T> root = cq.from(entityClass);
@@ -432,7 +727,7 @@ public final class JpaQueryBuilder {
 		cq.select(root);
 		cq.distinct(distinct);
 
-		Predicate p = createPredicate(filter, builder, root);
+		Predicate p = createPredicate(FilterNormalizer.normalize(filter), builder, root, parameters);
 		if (p != null) {
 			cq.where(p);
 		}
@@ -440,6 +735,101 @@ public final class JpaQueryBuilder {
 		return addSortInformation(builder, cq, root, sortOrders);
 	}
 
+	/**
+	 * Creates a query that selects the page of entities that directly follows the provided keyset
+	 * ("seek" pagination). The ID is added as the last sort order (unless it already is) so that
+	 * the ordering is total. The sort properties should not contain <code>null</code> values, since these cannot be
+	 * compared
+	 *
+	 * @param filter
+	 *            the filter
+	 * @param entityManager
+	 *            the entity manager
+	 * @param entityClass
+	 *            the entity class
+	 * @param fetchJoins
+	 *            the fetch joins to include
+	 * @param keyset
+	 *            the position of the last row of the previous page - <code>null</code> for the
+	 *            first page
+	 * @param sortOrders
+	 *            the sorting information
+	 * @return
+	 */
+	public static <T> CriteriaQuery<T> createKeysetQuery(Filter filter, EntityManager entityManager,
+	        Class<T> entityClass, FetchJoinInformation[] fetchJoins, Keyset keyset, SortOrder... sortOrders) {
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<T> cq = builder.createQuery(entityClass);
+		Root<T> root = cq.from(entityClass);
+
+		boolean distinct = addFetchJoinInformation(root, fetchJoins);
+		cq.select(root);
+		cq.distinct(distinct);
+
+		List<SortOrder> orders = new ArrayList<>();
+		if (sortOrders != null) {
+			for (SortOrder order : sortOrders) {
+				if (order != null) {
+					orders.add(order);
+				}
+			}
+		}
+		if (orders.isEmpty() || !DynamoConstants.ID.equals(orders.get(orders.size() - 1).getProperty())) {
+			orders.add(new SortOrder(DynamoConstants.ID));
+		}
+
+		Predicate p = createPredicate(filter, builder, root);
+		if (keyset != null) {
+			Predicate seek = createKeysetPredicate(builder, root, keyset, orders);
+			p = p == null ? seek : builder.and(p, seek);
+		}
+		if (p != null) {
+			cq.where(p);
+		}
+
+		return addSortInformation(builder, cq, root, orders.toArray(new SortOrder[0]));
+	}
+
+	/**
+	 * Creates the predicate that selects all rows that come after the provided keyset, i.e.
+	 * <code>(s1 > v1) or (s1 = v1 and s2 > v2) or ... or (s1 = v1 and ... and id > lastId)</code>,
+	 * where "&gt;" is replaced by "&lt;" for descending sort orders
+	 *
+	 * @param builder
+	 *            the criteria builder
+	 * @param root
+	 *            the query root
+	 * @param keyset
+	 *            the keyset
+	 * @param orders
+	 *            the sort orders, with the ID as the last one
+	 * @return
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static Predicate createKeysetPredicate(CriteriaBuilder builder, Root<?> root, Keyset keyset,
+	        List<SortOrder> orders) {
+		Object[] values = keyset.getValues();
+		if (values.length != orders.size() - 1) {
+			throw new OCSRuntimeException("Keyset does not match the number of sort orders");
+		}
+
+		List<Predicate> alternatives = new ArrayList<>();
+		List<Predicate> equalities = new ArrayList<>();
+		for (int i = 0; i < orders.size(); i++) {
+			SortOrder order = orders.get(i);
+			Expression<Comparable> property = (Expression) getPropertyPath(root, order.getProperty());
+			Comparable value = (Comparable) (i < values.length ? values[i] : keyset.getId());
+
+			Predicate next = order.isAscending() ? builder.greaterThan(property, value) : builder.lessThan(property,
+			        value);
+			List<Predicate> parts = new ArrayList<>(equalities);
+			parts.add(next);
+			alternatives.add(builder.and(parts.toArray(new Predicate[0])));
+			equalities.add(builder.equal(property, value));
+		}
+		return builder.or(alternatives.toArray(new Predicate[0]));
+	}
+
 	/**
 	 * Creates a query to fetch an object based on a value of a unique property
 	 * 
@@ -504,6 +894,396 @@ public final class JpaQueryBuilder {
 		return cq;
 	}
 
+	/**
+	 * Creates a bulk update statement that sets the provided property values on all entities that
+	 * match the provided filter
+	 * 
+	 * @param entityManager
+	 *            the entity manager
+	 * @param entityClass
+	 *            the entity class
+	 * @param filter
+	 *            the filter to apply
+	 * @param values
+	 *            the new property values, keyed by property name
+	 * @return
+	 */
+	public static <T> CriteriaUpdate<T> createUpdateQuery(EntityManager entityManager, Class<T> entityClass,
+	        Filter filter, Map<String, Object> values) {
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaUpdate<T> cu = builder.createCriteriaUpdate(entityClass);
+		Root<T> root = cu.from(entityClass);
+
+		for (Entry<String, Object> entry : values.entrySet()) {
+			cu.set(getPropertyPath(root, entry.getKey()), entry.getValue());
+		}
+
+		Predicate p = createPredicate(filter, builder, root);
+		if (p != null) {
+			cu.where(p);
+		}
+		return cu;
+	}
+
+	/**
+	 * Appends the structure of a filter (but not its values) to the provided cache key, and
+	 * collects the values in the order in which {@link #createPredicate} binds them as parameters
+	 * 
+	 * @param filter
+	 *            the filter
+	 * @param key
+	 *            the cache key that is being constructed
+	 * @param values
+	 *            the list to add the values to
+	 * @return <code>false</code> if the filter cannot be translated to a cacheable query (e.g.
+	 *         because it contains <code>null</code> values)
+	 */
+	private static boolean appendShape(Filter filter, StringBuilder key, List<Object> values) {
+		if (filter == null) {
+			key.append("-");
+			return true;
+		}
+
+		key.append(filter.getClass().getSimpleName()).append('(');
+		if (filter instanceof PropertyFilter) {
+			key.append(((PropertyFilter) filter).getPropertyId()).append(';');
+		}
+
+		boolean result = true;
+		if (filter instanceof And || filter instanceof Or) {
+			for (Filter child : ((AbstractJunctionFilter) filter).getFilters()) {
+				result &= appendShape(child, key, values);
+			}
+		} else if (filter instanceof Not) {
+			result = appendShape(((Not) filter).getFilter(), key, values);
+		} else if (filter instanceof Between) {
+			Between between = (Between) filter;
+			result = appendValue(between.getStartValue(), key, values)
+			        && appendValue(between.getEndValue(), key, values);
+		} else if (filter instanceof Compare) {
+			result = appendValue(normalizeCompareValue(((Compare) filter).getValue()), key, values);
+		} else if (filter instanceof Like) {
+			Like like = (Like) filter;
+			key.append(like.isCaseSensitive()).append(';');
+			result = appendValue(getLikeValue(like), key, values);
+		} else if (filter instanceof Contains) {
+			result = appendValue(((Contains) filter).getValue(), key, values);
+		} else if (filter instanceof In) {
+			for (Object value : getInValues((In) filter)) {
+				result &= appendValue(value, key, values);
+			}
+		} else if (filter instanceof Modulo) {
+			Modulo modulo = (Modulo) filter;
+			if (modulo.getModExpression() != null) {
+				key.append(modulo.getModExpression()).append(';');
+			} else {
+				result = appendValue(modulo.getModValue().intValue(), key, values);
+			}
+			result &= appendValue(modulo.getResult(), key, values);
+		} else if (!(filter instanceof IsNull)) {
+			return false;
+		}
+		key.append(')');
+		return result;
+	}
+
+	/**
+	 * Adds the type of a value to a cache key and adds the value itself to the list of parameter
+	 * values
+	 * 
+	 * @param value
+	 * @param key
+	 * @param values
+	 * @return <code>false</code> if the value is <code>null</code> (which cannot be bound)
+	 */
+	private static boolean appendValue(Object value, StringBuilder key, List<Object> values) {
+		if (value == null) {
+			return false;
+		}
+		key.append(value.getClass().getName()).append(';');
+		values.add(value);
+		return true;
+	}
+
+	/**
+	 * Constructs the key under which a query is stored in the query cache
+	 * 
+	 * @param type
+	 *            the type of query (select, count etc.)
+	 * @param entityClass
+	 *            the entity class
+	 * @param filter
+	 *            the filter
+	 * @param fetchJoins
+	 *            the fetch joins
+	 * @param sortOrders
+	 *            the sort orders
+	 * @param values
+	 *            the list to which to add the parameter values
+	 * @return the key, or <code>null</code> if the query cannot be cached
+	 */
+	private static String createCacheKey(String type, Class<?> entityClass, Filter filter,
+	        FetchJoinInformation[] fetchJoins, SortOrder[] sortOrders, List<Object> values) {
+		StringBuilder key = new StringBuilder(type).append(':').append(entityClass.getName()).append(':');
+		if (!appendShape(filter, key, values)) {
+			return null;
+		}
+		key.append(':');
+		if (fetchJoins != null) {
+			for (FetchJoinInformation join : fetchJoins) {
+				key.append(join.getProperty()).append(' ').append(join.getJoinType()).append(';');
+			}
+		}
+		key.append(':');
+		if (sortOrders != null) {
+			for (SortOrder order : sortOrders) {
+				key.append(order.getProperty()).append(' ').append(order.getDirection()).append(';');
+			}
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Returns the values of an "In" filter - an empty collection is replaced by a dummy value so
+	 * that the query remains valid
+	 * 
+	 * @param in
+	 *            the filter
+	 * @return
+	 */
+	private static Collection<?> getInValues(In in) {
+		if (in.getValues() != null && !in.getValues().isEmpty()) {
+			return in.getValues();
+		}
+		return Lists.newArrayList(-1);
+	}
+
+	/**
+	 * Returns the value to use in a "like" predicate
+	 * 
+	 * @param like
+	 *            the filter
+	 * @return
+	 */
+	private static String getLikeValue(Like like) {
+		return like.isCaseSensitive() ? like.getValue() : like.getValue().toLowerCase();
+	}
+
+	/**
+	 * Returns the subset of the provided properties that are persistent attributes of the entity
+	 * class. Other properties (e.g. properties that are calculated from other properties, or are
+	 * marked as transient) cannot be selected by a query and are skipped. A property that does not
+	 * exist at all is rejected
+	 * 
+	 * @param entityManager
+	 *            the entity manager
+	 * @param entityClass
+	 *            the entity class
+	 * @param properties
+	 *            the names of the (top level) properties
+	 * @return
+	 */
+	public static <T> String[] getPersistentProperties(EntityManager entityManager, Class<T> entityClass,
+	        String... properties) {
+		ManagedType<T> type = entityManager.getMetamodel().managedType(entityClass);
+		List<String> result = new ArrayList<>();
+		for (String property : properties) {
+			boolean persistent = false;
+			for (Attribute<? super T, ?> attribute : type.getAttributes()) {
+				if (attribute.getName().equals(property)) {
+					persistent = true;
+					break;
+				}
+			}
+			if (persistent) {
+				result.add(property);
+			} else if (ClassUtils.getField(entityClass, property) == null
+			        && ClassUtils.getGetterMethod(entityClass, property) == null) {
+				throw new OCSRuntimeException("Entity " + entityClass.getSimpleName() + " has no property "
+				        + property);
+			}
+		}
+		return result.toArray(new String[0]);
+	}
+
+	/**
+	 * Returns the cache used for storing the translated versions of the select, count and ID
+	 * queries
+	 * 
+	 * @return
+	 */
+	public static JpaQueryCache getQueryCache() {
+		return QUERY_CACHE;
+	}
+
+	/**
+	 * Normalizes the value of a "Compare" filter - number representations may contain locale
+	 * specific separators. Here, we remove those and make sure a period is used in all cases
+	 * 
+	 * @param value
+	 *            the value
+	 * @return
+	 */
+	static Object normalizeCompareValue(Object value) {
+		if (value instanceof String) {
+
+			// strip out any "%" sign from decimal fields
+			String str = ((String) value).replace('%', ' ').trim();
+			if (org.apache.commons.lang.StringUtils.isNumeric(str.replaceAll("\\.", "").replaceAll(",", ""))) {
+				// first remove all periods (which may be used as thousand
+				// separators), then replace comma by period
+				str = str.replaceAll("\\.", "").replace(',', '.');
+			}
+			return str;
+		}
+		return value;
+	}
+
+	/**
+	 * Creates a query (using the query cache when possible). On a cache hit, the criteria query is
+	 * not constructed at all - the previously rendered JPQL is reused and only the values are
+	 * bound
+	 * 
+	 * @param entityManager
+	 *            the entity manager
+	 * @param resultClass
+	 *            the result class
+	 * @param key
+	 *            the cache key, or <code>null</code> if the query is not cacheable
+	 * @param values
+	 *            the parameter values
+	 * @param callback
+	 *            the callback used to construct the criteria query
+	 * @return
+	 */
+	private static <R> TypedQuery<R> prepareQuery(EntityManager entityManager, Class<R> resultClass, String key,
+	        List<Object> values, CriteriaCallback<R> callback) {
+		if (key == null || !QUERY_CACHE.isEnabled()) {
+			return entityManager.createQuery(callback.create(null));
+		}
+
+		String jpql = QUERY_CACHE.get(key);
+		if (jpql != null) {
+			if (JpaQueryCache.NOT_CACHEABLE.equals(jpql)) {
+				return entityManager.createQuery(callback.create(null));
+			}
+			return bindParameters(entityManager.createQuery(jpql, resultClass), values);
+		}
+
+		QueryParameters parameters = new QueryParameters();
+		CriteriaQuery<R> cq = callback.create(parameters);
+		TypedQuery<R> query = entityManager.createQuery(cq);
+		if (!parameters.isValid() || parameters.getCount() != values.size()
+		        || query.getParameters().size() != values.size()) {
+			// parameters could not be used - for instance because the value types do not
+			// match the property types
+			QUERY_CACHE.put(key, JpaQueryCache.NOT_CACHEABLE);
+			return entityManager.createQuery(callback.create(null));
+		}
+
+		QUERY_CACHE.put(key, query.unwrap(org.hibernate.Query.class).getQueryString());
+		return bindParameters(query, values);
+	}
+
+	/**
+	 * Binds the parameter values to a query
+	 * 
+	 * @param query
+	 * @param values
+	 * @return
+	 */
+	private static <R> TypedQuery<R> bindParameters(TypedQuery<R> query, List<Object> values) {
+		for (int i = 0; i < values.size(); i++) {
+			query.setParameter(QueryParameters.getName(i), values.get(i));
+		}
+		return query;
+	}
+
+	/**
+	 * Creates a count query, using the query cache when possible
+	 * 
+	 * @param entityManager
+	 *            the entity manager
+	 * @param entityClass
+	 *            the entity class
+	 * @param filter
+	 *            the filter to apply
+	 * @param distinct
+	 *            whether to return only distinct results
+	 * @return
+	 */
+	public static <T> TypedQuery<Long> prepareCountQuery(final EntityManager entityManager,
+	        final Class<T> entityClass, final Filter filter, final boolean distinct) {
+		final Filter normalized = FilterNormalizer.normalize(filter);
+		List<Object> values = new ArrayList<>();
+		String key = createCacheKey(distinct ? "countDistinct" : "count", entityClass, normalized, null, null, values);
+		return prepareQuery(entityManager, Long.class, key, values, new CriteriaCallback<Long>() {
+
+			@Override
+			public CriteriaQuery<Long> create(QueryParameters parameters) {
+				return createCountQuery(entityManager, entityClass, normalized, distinct, parameters);
+			}
+		});
+	}
+
+	/**
+	 * Creates a query for retrieving the IDs of the entities that match the provided filter, using
+	 * the query cache when possible
+	 * 
+	 * @param entityManager
+	 *            the entity manager
+	 * @param entityClass
+	 *            the entity class
+	 * @param filter
+	 *            the filter to apply
+	 * @param sortOrders
+	 *            the sorting to apply
+	 * @return
+	 */
+	public static <T> TypedQuery<Tuple> prepareIdQuery(final EntityManager entityManager,
+	        final Class<T> entityClass, final Filter filter, final SortOrder... sortOrders) {
+		final Filter normalized = FilterNormalizer.normalize(filter);
+		List<Object> values = new ArrayList<>();
+		String key = createCacheKey("id", entityClass, normalized, null, sortOrders, values);
+		return prepareQuery(entityManager, Tuple.class, key, values, new CriteriaCallback<Tuple>() {
+
+			@Override
+			public CriteriaQuery<Tuple> create(QueryParameters parameters) {
+				return createIdQuery(entityManager, entityClass, normalized, parameters, sortOrders);
+			}
+		});
+	}
+
+	/**
+	 * Creates a query that selects the entities that match a filter, using the query cache when
+	 * possible
+	 * 
+	 * @param filter
+	 *            the filter
+	 * @param entityManager
+	 *            the entity manager
+	 * @param entityClass
+	 *            the entity class
+	 * @param fetchJoins
+	 *            the fetch joins to include
+	 * @param sortOrders
+	 *            the sorting information
+	 * @return
+	 */
+	public static <T> TypedQuery<T> prepareSelectQuery(final Filter filter, final EntityManager entityManager,
+	        final Class<T> entityClass, final FetchJoinInformation[] fetchJoins, final SortOrder... sortOrders) {
+		final Filter normalized = FilterNormalizer.normalize(filter);
+		List<Object> values = new ArrayList<>();
+		String key = createCacheKey("select", entityClass, normalized, fetchJoins, sortOrders, values);
+		return prepareQuery(entityManager, entityClass, key, values, new CriteriaCallback<T>() {
+
+			@Override
+			public CriteriaQuery<T> create(QueryParameters parameters) {
+				return createSelectQuery(normalized, entityManager, entityClass, fetchJoins, parameters, sortOrders);
+			}
+		});
+	}
+
 	/**
 	 * Gets property path.
 	 * 
@@ -514,10 +1294,8 @@ public final class JpaQueryBuilder {
 	 * @return the path to property
 	 */
 	private static Path<Object> getPropertyPath(Root<?> root, Object propertyId) {
-		String[] propertyIdParts = ((String) propertyId).split("\\.");
-
 		Path<Object> path = null;
-		for (String part : propertyIdParts) {
+		for (String part : PropertyPath.of((String) propertyId).getSegments()) {
 			if (path == null) {
 				path = root.get(part);
 			} else {
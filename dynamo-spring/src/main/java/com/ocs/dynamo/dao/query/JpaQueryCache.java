@@ -0,0 +1,118 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.dao.query;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded (least recently used) cache that maps the shape of a query (entity class, filter
+ * structure, fetch joins and sort orders) to the JPQL that results from translating that query.
+ * Queries that cannot be parameterized are stored using a marker value so that the translation
+ * is not attempted again
+ *
+ * @author bas.rutten
+ */
+public class JpaQueryCache {
+
+	/**
+	 * Marker value for queries that cannot be cached
+	 */
+	static final String NOT_CACHEABLE = "";
+
+	private final int maxSize;
+
+	private final Map<String, String> queries;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Constructor
+	 *
+	 * @param maxSize
+	 *            the maximum number of queries to store
+	 */
+	public JpaQueryCache(final int maxSize) {
+		this.maxSize = maxSize;
+		this.queries = new LinkedHashMap<String, String>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = -2735093124570093823L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Removes all queries from the cache and resets the statistics
+	 */
+	public synchronized void clear() {
+		queries.clear();
+		hits.set(0);
+		misses.set(0);
+	}
+
+	/**
+	 * Looks up a query
+	 *
+	 * @param key
+	 *            the key
+	 * @return the JPQL, or <code>null</code> if the query is not in the cache
+	 */
+	String get(String key) {
+		String result;
+		synchronized (this) {
+			result = queries.get(key);
+		}
+		if (result == null) {
+			misses.incrementAndGet();
+		} else {
+			hits.incrementAndGet();
+		}
+		return result;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public synchronized int getSize() {
+		return queries.size();
+	}
+
+	public boolean isEnabled() {
+		return maxSize > 0;
+	}
+
+	/**
+	 * Adds a query to the cache
+	 *
+	 * @param key
+	 *            the key
+	 * @param jpql
+	 *            the JPQL
+	 */
+	synchronized void put(String key, String jpql) {
+		queries.put(key, jpql);
+	}
+}
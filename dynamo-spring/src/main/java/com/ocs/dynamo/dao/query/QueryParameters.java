@@ -0,0 +1,95 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.dao.query;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.ParameterExpression;
+
+import org.apache.commons.lang.ClassUtils;
+
+/**
+ * Creates the named parameters that are used instead of literal values when a query is
+ * constructed for the query cache. The parameters are numbered in the order in which they are
+ * created, and the object keeps track of whether all values could be bound to a parameter of the
+ * correct type
+ *
+ * @author bas.rutten
+ */
+class QueryParameters {
+
+	private static final String PREFIX = "dynamoParam";
+
+	private int count;
+
+	private boolean valid = true;
+
+	/**
+	 * Returns the name of the parameter with the provided index
+	 *
+	 * @param index
+	 *            the index
+	 * @return
+	 */
+	static String getName(int index) {
+		return PREFIX + index;
+	}
+
+	/**
+	 * Creates a parameter for comparing against the provided expression
+	 *
+	 * @param builder
+	 *            the criteria builder
+	 * @param expression
+	 *            the expression (e.g. property path) that the value will be compared to
+	 * @param value
+	 *            the value that will be bound to the parameter
+	 * @return
+	 */
+	ParameterExpression<?> create(CriteriaBuilder builder, Expression<?> expression, Object value) {
+		return create(builder, expression.getJavaType(), value);
+	}
+
+	/**
+	 * Creates a parameter of the provided type
+	 *
+	 * @param builder
+	 *            the criteria builder
+	 * @param type
+	 *            the type of the parameter
+	 * @param value
+	 *            the value that will be bound to the parameter
+	 * @return
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	ParameterExpression<?> create(CriteriaBuilder builder, Class<?> type, Object value) {
+		Class<?> wrapper = type == null ? Object.class : type;
+		if (wrapper.isPrimitive()) {
+			wrapper = ClassUtils.primitiveToWrapper(wrapper);
+		}
+		if (value == null || !wrapper.isInstance(value)) {
+			// the value cannot be bound as is - the literal query must be used
+			valid = false;
+		}
+		return builder.parameter((Class) wrapper, getName(count++));
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public boolean isValid() {
+		return valid;
+	}
+}
@@ -0,0 +1,114 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.dao.routing;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the type of data source that the current thread should use, and of the moment
+ * at which the last write to the primary database took place. Writes are tracked per session
+ * (read-your-writes): a user that has just saved something reads it back from the primary, while
+ * other users keep using the replica. The session is bound to the thread by the
+ * DataSourceContextFilter - when no session is bound, writes are tracked per thread
+ * 
+ * @author bas.rutten
+ */
+public final class DataSourceContext {
+
+	private static final ThreadLocal<DataSourceType> CURRENT = new ThreadLocal<>();
+
+	// the moment of the last write of the session (or thread) that is bound to the current thread
+	private static final ThreadLocal<AtomicLong> LAST_WRITE = new ThreadLocal<AtomicLong>() {
+
+		@Override
+		protected AtomicLong initialValue() {
+			return new AtomicLong();
+		}
+	};
+
+	private DataSourceContext() {
+		// hidden constructor
+	}
+
+	/**
+	 * Binds the write tracker of a session to the current thread, so that the writes of the
+	 * session are taken into account by all the threads that handle its requests
+	 * 
+	 * @param lastWrite
+	 *            the tracker, which is stored in the session
+	 */
+	public static void bindSession(AtomicLong lastWrite) {
+		LAST_WRITE.set(lastWrite);
+	}
+
+	/**
+	 * Returns the type of data source for the current thread
+	 * 
+	 * @return the type, or <code>null</code> if no type has been set
+	 */
+	public static DataSourceType get() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Returns the number of milliseconds that have passed since the last write of the current
+	 * session (or thread)
+	 * 
+	 * @return
+	 */
+	public static long getMillisSinceLastWrite() {
+		return System.currentTimeMillis() - LAST_WRITE.get().get();
+	}
+
+	/**
+	 * Registers that the current session (or thread) has written data to the primary database
+	 */
+	public static void registerWrite() {
+		LAST_WRITE.get().set(System.currentTimeMillis());
+	}
+
+	/**
+	 * Restores the type of data source that was returned by a previous call to <code>set</code>
+	 * 
+	 * @param previous
+	 *            the previous type
+	 */
+	public static void restore(DataSourceType previous) {
+		if (previous == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(previous);
+		}
+	}
+
+	/**
+	 * Unbinds the write tracker of the session from the current thread
+	 */
+	public static void unbindSession() {
+		LAST_WRITE.remove();
+	}
+
+	/**
+	 * Sets the type of data source for the current thread
+	 * 
+	 * @param type
+	 *            the type
+	 * @return the previous type, which must be passed to <code>restore</code> afterwards
+	 */
+	public static DataSourceType set(DataSourceType type) {
+		DataSourceType previous = CURRENT.get();
+		CURRENT.set(type);
+		return previous;
+	}
+}
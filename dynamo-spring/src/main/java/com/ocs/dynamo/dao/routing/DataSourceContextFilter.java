@@ -0,0 +1,75 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.dao.routing;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+/**
+ * Servlet filter that binds the write tracker of the HTTP session to the thread that handles a
+ * request, so that the replication lag check of the ReplicaRoutingDataSource applies to the
+ * writes of the session rather than to those of the thread. Add it to the web.xml or register it
+ * with the servlet context in front of the Vaadin servlet
+ * 
+ * @author bas.rutten
+ */
+public class DataSourceContextFilter implements Filter {
+
+	private static final String LAST_WRITE_ATTRIBUTE = DataSourceContextFilter.class.getName() + ".lastWrite";
+
+	@Override
+	public void destroy() {
+		// nothing to do
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException,
+	        ServletException {
+		HttpSession session = request instanceof HttpServletRequest ? ((HttpServletRequest) request)
+		        .getSession(false) : null;
+		if (session == null) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		AtomicLong lastWrite;
+		synchronized (session) {
+			lastWrite = (AtomicLong) session.getAttribute(LAST_WRITE_ATTRIBUTE);
+			if (lastWrite == null) {
+				lastWrite = new AtomicLong();
+				session.setAttribute(LAST_WRITE_ATTRIBUTE, lastWrite);
+			}
+		}
+		DataSourceContext.bindSession(lastWrite);
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			DataSourceContext.unbindSession();
+		}
+	}
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+		// nothing to do
+	}
+}
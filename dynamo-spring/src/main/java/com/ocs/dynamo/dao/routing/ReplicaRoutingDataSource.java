@@ -0,0 +1,157 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.dao.routing;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.apache.log4j.Logger;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+/**
+ * A data source that routes connection requests to either the primary database or a read
+ * replica, depending on the DataSourceContext of the current thread. The replica is only used
+ * when:
+ * <ul>
+ * <li>the current thread asks for it (see the ReadReplicaAspect)</li>
+ * <li>the replica is available - when it fails to hand out a connection, the primary is used
+ * instead and the replica is not tried again until the retry interval has passed</li>
+ * <li>the last write of the current session took place longer ago than the maximum replication
+ * lag, so that users do not read data that is older than what they have just written</li>
+ * </ul>
+ * 
+ * Use this data source for the entity manager factory, preferably wrapped in a Spring
+ * LazyConnectionDataSourceProxy so that the connection is obtained at the first statement
+ * 
+ * @author bas.rutten
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+	private static final Logger LOG = Logger.getLogger(ReplicaRoutingDataSource.class);
+
+	private static final long DEFAULT_RETRY_INTERVAL = 30000L;
+
+	private final DataSource primary;
+
+	private final DataSource replica;
+
+	// the maximum time (in milliseconds) that the replica may lag behind the primary
+	private long maxReplicationLag;
+
+	// the time (in milliseconds) to wait before trying the replica again after a failure
+	private long retryInterval = DEFAULT_RETRY_INTERVAL;
+
+	// the moment at which the replica last failed
+	private volatile long replicaFailedAt;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param primary
+	 *            the primary data source
+	 * @param replica
+	 *            the read replica
+	 */
+	public ReplicaRoutingDataSource(DataSource primary, DataSource replica) {
+		this.primary = primary;
+		this.replica = replica;
+	}
+
+	/**
+	 * Determines which data source to use for the current thread
+	 * 
+	 * @return
+	 */
+	public DataSourceType determineDataSourceType() {
+		if (DataSourceType.REPLICA.equals(DataSourceContext.get()) && isReplicaAvailable()
+		        && DataSourceContext.getMillisSinceLastWrite() >= maxReplicationLag) {
+			return DataSourceType.REPLICA;
+		}
+		return DataSourceType.PRIMARY;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		if (DataSourceType.REPLICA.equals(determineDataSourceType())) {
+			try {
+				return replica.getConnection();
+			} catch (SQLException ex) {
+				replicaFailed(ex);
+			}
+		}
+		return primary.getConnection();
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		if (DataSourceType.REPLICA.equals(determineDataSourceType())) {
+			try {
+				return replica.getConnection(username, password);
+			} catch (SQLException ex) {
+				replicaFailed(ex);
+			}
+		}
+		return primary.getConnection(username, password);
+	}
+
+	public long getMaxReplicationLag() {
+		return maxReplicationLag;
+	}
+
+	public long getRetryInterval() {
+		return retryInterval;
+	}
+
+	/**
+	 * Indicates whether the replica can be used (i.e. it has not failed recently)
+	 * 
+	 * @return
+	 */
+	public boolean isReplicaAvailable() {
+		return replicaFailedAt == 0 || System.currentTimeMillis() - replicaFailedAt >= retryInterval;
+	}
+
+	/**
+	 * Registers that the replica has failed
+	 * 
+	 * @param ex
+	 *            the exception that was thrown by the replica
+	 */
+	private void replicaFailed(SQLException ex) {
+		LOG.warn("Read replica unavailable, falling back to the primary database: " + ex.getMessage());
+		replicaFailedAt = System.currentTimeMillis();
+	}
+
+	/**
+	 * Sets the maximum time (in milliseconds) that the replica may lag behind the primary. For
+	 * this period after a write, reads are directed to the primary database. Defaults to 0
+	 * 
+	 * @param maxReplicationLag
+	 */
+	public void setMaxReplicationLag(long maxReplicationLag) {
+		this.maxReplicationLag = maxReplicationLag;
+	}
+
+	/**
+	 * Sets the time (in milliseconds) after which a replica that has failed is tried again.
+	 * Defaults to 30 seconds
+	 * 
+	 * @param retryInterval
+	 */
+	public void setRetryInterval(long retryInterval) {
+		this.retryInterval = retryInterval;
+	}
+}
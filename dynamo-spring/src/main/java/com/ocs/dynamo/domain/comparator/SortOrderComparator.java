@@ -0,0 +1,64 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.domain.comparator;
+
+import java.util.Comparator;
+
+import com.ocs.dynamo.dao.SortOrder;
+import com.ocs.dynamo.dao.SortOrders;
+import com.ocs.dynamo.utils.ClassUtils;
+
+/**
+ * A comparator that compares two objects based on a set of sort orders (using reflection).
+ * <code>null</code> values are placed before any other values in ascending order
+ * 
+ * @author bas.rutten
+ */
+public class SortOrderComparator<T> implements Comparator<T> {
+
+    private final SortOrder[] orders;
+
+    /**
+     * Constructor
+     * 
+     * @param orders
+     *            the sort orders
+     */
+    public SortOrderComparator(SortOrders orders) {
+        this.orders = orders == null ? new SortOrder[0] : orders.toArray();
+    }
+
+    @Override
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public int compare(T o1, T o2) {
+        for (SortOrder order : orders) {
+            Object v1 = ClassUtils.getFieldValue(o1, order.getProperty());
+            Object v2 = ClassUtils.getFieldValue(o2, order.getProperty());
+
+            int result = 0;
+            if (v1 == null) {
+                result = v2 == null ? 0 : -1;
+            } else if (v2 == null) {
+                result = 1;
+            } else if (v1 instanceof Comparable) {
+                result = ((Comparable) v1).compareTo(v2);
+            }
+
+            if (result != 0) {
+                return order.isAscending() ? result : -result;
+            }
+        }
+        return 0;
+    }
+}
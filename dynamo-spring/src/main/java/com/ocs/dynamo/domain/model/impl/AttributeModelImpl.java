@@ -399,10 +399,12 @@ public class AttributeModelImpl implements AttributeModel {
 
     public void setAttributeType(AttributeType attributeType) {
         this.attributeType = attributeType;
+        modelChanged();
     }
 
     public void setComplexEditable(boolean complexEditable) {
         this.complexEditable = complexEditable;
+        modelChanged();
     }
 
     public void setCurrency(boolean currency) {
@@ -437,6 +439,16 @@ public class AttributeModelImpl implements AttributeModel {
         this.email = email;
     }
 
+    /**
+     * Notifies the entity model that one of the properties by which it indexes its attributes has
+     * changed
+     */
+    private void modelChanged() {
+        if (entityModel instanceof EntityModelImpl) {
+            ((EntityModelImpl<?>) entityModel).invalidate();
+        }
+    }
+
     public void setEntityModel(EntityModel<?> entityModel) {
         this.entityModel = entityModel;
     }
@@ -456,6 +468,7 @@ public class AttributeModelImpl implements AttributeModel {
     @Override
     public void setMainAttribute(boolean mainAttribute) {
         this.mainAttribute = mainAttribute;
+        modelChanged();
     }
 
     public void setMaxLength(Integer maxLength) {
@@ -476,14 +489,17 @@ public class AttributeModelImpl implements AttributeModel {
 
     public void setName(String name) {
         this.name = name;
+        modelChanged();
     }
 
     public void setNestedEntityModel(EntityModel<?> nestedEntityModel) {
         this.nestedEntityModel = nestedEntityModel;
+        modelChanged();
     }
 
     public void setOrder(Integer order) {
         this.order = order;
+        modelChanged();
     }
 
     public void setPercentage(boolean percentage) {
@@ -508,6 +524,7 @@ public class AttributeModelImpl implements AttributeModel {
 
     public void setReadOnly(boolean readOnly) {
         this.readOnly = readOnly;
+        modelChanged();
     }
 
     public void setReplacementSearchPath(String replacementSearchPath) {
@@ -516,14 +533,17 @@ public class AttributeModelImpl implements AttributeModel {
 
     public void setRequired(boolean required) {
         this.required = required;
+        modelChanged();
     }
 
     public void setRequiredForSearching(boolean requiredForSearching) {
         this.requiredForSearching = requiredForSearching;
+        modelChanged();
     }
 
     public void setSearchable(boolean searchable) {
         this.searchable = searchable;
+        modelChanged();
     }
 
     public void setSearchCaseSensitive(boolean searchCaseSensitive) {
@@ -560,6 +580,7 @@ public class AttributeModelImpl implements AttributeModel {
 
     public void setType(Class<?> type) {
         this.type = type;
+        modelChanged();
     }
 
     public void setUrl(boolean url) {
@@ -572,6 +593,7 @@ public class AttributeModelImpl implements AttributeModel {
 
     public void setVisible(boolean visible) {
         this.visible = visible;
+        modelChanged();
     }
 
     public void setVisibleInTable(boolean visibleInTable) {
@@ -27,11 +27,18 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
+import javax.annotation.PostConstruct;
 import javax.persistence.ElementCollection;
 import javax.persistence.Embedded;
+import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Lob;
 import javax.persistence.ManyToMany;
@@ -44,8 +51,12 @@ import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
 import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
 
 import com.google.common.collect.Sets;
 import com.ocs.dynamo.domain.AbstractEntity;
@@ -63,6 +74,8 @@ import com.ocs.dynamo.domain.model.annotation.AttributeGroup;
 import com.ocs.dynamo.domain.model.annotation.AttributeGroups;
 import com.ocs.dynamo.domain.model.annotation.AttributeOrder;
 import com.ocs.dynamo.domain.model.annotation.Model;
+import com.ocs.dynamo.domain.model.metadata.EntityMetadata;
+import com.ocs.dynamo.domain.model.metadata.PropertyMetadata;
 import com.ocs.dynamo.domain.model.util.EntityModelUtil;
 import com.ocs.dynamo.domain.validator.Email;
 import com.ocs.dynamo.exception.OCSRuntimeException;
@@ -79,6 +92,8 @@ import com.vaadin.ui.DefaultFieldFactory;
  */
 public class EntityModelFactoryImpl implements EntityModelFactory {
 
+	private static final Logger LOG = Logger.getLogger(EntityModelFactoryImpl.class);
+
 	private static final String PLURAL_POSTFIX = "s";
 
 	private static final String CLASS = "class";
@@ -94,11 +109,14 @@ public class EntityModelFactoryImpl implements EntityModelFactory {
 
 	private ConcurrentMap<String, Class<?>> alreadyProcessed = new ConcurrentHashMap<String, Class<?>>();
 
+	// the models that are currently being constructed
+	private ConcurrentMap<String, FutureTask<EntityModel<?>>> constructions = new ConcurrentHashMap<>();
+
 	/**
 	 * Constructs an attribute model for a property
 	 * 
-	 * @param descriptor
-	 *            the property descriptor
+	 * @param property
+	 *            the property
 	 * @param entityModel
 	 *            the entity model
 	 * @param parentClass
@@ -110,13 +128,13 @@ public class EntityModelFactoryImpl implements EntityModelFactory {
 	 *            the prefix to apply to the attribute name
 	 * @return
 	 */
-	private <T> List<AttributeModel> constructAttributeModel(PropertyDescriptor descriptor,
+	private <T> List<AttributeModel> constructAttributeModel(PropertyMetadata property,
 	        EntityModelImpl<T> entityModel, Class<?> parentClass, boolean nested, String prefix) {
 		List<AttributeModel> result = new ArrayList<AttributeModel>();
 
 		// validation methods annotated with @AssertTrue or @AssertFalse have to
 		// be ignored
-		String fieldName = descriptor.getName();
+		String fieldName = property.getName();
 		AssertTrue assertTrue = ClassUtils.getAnnotation(entityModel.getEntityClass(), fieldName, AssertTrue.class);
 		AssertFalse assertFalse = ClassUtils.getAnnotation(entityModel.getEntityClass(), fieldName, AssertFalse.class);
 
@@ -131,12 +149,12 @@ public class EntityModelFactoryImpl implements EntityModelFactory {
 			model.setDisplayName(displayName);
 			model.setDescription(displayName);
 			model.setPrompt(displayName);
-			model.setMainAttribute(descriptor.isPreferred());
-			model.setSearchable(descriptor.isPreferred());
+			model.setMainAttribute(property.isPreferred());
+			model.setSearchable(property.isPreferred());
 			model.setName((prefix == null ? "" : (prefix + ".")) + fieldName);
 			model.setImage(false);
 
-			model.setReadOnly(descriptor.isHidden());
+			model.setReadOnly(property.isHidden());
 			model.setSortable(true);
 			model.setComplexEditable(false);
 			model.setPrecision(SystemPropertyUtils.getDefaultDecimalPrecision());
@@ -154,7 +172,7 @@ public class EntityModelFactoryImpl implements EntityModelFactory {
 			} else {
 				model.setVisible(true);
 			}
-			model.setType(descriptor.getPropertyType());
+			model.setType(property.getType());
 
 			// determine the possible date type
 			model.setDateType(determineDateType(model.getType(), entityModel.getEntityClass(), fieldName));
@@ -197,7 +215,7 @@ public class EntityModelFactoryImpl implements EntityModelFactory {
 			model.setEmail(email != null);
 
 			// override the defaults with annotation values
-			setAnnotationOverrides(parentClass, model, descriptor, nested);
+			setAnnotationOverrides(parentClass, model, property, nested);
 
 			// override any earlier version with message bundle contents
 			setMessageBundleOverrides(entityModel, model);
@@ -210,11 +228,10 @@ public class EntityModelFactoryImpl implements EntityModelFactory {
 				if (model.getType().equals(entityModel.getEntityClass())) {
 					throw new IllegalStateException("Embedding a class in itself is not allowed");
 				}
-				PropertyDescriptor[] embeddedDescriptors = BeanUtils.getPropertyDescriptors(model.getType());
-				for (PropertyDescriptor embeddedDescriptor : embeddedDescriptors) {
-					String name = embeddedDescriptor.getName();
+				for (PropertyMetadata embeddedProperty : getProperties(model.getType())) {
+					String name = embeddedProperty.getName();
 					if (!skipAttribute(name)) {
-						List<AttributeModel> embeddedModels = constructAttributeModel(embeddedDescriptor, entityModel,
+						List<AttributeModel> embeddedModels = constructAttributeModel(embeddedProperty, entityModel,
 						        model.getType(), nested, model.getName());
 						result.addAll(embeddedModels);
 					}
@@ -238,14 +255,69 @@ public class EntityModelFactoryImpl implements EntityModelFactory {
 	}
 
 	/**
-	 * Constructs the model for an entity
+	 * Constructs the model for an entity, or waits for the construction of the model if another
+	 * thread is already constructing it. Models with different references are constructed in
+	 * parallel
+	 * 
+	 * @param reference
+	 *            the reference to the entity model
+	 * @param entityClass
+	 *            the class of the entity
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> EntityModel<T> constructModel(final String reference, final Class<T> entityClass) {
+		FutureTask<EntityModel<?>> task = constructions.get(reference);
+		if (task == null) {
+			// the construction may have completed after the cache was checked
+			EntityModel<T> result = (EntityModel<T>) cache.get(reference);
+			if (result != null) {
+				return result;
+			}
+
+			FutureTask<EntityModel<?>> newTask = new FutureTask<>(new Callable<EntityModel<?>>() {
+
+				@Override
+				public EntityModel<?> call() {
+					return constructModelInCache(reference, entityClass);
+				}
+			});
+			task = constructions.putIfAbsent(reference, newTask);
+			if (task == null) {
+				task = newTask;
+				try {
+					task.run();
+				} finally {
+					// the model is in the cache now (or the construction failed and may be retried)
+					constructions.remove(reference, task);
+				}
+			}
+		}
+
+		try {
+			return (EntityModel<T>) task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OCSRuntimeException(e.getMessage(), e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new OCSRuntimeException(e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	/**
+	 * Constructs the model for an entity and adds it to the cache
 	 * 
+	 * @param reference
+	 *            the reference to the entity model
 	 * @param entityClass
 	 *            the class of the entity
 	 * @return
 	 */
 	@SuppressWarnings("unchecked")
-	private synchronized <T> EntityModel<T> constructModel(String reference, Class<T> entityClass) {
+	private <T> EntityModel<T> constructModelInCache(String reference, Class<T> entityClass) {
 		EntityModel<T> result = (EntityModel<T>) cache.get(reference);
 		if (result == null) {
 			boolean nested = reference.indexOf('.') > 0;
@@ -265,12 +337,11 @@ public class EntityModelFactoryImpl implements EntityModelFactory {
 			AttributeModel firstStringAttribute = null;
 			AttributeModel firstSearchableAttribute = null;
 
-			PropertyDescriptor[] descriptors = BeanUtils.getPropertyDescriptors(entityClass);
 			// create attribute models for all attributes
 			List<AttributeModel> tempModelList = new ArrayList<>();
-			for (PropertyDescriptor descriptor : descriptors) {
-				if (!skipAttribute(descriptor.getName())) {
-					List<AttributeModel> attributeModels = constructAttributeModel(descriptor, model,
+			for (PropertyMetadata property : getProperties(entityClass)) {
+				if (!skipAttribute(property.getName())) {
+					List<AttributeModel> attributeModels = constructAttributeModel(property, model,
 					        model.getEntityClass(), nested, null);
 
 					for (AttributeModel attributeModel : attributeModels) {
@@ -537,10 +608,10 @@ public class EntityModelFactoryImpl implements EntityModelFactory {
 				} else if (ClassUtils.getAnnotation(parentClass, name, ManyToMany.class) != null
 				        || ClassUtils.getAnnotation(parentClass, name, OneToMany.class) != null) {
 					result = AttributeType.DETAIL;
-					model.setMemberType(ClassUtils.getResolvedType(parentClass, model.getName(), 0));
+					model.setMemberType(getMemberType(parentClass, model.getName()));
 				} else if (ClassUtils.getAnnotation(parentClass, name, ElementCollection.class) != null) {
 					result = AttributeType.ELEMENT_COLLECTION;
-					model.setMemberType(ClassUtils.getResolvedType(parentClass, model.getName(), 0));
+					model.setMemberType(getMemberType(parentClass, model.getName()));
 				} else if (AbstractEntity.class.isAssignableFrom(model.getType())) {
 					// not a collection but a reference to another object
 					result = AttributeType.MASTER;
@@ -616,6 +687,57 @@ public class EntityModelFactoryImpl implements EntityModelFactory {
 		return format;
 	}
 
+	/**
+	 * Returns the metadata that is generated for a class by the EntityMetadataProcessor
+	 * 
+	 * @param clazz
+	 *            the class
+	 * @return the metadata, or <code>null</code> if none has been generated
+	 */
+	EntityMetadata<?> getMetadata(Class<?> clazz) {
+		return EntityMetadata.forClass(clazz);
+	}
+
+	/**
+	 * Determines the member type of a collection property, using the generated metadata for the
+	 * class if it is available
+	 * 
+	 * @param clazz
+	 *            the class
+	 * @param fieldName
+	 *            the name of the property
+	 * @return
+	 */
+	private Class<?> getMemberType(Class<?> clazz, String fieldName) {
+		EntityMetadata<?> metadata = getMetadata(clazz);
+		if (metadata != null) {
+			PropertyMetadata property = metadata.getProperty(fieldName);
+			return property == null ? null : property.getElementType();
+		}
+		return ClassUtils.getResolvedType(clazz, fieldName, 0);
+	}
+
+	/**
+	 * Returns the properties of a class. These are taken from the metadata that is generated by
+	 * the EntityMetadataProcessor if it is available, otherwise they are determined using
+	 * introspection
+	 * 
+	 * @param clazz
+	 *            the class
+	 * @return
+	 */
+	private Collection<PropertyMetadata> getProperties(Class<?> clazz) {
+		EntityMetadata<?> metadata = getMetadata(clazz);
+		if (metadata != null) {
+			return metadata.getProperties();
+		}
+		List<PropertyMetadata> result = new ArrayList<>();
+		for (PropertyDescriptor descriptor : BeanUtils.getPropertyDescriptors(clazz)) {
+			result.add(new PropertyMetadata(descriptor));
+		}
+		return result;
+	}
+
 	/**
 	 * Retrieves a message relating to an attribute from the message bundle
 	 * 
@@ -679,6 +801,55 @@ public class EntityModelFactoryImpl implements EntityModelFactory {
 		return model;
 	}
 
+	/**
+	 * Constructs the models of all entities in the packages that are specified by the
+	 * "ocs.entity.model.warmup.packages" system property, so that the first requests that need
+	 * these models do not have to wait for them. The models are constructed in parallel. Does
+	 * nothing when the system property is not set
+	 */
+	@PostConstruct
+	public void warmUp() {
+		String packages = SystemPropertyUtils.getEntityModelWarmUpPackages();
+		if (StringUtils.isBlank(packages)) {
+			return;
+		}
+
+		ClassPathScanningCandidateComponentProvider provider = new ClassPathScanningCandidateComponentProvider(false);
+		provider.addIncludeFilter(new AnnotationTypeFilter(Entity.class));
+		List<Callable<EntityModel<?>>> tasks = new ArrayList<>();
+		for (String basePackage : packages.split(",")) {
+			for (BeanDefinition definition : provider.findCandidateComponents(basePackage.trim())) {
+				final Class<?> entityClass = org.springframework.util.ClassUtils.resolveClassName(
+				        definition.getBeanClassName(), getClass().getClassLoader());
+				tasks.add(new Callable<EntityModel<?>>() {
+
+					@Override
+					public EntityModel<?> call() {
+						return getModel(entityClass);
+					}
+				});
+			}
+		}
+
+		long start = System.currentTimeMillis();
+		ForkJoinPool pool = new ForkJoinPool();
+		try {
+			for (Future<EntityModel<?>> future : pool.invokeAll(tasks)) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					// the error will resurface when the model is requested
+					LOG.error("Entity model construction failed: " + e.getCause().getMessage(), e.getCause());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			pool.shutdown();
+		}
+		LOG.info("Constructed " + tasks.size() + " entity models in " + (System.currentTimeMillis() - start) + " ms");
+	}
+
 	/**
 	 * Check if a certain entity model has already been processed
 	 * 
@@ -709,11 +880,11 @@ public class EntityModelFactoryImpl implements EntityModelFactory {
 	 * 
 	 * @param parentClass
 	 * @param model
-	 * @param descriptor
+	 * @param property
 	 */
-	private void setAnnotationOverrides(Class<?> parentClass, AttributeModelImpl model, PropertyDescriptor descriptor,
+	private void setAnnotationOverrides(Class<?> parentClass, AttributeModelImpl model, PropertyMetadata property,
 	        boolean nested) {
-		Attribute attribute = ClassUtils.getAnnotation(parentClass, descriptor.getName(), Attribute.class);
+		Attribute attribute = ClassUtils.getAnnotation(parentClass, property.getName(), Attribute.class);
 
 		// overwrite with annotation values
 		if (attribute != null) {
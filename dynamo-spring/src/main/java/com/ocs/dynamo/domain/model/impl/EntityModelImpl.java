@@ -16,9 +16,15 @@ package com.ocs.dynamo.domain.model.impl;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.builder.ReflectionToStringBuilder;
@@ -29,7 +35,10 @@ import com.ocs.dynamo.domain.model.EntityModel;
 import com.ocs.dynamo.utils.ClassUtils;
 
 /**
- * An implementation of an entity model - holds metadata about an entity
+ * An implementation of an entity model - holds metadata about an entity. The lookups that are
+ * performed for every row or cell (attribute by name, sorted attributes, required attributes etc.)
+ * are answered from an index that is built on first use and discarded whenever the attributes
+ * change
  * 
  * @author bas.rutten
  * @param <T>
@@ -56,6 +65,122 @@ public class EntityModelImpl<T> implements EntityModel<T> {
 
     private Map<AttributeModel, Boolean> sortOrder = new LinkedHashMap<>();
 
+    // the lookup structures, or null if they have to be (re)built
+    private volatile Index index;
+
+    /**
+     * Key for the cached results of getAttributeModelsForType
+     */
+    private static final class TypeKey {
+
+        private final AttributeType attributeType;
+
+        private final Class<?> type;
+
+        TypeKey(AttributeType attributeType, Class<?> type) {
+            this.attributeType = attributeType;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof TypeKey)) {
+                return false;
+            }
+            TypeKey other = (TypeKey) obj;
+            return attributeType == other.attributeType && type == other.type;
+        }
+
+        @Override
+        public int hashCode() {
+            return (attributeType == null ? 0 : attributeType.hashCode()) * 31
+                    + (type == null ? 0 : type.hashCode());
+        }
+    }
+
+    /**
+     * Precomputed lookup structures for the attribute models
+     */
+    private static final class Index {
+
+        // the attribute models in the order of the groups
+        private final List<AttributeModel> declared = new ArrayList<>();
+
+        private final List<AttributeModel> sorted;
+
+        private final Map<String, AttributeModel> byName = new HashMap<>();
+
+        private final ConcurrentMap<String, AttributeModel> nested = new ConcurrentHashMap<>();
+
+        private final ConcurrentMap<TypeKey, List<AttributeModel>> byType = new ConcurrentHashMap<>();
+
+        private final List<String> groups;
+
+        private final Map<String, List<AttributeModel>> groupModels = new HashMap<>();
+
+        private final Set<String> visibleGroups = new HashSet<>();
+
+        private final Set<String> visibleReadOnlyGroups = new HashSet<>();
+
+        private final List<AttributeModel> required;
+
+        private final List<AttributeModel> requiredForSearching;
+
+        private AttributeModel main;
+
+        Index(Map<String, List<AttributeModel>> attributeModels) {
+            for (Entry<String, List<AttributeModel>> entry : attributeModels.entrySet()) {
+                groupModels.put(entry.getKey(),
+                        Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+                for (AttributeModel model : entry.getValue()) {
+                    declared.add(model);
+                    if (!byName.containsKey(model.getName())) {
+                        byName.put(model.getName(), model);
+                    }
+                    if (main == null && model.isMainAttribute()) {
+                        main = model;
+                    }
+                    if (AttributeType.BASIC.equals(model.getAttributeType())
+                            || AttributeType.LOB.equals(model.getAttributeType())
+                            || model.isComplexEditable()) {
+                        // attribute must be visible and not read-only (when in edit mode)
+                        if (model.isVisible()) {
+                            visibleReadOnlyGroups.add(entry.getKey());
+                            if (!model.isReadOnly()) {
+                                visibleGroups.add(entry.getKey());
+                            }
+                        }
+                    }
+                }
+            }
+            groups = Collections.unmodifiableList(new ArrayList<>(attributeModels.keySet()));
+
+            List<AttributeModel> temp = new ArrayList<>(declared);
+            Collections.sort(temp, new Comparator<AttributeModel>() {
+
+                @Override
+                public int compare(AttributeModel o1, AttributeModel o2) {
+                    return o1.getOrder().compareTo(o2.getOrder());
+                }
+
+            });
+            sorted = Collections.unmodifiableList(temp);
+
+            List<AttributeModel> req = new ArrayList<>();
+            List<AttributeModel> reqForSearching = new ArrayList<>();
+            for (AttributeModel model : sorted) {
+                if (model.isRequired()) {
+                    req.add(model);
+                }
+                if (model.isSearchable() && model.isRequiredForSearching()) {
+                    reqForSearching.add(model);
+                }
+            }
+            required = Collections.unmodifiableList(req);
+            requiredForSearching = Collections.unmodifiableList(reqForSearching);
+        }
+    }
+
     /**
      * Constructor
      * 
@@ -77,11 +202,13 @@ public class EntityModelImpl<T> implements EntityModel<T> {
     public void addAttributeGroup(String attributeGroup) {
         if (!attributeModels.containsKey(attributeGroup)) {
             attributeModels.put(attributeGroup, new ArrayList<AttributeModel>());
+            invalidate();
         }
     }
 
     public void addAttributeModel(String attributeGroup, AttributeModel model) {
         attributeModels.get(attributeGroup).add(model);
+        invalidate();
     }
 
     @Override
@@ -93,42 +220,45 @@ public class EntityModelImpl<T> implements EntityModel<T> {
         } else {
             group.add(model);
         }
+        invalidate();
     }
 
     @Override
     public List<String> getAttributeGroups() {
-        return new ArrayList<>(attributeModels.keySet());
+        return getIndex().groups;
     }
 
     @Override
     public AttributeModel getAttributeModel(String attributeName) {
         if (!StringUtils.isEmpty(attributeName)) {
+            Index idx = getIndex();
 
-            // check for direct property (note: in case of an embedded property,
-            // the attribute
-            // can have a name that contain a "." and still be a direct
-            // attribute )
-            for (List<AttributeModel> list : attributeModels.values()) {
-                for (AttributeModel model : list) {
-                    if (model.getName().equals(attributeName)) {
-                        return model;
-                    }
-                }
+            // check for direct property (note: in case of an embedded property, the attribute
+            // can have a name that contain a "." and still be a direct attribute)
+            AttributeModel result = idx.byName.get(attributeName);
+            if (result != null) {
+                return result;
             }
 
             // check for nested property
-            String[] names = attributeName.split("\\.");
-            if (names.length > 1) {
-                // Find Attribute model
-                AttributeModel am = getAttributeModel(names[0]);
-                if (am != null) {
-                    // Find nested entity model
-                    EntityModel<?> nem = am.getNestedEntityModel();
-                    if (nem != null) {
-                        return nem
-                                .getAttributeModel(attributeName.substring(names[0].length() + 1));
+            int p = attributeName.indexOf('.');
+            if (p > 0) {
+                result = idx.nested.get(attributeName);
+                if (result == null) {
+                    // Find Attribute model
+                    AttributeModel am = getAttributeModel(attributeName.substring(0, p));
+                    if (am != null) {
+                        // Find nested entity model
+                        EntityModel<?> nem = am.getNestedEntityModel();
+                        if (nem != null) {
+                            result = nem.getAttributeModel(attributeName.substring(p + 1));
+                            if (result != null) {
+                                idx.nested.put(attributeName, result);
+                            }
+                        }
                     }
                 }
+                return result;
             }
         }
         return null;
@@ -136,63 +266,45 @@ public class EntityModelImpl<T> implements EntityModel<T> {
 
     @Override
     public List<AttributeModel> getAttributeModels() {
-        List<AttributeModel> result = new ArrayList<>();
-        for (List<AttributeModel> list : attributeModels.values()) {
-            result.addAll(list);
-        }
-        Collections.sort(result, new Comparator<AttributeModel>() {
-
-            @Override
-            public int compare(AttributeModel o1, AttributeModel o2) {
-                return o1.getOrder().compareTo(o2.getOrder());
-            }
-
-        });
-
-        return Collections.unmodifiableList(result);
+        return getIndex().sorted;
     }
 
     @Override
     public List<AttributeModel> getRequiredAttributeModels() {
-        List<AttributeModel> requiredModels = new ArrayList<AttributeModel>();
-        for (AttributeModel model : getAttributeModels()) {
-            if (model.isRequired()) {
-                requiredModels.add(model);
-            }
-        }
-        return requiredModels;
+        return getIndex().required;
     }
 
     @Override
     public List<AttributeModel> getRequiredForSearchingAttributeModels() {
-        List<AttributeModel> requiredModels = new ArrayList<AttributeModel>();
-        for (AttributeModel model : getAttributeModels()) {
-            if (model.isSearchable() && model.isRequiredForSearching()) {
-                requiredModels.add(model);
-            }
-        }
-        return requiredModels;
+        return getIndex().requiredForSearching;
     }
 
     @Override
     public List<AttributeModel> getAttributeModelsForGroup(String group) {
-        return Collections.unmodifiableList(attributeModels.get(group));
+        return getIndex().groupModels.get(group);
     }
 
     @Override
     public List<AttributeModel> getAttributeModelsForType(AttributeType attributeType, Class<?> type) {
-        List<AttributeModel> result = new ArrayList<>();
-        if (attributeType != null || type != null) {
-            for (List<AttributeModel> list : attributeModels.values()) {
-                for (AttributeModel model : list) {
-                    Class<?> rt = ClassUtils.getResolvedType(getEntityClass(), model.getName(), 0);
-                    if ((attributeType == null || attributeType.equals(model.getAttributeType()))
-                            && (type == null || type.isAssignableFrom(model.getType()) || (rt != null && type
-                                    .isAssignableFrom(rt)))) {
-                        result.add(model);
-                    }
+        if (attributeType == null && type == null) {
+            return Collections.emptyList();
+        }
+
+        Index idx = getIndex();
+        TypeKey key = new TypeKey(attributeType, type);
+        List<AttributeModel> result = idx.byType.get(key);
+        if (result == null) {
+            List<AttributeModel> temp = new ArrayList<>();
+            for (AttributeModel model : idx.declared) {
+                Class<?> rt = ClassUtils.getResolvedType(getEntityClass(), model.getName(), 0);
+                if ((attributeType == null || attributeType.equals(model.getAttributeType()))
+                        && (type == null || type.isAssignableFrom(model.getType()) || (rt != null && type
+                                .isAssignableFrom(rt)))) {
+                    temp.add(model);
                 }
             }
+            result = Collections.unmodifiableList(temp);
+            idx.byType.putIfAbsent(key, result);
         }
         return result;
     }
@@ -227,16 +339,23 @@ public class EntityModelImpl<T> implements EntityModel<T> {
         return idAttributeModel;
     }
 
+    /**
+     * Returns the lookup structures, building them if necessary
+     * 
+     * @return
+     */
+    private Index getIndex() {
+        Index result = index;
+        if (result == null) {
+            result = new Index(attributeModels);
+            index = result;
+        }
+        return result;
+    }
+
     @Override
     public AttributeModel getMainAttributeModel() {
-        for (List<AttributeModel> list : attributeModels.values()) {
-            for (AttributeModel model : list) {
-                if (model.isMainAttribute()) {
-                    return model;
-                }
-            }
-        }
-        return null;
+        return getIndex().main;
     }
 
     @Override
@@ -249,21 +368,18 @@ public class EntityModelImpl<T> implements EntityModel<T> {
         return sortOrder;
     }
 
+    /**
+     * Discards the lookup structures. Called whenever an attribute is added or one of the indexed
+     * properties of an attribute changes
+     */
+    void invalidate() {
+        index = null;
+    }
+
     @Override
     public boolean isAttributeGroupVisible(String group, boolean readOnly) {
-        List<AttributeModel> attributes = attributeModels.get(group);
-        for (AttributeModel model : attributes) {
-            if (AttributeType.BASIC.equals(model.getAttributeType())
-                    || AttributeType.LOB.equals(model.getAttributeType())
-                    || model.isComplexEditable()) {
-                // attribute must be visible and not read-only (when in edit
-                // mode)
-                if (model.isVisible() && (readOnly || !model.isReadOnly())) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        Index idx = getIndex();
+        return readOnly ? idx.visibleReadOnlyGroups.contains(group) : idx.visibleGroups.contains(group);
     }
 
     /**
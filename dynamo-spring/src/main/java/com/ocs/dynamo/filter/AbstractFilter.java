@@ -18,13 +18,12 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
-import org.springframework.beans.PropertyAccessorFactory;
-
 import com.ocs.dynamo.filter.Compare.Equal;
 import com.ocs.dynamo.filter.Compare.Greater;
 import com.ocs.dynamo.filter.Compare.GreaterOrEqual;
 import com.ocs.dynamo.filter.Compare.Less;
 import com.ocs.dynamo.filter.Compare.LessOrEqual;
+import com.ocs.dynamo.utils.PropertyPath;
 
 /**
  * @author bas.rutten
@@ -262,18 +261,20 @@ public abstract class AbstractFilter implements Filter {
     }
 
     /**
-     * Get the value of a property of the given bean by use of optimized reflection by Spring.
+     * Get the value of a (possibly nested) property of the given bean. The property path is
+     * compiled only once, so evaluating a filter does not allocate any objects
      * 
      * @param bean
      *            The bean
      * @param propertyName
      *            The name of the property to get
-     * @return The property value
+     * @return The property value, or <code>null</code> if the bean or one of the intermediate
+     *         values is <code>null</code>
      */
     protected Object getProperty(Object bean, String propertyName) {
         if (bean == null || propertyName == null) {
             return null;
         }
-        return PropertyAccessorFactory.forBeanPropertyAccess(bean).getPropertyValue(propertyName);
+        return PropertyPath.of(propertyName).getValue(bean);
     }
 }
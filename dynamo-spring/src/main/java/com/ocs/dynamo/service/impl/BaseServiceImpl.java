@@ -13,33 +13,72 @@
  */
 package com.ocs.dynamo.service.impl;
 
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.inject.Inject;
+import javax.persistence.Basic;
+import javax.persistence.ElementCollection;
+import javax.persistence.FetchType;
+import javax.persistence.ManyToMany;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.OneToOne;
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
 import javax.validation.ValidatorFactory;
 import javax.validation.constraints.AssertFalse;
 import javax.validation.constraints.AssertTrue;
 
+import org.apache.commons.lang.SerializationException;
+import org.apache.commons.lang.SerializationUtils;
 import org.apache.log4j.Logger;
+import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import com.ocs.dynamo.dao.BaseDao;
+import com.ocs.dynamo.dao.Keyset;
 import com.ocs.dynamo.dao.Pageable;
 import com.ocs.dynamo.dao.PageableImpl;
 import com.ocs.dynamo.dao.SortOrder;
 import com.ocs.dynamo.dao.SortOrders;
+import com.ocs.dynamo.dao.query.Aggregate;
+import com.ocs.dynamo.dao.query.AggregateResult;
+import com.ocs.dynamo.dao.query.CloseableIterator;
 import com.ocs.dynamo.dao.query.FetchJoinInformation;
 import com.ocs.dynamo.domain.AbstractEntity;
+import com.ocs.dynamo.domain.model.annotation.Model;
 import com.ocs.dynamo.exception.OCSNonUniqueException;
+import com.ocs.dynamo.exception.OCSRuntimeException;
 import com.ocs.dynamo.exception.OCSValidationException;
 import com.ocs.dynamo.filter.Filter;
 import com.ocs.dynamo.service.BaseService;
 import com.ocs.dynamo.service.MessageService;
+import com.ocs.dynamo.service.index.FullTextIndex;
 import com.ocs.dynamo.utils.ClassUtils;
+import com.ocs.dynamo.utils.SystemPropertyUtils;
 
 /**
  * Base service implementation
@@ -51,7 +90,7 @@ import com.ocs.dynamo.utils.ClassUtils;
  *            type of the entity
  */
 
-public abstract class BaseServiceImpl<ID, T extends AbstractEntity<ID>> implements BaseService<ID, T> {
+public abstract class BaseServiceImpl<ID, T extends AbstractEntity<ID>> implements BaseService<ID, T>, BeanNameAware {
 
 	private static final Logger LOGGER = Logger.getLogger(BaseServiceImpl.class);
 
@@ -61,6 +100,34 @@ public abstract class BaseServiceImpl<ID, T extends AbstractEntity<ID>> implemen
 	@Inject
 	private MessageService messageService;
 
+	// the entity cache - only used when the entity is marked as cacheable
+	private volatile EntityCache<ID, T> entityCache;
+
+	private volatile boolean entityCacheInitialized;
+
+	// the executor for the asynchronous methods - the shared executor is used when not set
+	private ExecutorService asyncExecutor;
+
+	@Autowired(required = false)
+	private ServiceExecutor serviceExecutor;
+
+	@Autowired(required = false)
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired(required = false)
+	private ApplicationContext applicationContext;
+
+	private String beanName;
+
+	// the Spring proxy of this service
+	private volatile BaseService<ID, T> proxy;
+
+	// the full text index - only used when set
+	private volatile FullTextIndex<ID, T> fullTextIndex;
+
+	// whether a rebuild of the full text index has been scheduled because the index expired
+	private final AtomicBoolean fullTextRebuildScheduled = new AtomicBoolean();
+
 	/**
 	 * Creates a paging request
 	 * 
@@ -76,6 +143,11 @@ public abstract class BaseServiceImpl<ID, T extends AbstractEntity<ID>> implemen
 		return new PageableImpl(pageNumber, pageSize, orders);
 	}
 
+	@Override
+	public List<AggregateResult> aggregate(Filter filter, String[] groupBy, Aggregate... aggregates) {
+		return getDao().aggregate(applyFullTextIndex(filter), groupBy, aggregates);
+	}
+
 	@Override
 	public List<T> findAll() {
 		return getDao().findAll();
@@ -88,7 +160,23 @@ public abstract class BaseServiceImpl<ID, T extends AbstractEntity<ID>> implemen
 
 	@Override
 	public long count(Filter filter, boolean distinct) {
-		return getDao().count(filter, distinct);
+		return getDao().count(applyFullTextIndex(filter), distinct);
+	}
+
+	@Override
+	public Future<Long> countAsync(final Filter filter, final boolean distinct) {
+		return submitAsync(new Callable<Long>() {
+
+			@Override
+			public Long call() {
+				return getProxy().count(filter, distinct);
+			}
+		});
+	}
+
+	@Override
+	public long countUpTo(Filter filter, int limit) {
+		return getDao().countUpTo(applyFullTextIndex(filter), limit);
 	}
 
 	@Override
@@ -100,17 +188,111 @@ public abstract class BaseServiceImpl<ID, T extends AbstractEntity<ID>> implemen
 	@Transactional
 	public void delete(List<T> list) {
 		getDao().delete(list);
+		invalidate(list);
+		updateFullTextIndex(null, list);
 	}
 
 	@Override
 	@Transactional
 	public void delete(T t) {
 		getDao().delete(t);
+		invalidate(Collections.singletonList(t));
+		updateFullTextIndex(null, Collections.singletonList(t));
+	}
+
+	@Override
+	@Transactional
+	public int deleteByFilter(Filter filter) {
+		int result = getDao().deleteByFilter(filter);
+		invalidateAll();
+		return result;
+	}
+
+	/**
+	 * Adds a copy of an entity that was just loaded to the entity cache. The caller keeps the
+	 * loaded instance, so the cached instance is only ever shared by the callers that receive it
+	 * from the cache. The copy is made by serializing the entity - if that fails because the
+	 * entity refers to an object that is not serializable, the entity is not cached
+	 * 
+	 * @param cache
+	 *            the cache
+	 * @param id
+	 *            the ID of the entity
+	 * @param joins
+	 *            a description of the fetch joins
+	 * @param t
+	 *            the entity
+	 * @param generation
+	 *            the generation of the cache at the moment the entity was loaded
+	 */
+	@SuppressWarnings("unchecked")
+	private void cache(EntityCache<ID, T> cache, ID id, String joins, T t, long generation) {
+		try {
+			cache.put(id, joins, (T) SerializationUtils.clone(t), generation);
+		} catch (SerializationException ex) {
+			LOGGER.warn("Entity " + getEntityClass().getSimpleName() + " with ID " + id
+			        + " cannot be cached since it is not serializable: " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * Constructs the part of the cache key that describes the fetch joins
+	 * 
+	 * @param joins
+	 *            the fetch joins
+	 * @return
+	 */
+	private String describeJoins(FetchJoinInformation... joins) {
+		StringBuilder builder = new StringBuilder("fetch:");
+		if (joins != null) {
+			for (FetchJoinInformation join : joins) {
+				builder.append(join.getProperty()).append(' ').append(join.getJoinType()).append(';');
+			}
+		}
+		return builder.toString();
 	}
 
 	@Override
 	public T fetchById(ID id, FetchJoinInformation... joins) {
-		return getDao().fetchById(id, joins);
+		EntityCache<ID, T> cache = getReadableEntityCache();
+		if (cache == null || id == null) {
+			return getDao().fetchById(id, joins);
+		}
+
+		String key = describeJoins(joins);
+		T t = cache.get(id, key);
+		if (t == null) {
+			long generation = cache.getGeneration();
+			t = getDao().fetchById(id, joins);
+			if (t != null) {
+				cache(cache, id, key, t, generation);
+			}
+		}
+		return t;
+	}
+
+	@Override
+	public Future<List<T>> fetchAsync(final Filter filter, final int pageNumber, final int pageSize,
+	        final SortOrders sortOrders, final FetchJoinInformation... joins) {
+		return submitAsync(new Callable<List<T>>() {
+
+			@Override
+			public List<T> call() {
+				return getProxy().fetch(filter, pageNumber, pageSize, sortOrders, joins);
+			}
+		});
+	}
+
+	@Override
+	public Future<List<T>> fetchByIdsAsync(final List<ID> ids, final SortOrders sortOrders,
+	        final FetchJoinInformation... joins) {
+		return submitAsync(new Callable<List<T>>() {
+
+			@Override
+			public List<T> call() {
+				return getProxy().fetchByIds(ids, sortOrders, joins);
+			}
+		});
 	}
 
 	@Override
@@ -131,24 +313,39 @@ public abstract class BaseServiceImpl<ID, T extends AbstractEntity<ID>> implemen
 
 	@Override
 	public List<T> fetch(Filter filter, FetchJoinInformation... joins) {
-		return getDao().fetch(filter, joins);
+		return getDao().fetch(applyFullTextIndex(filter), joins);
 	}
 
 	@Override
 	public List<T> fetch(Filter filter, int pageNumber, int pageSize, FetchJoinInformation... joins) {
-		return getDao().fetch(filter, constructPageRequest(pageNumber, pageSize, (SortOrder[]) null), joins);
+		return getDao().fetch(applyFullTextIndex(filter),
+		        constructPageRequest(pageNumber, pageSize, (SortOrder[]) null), joins);
 	}
 
 	@Override
 	public List<T> fetch(Filter filter, int pageNumber, int pageSize, SortOrders sortOrders,
 	        FetchJoinInformation... joins) {
-		return getDao().fetch(filter,
+		return getDao().fetch(applyFullTextIndex(filter),
 		        constructPageRequest(pageNumber, pageSize, sortOrders == null ? null : sortOrders.toArray()), joins);
 	}
 
 	@Override
 	public List<T> fetch(Filter filter, SortOrders orders, FetchJoinInformation... joins) {
-		return getDao().fetch(filter, orders, joins);
+		return getDao().fetch(applyFullTextIndex(filter), orders, joins);
+	}
+
+	@Override
+	public List<T> fetchAfter(Filter filter, Keyset keyset, int pageSize, SortOrders sortOrders,
+	        FetchJoinInformation... joins) {
+		return getDao().fetchAfter(applyFullTextIndex(filter), keyset, pageSize, sortOrders, joins);
+	}
+
+	@Override
+	public List<T> fetchProjection(Filter filter, int pageNumber, int pageSize, SortOrders sortOrders,
+	        String... properties) {
+		return getDao().fetchProjection(applyFullTextIndex(filter),
+		        constructPageRequest(pageNumber, pageSize, sortOrders == null ? null : sortOrders.toArray()),
+		        properties);
 	}
 
 	@Override
@@ -158,22 +355,35 @@ public abstract class BaseServiceImpl<ID, T extends AbstractEntity<ID>> implemen
 
 	@Override
 	public List<T> find(Filter filter) {
-		return getDao().find(filter);
+		return getDao().find(applyFullTextIndex(filter));
 	}
 
 	@Override
 	public List<T> find(Filter filter, SortOrder... orders) {
-		return getDao().find(filter, orders);
+		return getDao().find(applyFullTextIndex(filter), orders);
 	}
 
 	@Override
 	public List<? extends Object> findDistinct(Filter filter, String distinctField, SortOrder... orders) {
-		return getDao().findDistinct(filter, distinctField, orders);
+		return getDao().findDistinct(applyFullTextIndex(filter), distinctField, orders);
 	}
 
 	@Override
 	public T findById(ID id) {
-		return getDao().findById(id);
+		EntityCache<ID, T> cache = getReadableEntityCache();
+		if (cache == null || id == null) {
+			return getDao().findById(id);
+		}
+
+		T t = cache.get(id, "");
+		if (t == null) {
+			long generation = cache.getGeneration();
+			t = getDao().findById(id);
+			if (t != null) {
+				cache(cache, id, "", t, generation);
+			}
+		}
+		return t;
 	}
 
 	@Override
@@ -194,16 +404,176 @@ public abstract class BaseServiceImpl<ID, T extends AbstractEntity<ID>> implemen
 
 	@Override
 	public List<ID> findIds(Filter filter, SortOrder... orders) {
-		return getDao().findIds(filter, orders);
+		return getDao().findIds(applyFullTextIndex(filter), orders);
+	}
+
+	@Override
+	public Future<List<ID>> findIdsAsync(final Filter filter, final SortOrder... orders) {
+		return submitAsync(new Callable<List<ID>>() {
+
+			@Override
+			public List<ID> call() {
+				return getProxy().findIds(filter, orders);
+			}
+		});
 	}
 
 	protected abstract BaseDao<ID, T> getDao();
 
+	/**
+	 * Returns the Spring proxy of this service, so that work that is performed on another thread
+	 * still passes through the transaction handling and the aspects. Returns the service itself
+	 * when it is not managed by Spring
+	 * 
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	protected BaseService<ID, T> getProxy() {
+		BaseService<ID, T> result = proxy;
+		if (result == null) {
+			if (applicationContext != null && beanName != null && applicationContext.containsBean(beanName)) {
+				result = (BaseService<ID, T>) applicationContext.getBean(beanName);
+			} else {
+				result = this;
+			}
+			proxy = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Replaces any text filters that can be answered by the full text index (if there is one) by
+	 * filters on the IDs of the matching entities. The index is only used when it is current and
+	 * the query does not run inside a read-write transaction (the index does not contain the
+	 * uncommitted changes of that transaction). When the index has expired, the filter is left
+	 * untouched and a rebuild is scheduled
+	 * 
+	 * @param filter
+	 *            the filter
+	 * @return
+	 */
+	protected Filter applyFullTextIndex(Filter filter) {
+		FullTextIndex<ID, T> index = fullTextIndex;
+		if (index == null || filter == null) {
+			return filter;
+		}
+		if (!index.isCurrent()) {
+			if (index.isReady()) {
+				scheduleFullTextRebuild();
+			}
+			return filter;
+		}
+		if (TransactionSynchronizationManager.isActualTransactionActive()
+		        && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+			return filter;
+		}
+		return index.apply(filter);
+	}
+
 	@Override
 	public Class<T> getEntityClass() {
 		return getDao().getEntityClass();
 	}
 
+	/**
+	 * Returns the cache that is used by findById and fetchById. The cache is only created when the
+	 * entity class itself is marked as cacheable (using the "cacheable" attribute of the
+	 * {@link Model} annotation, which is not inherited). The cache is only consulted outside a
+	 * transaction or inside a read-only transaction, so that changes to an entity that is
+	 * retrieved in a read-write transaction are still detected by the persistence context. A cached
+	 * entity is a detached copy that is shared by all callers that receive it from the cache, so
+	 * it must be treated as read-only - an entity that is to be modified must be retrieved in a
+	 * read-write transaction. Since a detached entity cannot load its lazy associations, a
+	 * cacheable entity must not have any. Entities that cannot be serialized are not cached
+	 * 
+	 * @return the cache, or <code>null</code> if the entity is not cacheable
+	 */
+	public EntityCache<ID, T> getEntityCache() {
+		if (!entityCacheInitialized) {
+			synchronized (this) {
+				if (!entityCacheInitialized) {
+					Model model = getEntityClass().getAnnotation(Model.class);
+					if (model != null && model.cacheable()) {
+						String lazy = findLazyProperty(getEntityClass());
+						if (lazy != null) {
+							throw new OCSRuntimeException("Entity " + getEntityClass().getSimpleName()
+							        + " is marked as cacheable but property " + lazy + " is loaded lazily");
+						}
+						entityCache = new EntityCache<>(model.cacheSize(), model.cacheTimeToLive() * 1000L);
+					}
+					entityCacheInitialized = true;
+				}
+			}
+		}
+		return entityCache;
+	}
+
+	/**
+	 * Returns the entity cache, but only if it may be consulted in the current transaction (see
+	 * {@link #getEntityCache()})
+	 * 
+	 * @return
+	 */
+	private EntityCache<ID, T> getReadableEntityCache() {
+		if (TransactionSynchronizationManager.isActualTransactionActive()
+		        && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+			return null;
+		}
+		return getEntityCache();
+	}
+
+	/**
+	 * Looks for a property of an entity class that is loaded lazily
+	 * 
+	 * @param clazz
+	 *            the entity class
+	 * @return the name of the first lazy property, or <code>null</code> if there is none
+	 */
+	private static String findLazyProperty(Class<?> clazz) {
+		for (Class<?> c = clazz; c != null && !Object.class.equals(c); c = c.getSuperclass()) {
+			for (Field field : c.getDeclaredFields()) {
+				if (isLazy(field)) {
+					return field.getName();
+				}
+			}
+			for (Method method : c.getDeclaredMethods()) {
+				if (isLazy(method)) {
+					return method.getName();
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether a field or getter is mapped as a lazily loaded property
+	 * 
+	 * @param element
+	 *            the field or getter
+	 * @return
+	 */
+	private static boolean isLazy(AnnotatedElement element) {
+		FetchType fetch = null;
+		if (element.isAnnotationPresent(OneToMany.class)) {
+			fetch = element.getAnnotation(OneToMany.class).fetch();
+		} else if (element.isAnnotationPresent(ManyToMany.class)) {
+			fetch = element.getAnnotation(ManyToMany.class).fetch();
+		} else if (element.isAnnotationPresent(ElementCollection.class)) {
+			fetch = element.getAnnotation(ElementCollection.class).fetch();
+		} else if (element.isAnnotationPresent(ManyToOne.class)) {
+			fetch = element.getAnnotation(ManyToOne.class).fetch();
+		} else if (element.isAnnotationPresent(OneToOne.class)) {
+			fetch = element.getAnnotation(OneToOne.class).fetch();
+		} else if (element.isAnnotationPresent(Basic.class)) {
+			fetch = element.getAnnotation(Basic.class).fetch();
+		}
+		return FetchType.LAZY.equals(fetch);
+	}
+
+	public FullTextIndex<ID, T> getFullTextIndex() {
+		return fullTextIndex;
+	}
+
 	public MessageService getMessageService() {
 		return messageService;
 	}
@@ -224,20 +594,368 @@ public abstract class BaseServiceImpl<ID, T extends AbstractEntity<ID>> implemen
 		return false;
 	}
 
+	/**
+	 * Removes entities from the entity cache (if there is one) once the current transaction has
+	 * been committed
+	 * 
+	 * @param list
+	 *            the entities
+	 */
+	private void invalidate(List<T> list) {
+		List<ID> ids = new ArrayList<>();
+		for (T t : list) {
+			if (t != null) {
+				ids.add(t.getId());
+			}
+		}
+		invalidateIds(ids);
+	}
+
+	/**
+	 * Removes the entities with the provided IDs from the entity cache (if there is one) once the
+	 * current transaction has been committed
+	 * 
+	 * @param ids
+	 *            the IDs
+	 */
+	private void invalidateIds(final List<ID> ids) {
+		final EntityCache<ID, T> cache = getEntityCache();
+		if (cache != null && !ids.isEmpty()) {
+			runAfterCommit(new Runnable() {
+
+				@Override
+				public void run() {
+					for (ID id : ids) {
+						if (id != null) {
+							cache.invalidate(id);
+						}
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Clears the entity cache (if there is one) once the current transaction has been committed -
+	 * used after bulk operations for which it is not known which entities are affected
+	 */
+	private void invalidateAll() {
+		final EntityCache<ID, T> cache = getEntityCache();
+		if (cache != null) {
+			runAfterCommit(new Runnable() {
+
+				@Override
+				public void run() {
+					cache.clear();
+				}
+			});
+		}
+		if (fullTextIndex != null) {
+			fullTextIndex.invalidate();
+			runAfterCommit(new Runnable() {
+
+				@Override
+				public void run() {
+					rebuildFullTextIndex();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Rebuilds the full text index in the background, using the executor of the asynchronous
+	 * methods. Call this method once after setting the index, and again whenever the data may
+	 * have been modified without using this service
+	 * 
+	 * @return the future that completes when the index has been rebuilt
+	 */
+	public Future<Void> rebuildFullTextIndex() {
+		final FullTextIndex<ID, T> index = fullTextIndex;
+		if (index == null) {
+			throw new OCSRuntimeException("No full text index has been set for " + getClass().getSimpleName());
+		}
+		return submitAsync(new Callable<Void>() {
+
+			@Override
+			public Void call() {
+				try {
+					index.rebuild(getProxy(), SystemPropertyUtils.getDefaultBatchSize());
+				} finally {
+					fullTextRebuildScheduled.set(false);
+				}
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Rebuilds the expired full text index in the background, unless a rebuild has already been
+	 * scheduled
+	 */
+	private void scheduleFullTextRebuild() {
+		if (fullTextRebuildScheduled.compareAndSet(false, true)) {
+			try {
+				rebuildFullTextIndex();
+			} catch (RejectedExecutionException | OCSRuntimeException ex) {
+				// the query falls back to the database, try again later
+				fullTextRebuildScheduled.set(false);
+				LOGGER.warn("Could not schedule the rebuild of the full text index: " + ex.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Runs a task after the current transaction has been committed, or immediately if there is no
+	 * transaction
+	 * 
+	 * @param task
+	 *            the task
+	 */
+	private void runAfterCommit(final Runnable task) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+				@Override
+				public void afterCommit() {
+					task.run();
+				}
+			});
+		} else {
+			task.run();
+		}
+	}
+
 	@Override
 	@Transactional
 	public List<T> save(List<T> list) {
 		for (T t : list) {
 			validate(t);
 		}
-		return getDao().save(list);
+		List<T> result = getDao().save(list);
+		invalidate(result);
+		updateFullTextIndex(result, null);
+		return result;
+	}
+
+	@Override
+	@Transactional
+	public List<T> save(List<T> list, int batchSize) {
+		for (T t : list) {
+			validate(t);
+		}
+		List<T> result = getDao().save(list, batchSize);
+		invalidate(result);
+		updateFullTextIndex(result, null);
+		return result;
+	}
+
+	@Override
+	@Transactional
+	public List<ID> saveAndReturnIds(List<T> list, int batchSize) {
+		for (T t : list) {
+			validate(t);
+		}
+		List<ID> result = getDao().saveAndReturnIds(list, batchSize);
+		invalidateIds(result);
+		updateFullTextIndex(list, null);
+		return result;
+	}
+
+	@Override
+	@Transactional
+	public List<T> saveChanges(List<T> added, List<T> modified, List<T> removed) {
+		for (T t : added) {
+			validate(t);
+		}
+		for (T t : modified) {
+			validate(t);
+		}
+
+		// retrieve all existing entities at once, so that merging and removing them does not
+		// require a query per entity
+		List<ID> ids = new ArrayList<>();
+		for (T t : modified) {
+			if (t.getId() != null) {
+				ids.add(t.getId());
+			}
+		}
+		for (T t : removed) {
+			if (t.getId() != null) {
+				ids.add(t.getId());
+			}
+		}
+		Set<ID> existing = new HashSet<>();
+		for (T t : getDao().fetchByIds(ids, null)) {
+			existing.add(t.getId());
+		}
+
+		List<T> result = new ArrayList<>(getDao().save(modified));
+
+		List<T> deleted = new ArrayList<>();
+		for (T t : removed) {
+			if (existing.contains(t.getId())) {
+				deleted.add(t);
+			}
+		}
+		getDao().delete(deleted);
+
+		result.addAll(getDao().save(added));
+		invalidate(result);
+		invalidate(deleted);
+		updateFullTextIndex(result, deleted);
+		return result;
 	}
 
 	@Override
 	@Transactional
 	public T save(T t) {
 		validate(t);
-		return getDao().save(t);
+		T result = getDao().save(t);
+		invalidate(Collections.singletonList(result));
+		updateFullTextIndex(Collections.singletonList(result), null);
+		return result;
+	}
+
+	@Override
+	public CloseableIterator<T> stream(Filter filter, SortOrders sortOrders, int fetchSize,
+	        FetchJoinInformation... joins) {
+		return getDao().stream(applyFullTextIndex(filter), sortOrders, fetchSize, joins);
+	}
+
+	@Override
+	public void setBeanName(String beanName) {
+		this.beanName = beanName;
+	}
+
+	/**
+	 * Sets the executor that is used by the asynchronous methods. By default, the ServiceExecutor
+	 * that is shared by all services is used (see the "ocs.async.pool.size" system property)
+	 * 
+	 * @param asyncExecutor
+	 *            the executor
+	 */
+	public void setAsyncExecutor(ExecutorService asyncExecutor) {
+		this.asyncExecutor = asyncExecutor;
+	}
+
+	/**
+	 * Sets the full text index that is used to answer text filters on the searchable attributes
+	 * of the entity. The index is not ready until it has been built using
+	 * {@link #rebuildFullTextIndex()}
+	 * 
+	 * @param fullTextIndex
+	 *            the index
+	 */
+	public void setFullTextIndex(FullTextIndex<ID, T> fullTextIndex) {
+		this.fullTextIndex = fullTextIndex;
+	}
+
+	/**
+	 * Submits a task to the executor for the asynchronous methods. When a transaction manager is
+	 * available, the task is executed in a new read-only transaction. The request attributes of the
+	 * submitting thread are made available to the task, so that e.g. the current user can still be
+	 * determined. Throws a RejectedExecutionException when the executor is saturated
+	 * 
+	 * @param task
+	 *            the task
+	 * @return
+	 */
+	protected <R> Future<R> submitAsync(final Callable<R> task) {
+		ExecutorService executor = asyncExecutor;
+		if (executor == null) {
+			if (serviceExecutor == null) {
+				throw new OCSRuntimeException("No executor for the asynchronous methods of "
+				        + getClass().getSimpleName() + " - declare a ServiceExecutor bean or set an executor");
+			}
+			executor = serviceExecutor.getExecutor();
+		}
+		final RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		return executor.submit(new Callable<R>() {
+
+			@Override
+			public R call() throws Exception {
+				RequestAttributes previous = RequestContextHolder.getRequestAttributes();
+				RequestContextHolder.setRequestAttributes(attributes);
+				try {
+					return callAsync(task);
+				} finally {
+					if (previous == null) {
+						RequestContextHolder.resetRequestAttributes();
+					} else {
+						RequestContextHolder.setRequestAttributes(previous);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Executes a task that was submitted by {@link #submitAsync(Callable)}
+	 * 
+	 * @param task
+	 *            the task
+	 * @return
+	 * @throws Exception
+	 */
+	private <R> R callAsync(final Callable<R> task) throws Exception {
+		if (transactionManager == null) {
+			return task.call();
+		}
+		TransactionTemplate template = new TransactionTemplate(transactionManager);
+		template.setReadOnly(true);
+		return template.execute(new TransactionCallback<R>() {
+
+			@Override
+			public R doInTransaction(TransactionStatus status) {
+				try {
+					return task.call();
+				} catch (RuntimeException ex) {
+					throw ex;
+				} catch (Exception ex) {
+					throw new OCSRuntimeException(ex.getMessage(), ex);
+				}
+			}
+		});
+	}
+
+	@Override
+	@Transactional
+	public int updateByFilter(Filter filter, Map<String, Object> values) {
+		int result = getDao().updateByFilter(filter, values);
+		invalidateAll();
+		return result;
+	}
+
+	/**
+	 * Updates the full text index (if there is one) once the current transaction has been
+	 * committed
+	 * 
+	 * @param saved
+	 *            the entities that have been saved
+	 * @param deleted
+	 *            the entities that have been deleted
+	 */
+	private void updateFullTextIndex(final List<T> saved, final List<T> deleted) {
+		final FullTextIndex<ID, T> index = fullTextIndex;
+		if (index == null) {
+			return;
+		}
+		runAfterCommit(new Runnable() {
+
+			@Override
+			public void run() {
+				if (deleted != null) {
+					for (T t : deleted) {
+						index.remove(t.getId());
+					}
+				}
+				if (saved != null) {
+					for (T t : saved) {
+						index.index(t);
+					}
+				}
+			}
+		});
 	}
 
 	/**
@@ -0,0 +1,212 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.service.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.ObjectUtils;
+
+/**
+ * A size bounded (least recently used) cache of entities that are looked up by their ID. Entries
+ * expire after a fixed time. Since an entity can be retrieved with different fetch joins, the
+ * entries are keyed by both the ID and a description of the fetch joins. Every invalidation
+ * increases the generation of the cache - an entity that was loaded in an earlier generation is
+ * not added, since it may have been read before the invalidating change was committed
+ * 
+ * @author bas.rutten
+ * @param <ID>
+ *            the type of the primary key
+ * @param <T>
+ *            the type of the entity
+ */
+public class EntityCache<ID, T> {
+
+	private final long timeToLive;
+
+	private final Map<CacheKey, CacheEntry<T>> entries;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private long generation;
+
+	/**
+	 * The key of a cache entry
+	 */
+	private static final class CacheKey {
+
+		private final Object id;
+
+		private final String joins;
+
+		CacheKey(Object id, String joins) {
+			this.id = id;
+			this.joins = joins;
+		}
+
+		@Override
+		public int hashCode() {
+			return ObjectUtils.hashCode(id) * 31 + joins.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof CacheKey)) {
+				return false;
+			}
+			CacheKey other = (CacheKey) obj;
+			return ObjectUtils.equals(id, other.id) && joins.equals(other.joins);
+		}
+	}
+
+	/**
+	 * A cached entity and the moment at which it expires
+	 */
+	private static final class CacheEntry<T> {
+
+		private final T entity;
+
+		private final long expires;
+
+		CacheEntry(T entity, long expires) {
+			this.entity = entity;
+			this.expires = expires;
+		}
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param maxSize
+	 *            the maximum number of entries
+	 * @param timeToLive
+	 *            the time (in milliseconds) after which an entry expires
+	 */
+	public EntityCache(final int maxSize, long timeToLive) {
+		this.timeToLive = timeToLive;
+		this.entries = new LinkedHashMap<CacheKey, CacheEntry<T>>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 4071342926436412043L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry<T>> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Removes all entries
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		generation++;
+	}
+
+	/**
+	 * Looks up an entity
+	 * 
+	 * @param id
+	 *            the ID of the entity
+	 * @param joins
+	 *            a description of the fetch joins
+	 * @return the entity, or <code>null</code> if it is not in the cache or has expired
+	 */
+	public synchronized T get(ID id, String joins) {
+		CacheKey key = new CacheKey(id, joins);
+		CacheEntry<T> entry = entries.get(key);
+		if (entry != null && entry.expires < System.currentTimeMillis()) {
+			entries.remove(key);
+			entry = null;
+		}
+		if (entry == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return entry.entity;
+	}
+
+	/**
+	 * Returns the current generation. Call this before loading an entity that is to be added
+	 * 
+	 * @return
+	 */
+	public synchronized long getGeneration() {
+		return generation;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the fraction of lookups that were answered from the cache
+	 */
+	public double getHitRate() {
+		long h = hits.get();
+		long total = h + misses.get();
+		return total == 0 ? 0.0 : (double) h / total;
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public synchronized int getSize() {
+		return entries.size();
+	}
+
+	/**
+	 * Removes all entries for the entity with the provided ID
+	 * 
+	 * @param id
+	 *            the ID
+	 */
+	public synchronized void invalidate(ID id) {
+		Iterator<CacheKey> it = entries.keySet().iterator();
+		while (it.hasNext()) {
+			if (ObjectUtils.equals(id, it.next().id)) {
+				it.remove();
+			}
+		}
+		generation++;
+	}
+
+	/**
+	 * Adds an entity to the cache
+	 * 
+	 * @param id
+	 *            the ID of the entity
+	 * @param joins
+	 *            a description of the fetch joins
+	 * @param entity
+	 *            the entity
+	 * @param loadedIn
+	 *            the generation in which the entity was loaded (see {@link #getGeneration()})
+	 * @return <code>true</code> if the entity was added, <code>false</code> if the cache has been
+	 *         invalidated since the entity was loaded
+	 */
+	public synchronized boolean put(ID id, String joins, T entity, long loadedIn) {
+		if (loadedIn != generation) {
+			return false;
+		}
+		entries.put(new CacheKey(id, joins), new CacheEntry<T>(entity, System.currentTimeMillis() + timeToLive));
+		return true;
+	}
+}
@@ -0,0 +1,105 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.service.impl;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.log4j.Logger;
+import org.springframework.stereotype.Service;
+
+import com.ocs.dynamo.utils.SystemPropertyUtils;
+
+/**
+ * The executor that is shared by all services that do not have an executor of their own for their
+ * asynchronous methods. It uses a bounded number of threads (see the "ocs.async.pool.size" system
+ * property) and a bounded queue. When the queue is full, the task is rejected with a
+ * RejectedExecutionException - it is never executed by the calling thread, since that is usually
+ * the UI thread. The threads are stopped when the application context is closed
+ * 
+ * @author bas.rutten
+ */
+@Service("serviceExecutor")
+public class ServiceExecutor {
+
+	private static final Logger LOG = Logger.getLogger(ServiceExecutor.class);
+
+	/**
+	 * Names the threads and makes them daemon threads
+	 */
+	private static final class ServiceThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger counter = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "dynamo-async-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+	private static final int QUEUE_SIZE = 1000;
+
+	private static final long SHUTDOWN_TIMEOUT_SECONDS = 10L;
+
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * Constructor
+	 */
+	public ServiceExecutor() {
+		this(SystemPropertyUtils.getAsyncPoolSize());
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param poolSize
+	 *            the number of threads
+	 */
+	public ServiceExecutor(int poolSize) {
+		executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(
+		        QUEUE_SIZE), new ServiceThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Stops the threads. Running tasks are given some time to complete, queued tasks are
+	 * discarded after that
+	 */
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				LOG.warn("Asynchronous service tasks did not complete in time - interrupting them");
+				executor.shutdownNow();
+			}
+		} catch (InterruptedException ex) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+}
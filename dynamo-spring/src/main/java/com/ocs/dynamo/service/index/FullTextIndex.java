@@ -0,0 +1,614 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.service.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+
+import com.ocs.dynamo.constants.DynamoConstants;
+import com.ocs.dynamo.dao.query.CloseableIterator;
+import com.ocs.dynamo.domain.AbstractEntity;
+import com.ocs.dynamo.domain.model.AttributeModel;
+import com.ocs.dynamo.domain.model.AttributeType;
+import com.ocs.dynamo.domain.model.EntityModel;
+import com.ocs.dynamo.filter.AbstractJunctionFilter;
+import com.ocs.dynamo.filter.And;
+import com.ocs.dynamo.filter.Filter;
+import com.ocs.dynamo.filter.In;
+import com.ocs.dynamo.filter.Like;
+import com.ocs.dynamo.filter.Not;
+import com.ocs.dynamo.filter.Or;
+import com.ocs.dynamo.service.BaseService;
+import com.ocs.dynamo.utils.ClassUtils;
+
+/**
+ * An in-memory inverted index of the searchable string attributes of an entity. Every attribute
+ * value is split into tokens (maximal sequences of letters and digits, in lower case), and for
+ * every attribute and token the index stores the IDs of the entities that contain that token. In
+ * addition, every suffix of a token is stored in a sorted map, so that the tokens that contain a
+ * term (i.e. the tokens that have a suffix that starts with the term) are found with a single
+ * range lookup.
+ * 
+ * The index can answer free text queries directly (see {@link #search(String)}) and can replace
+ * case insensitive "contains" filters (<code>%term%</code>) on indexed attributes by a filter on
+ * the IDs of the matching entities (see {@link #apply(Filter)}), so that the database does not
+ * have to scan the whole table. Since a term that consists of letters and digits only can never
+ * span more than one token, the result is identical to that of the "like" query - provided that
+ * the index is current.
+ * 
+ * The index is populated by calling {@link #rebuild(BaseService, int)} and is kept up to date by
+ * the save and delete methods of the BaseServiceImpl. Since the index is local to this node, it
+ * does not see changes that are made by other nodes or directly in the database. Filters are
+ * therefore only replaced while the index is current: the index has been built, has not been
+ * invalidated since and is not older than the maximum age (see {@link #setMaxAge(long)})
+ * 
+ * @author bas.rutten
+ * @param <ID>
+ *            the type of the primary key
+ * @param <T>
+ *            the type of the entity
+ */
+public class FullTextIndex<ID, T extends AbstractEntity<ID>> {
+
+	private static final Logger LOG = Logger.getLogger(FullTextIndex.class);
+
+	/**
+	 * The default maximum number of IDs with which a "like" filter is replaced
+	 */
+	public static final int DEFAULT_MAX_IDS = 1000;
+
+	/**
+	 * The default maximum age (in milliseconds) of the index
+	 */
+	public static final long DEFAULT_MAX_AGE = 5 * 60 * 1000L;
+
+	private static final Pattern CONTAINS_PATTERN = Pattern.compile("%[\\p{L}\\p{Nd}]+%");
+
+	/**
+	 * The contents of the index. A rebuild fills a new instance and swaps it in when it is done
+	 */
+	private static final class Contents<K> {
+
+		// attribute -> token -> IDs of the entities that contain the token
+		private final Map<String, Map<String, Set<K>>> postings = new HashMap<>();
+
+		// attribute -> suffix -> tokens that end with the suffix
+		private final Map<String, NavigableMap<String, Set<String>>> suffixes = new HashMap<>();
+
+		// ID -> attribute -> tokens, used to remove the entries for an entity
+		private final Map<K, Map<String, Set<String>>> entries = new HashMap<>();
+
+		Contents(String[] properties) {
+			for (String property : properties) {
+				postings.put(property, new HashMap<String, Set<K>>());
+				suffixes.put(property, new TreeMap<String, Set<String>>());
+			}
+		}
+
+		/**
+		 * Looks up the IDs of the entities for which an attribute contains a term
+		 * 
+		 * @param property
+		 *            the attribute
+		 * @param term
+		 *            the term (in lower case)
+		 * @return
+		 */
+		Set<K> find(String property, String term) {
+			Map<String, Set<K>> byToken = postings.get(property);
+			Set<String> tokens = new HashSet<>();
+			for (Set<String> t : suffixes.get(property)
+			        .subMap(term, true, term + Character.MAX_VALUE, false).values()) {
+				tokens.addAll(t);
+			}
+			Set<K> result = new LinkedHashSet<>();
+			for (String token : tokens) {
+				result.addAll(byToken.get(token));
+			}
+			return result;
+		}
+
+		/**
+		 * Adds the entry for an entity, replacing any previous entry
+		 * 
+		 * @param id
+		 *            the ID of the entity
+		 * @param tokens
+		 *            the tokens per attribute
+		 */
+		void put(K id, Map<String, Set<String>> tokens) {
+			remove(id);
+			for (Map.Entry<String, Set<String>> entry : tokens.entrySet()) {
+				Map<String, Set<K>> byToken = postings.get(entry.getKey());
+				for (String token : entry.getValue()) {
+					Set<K> ids = byToken.get(token);
+					if (ids == null) {
+						ids = new HashSet<>();
+						byToken.put(token, ids);
+						addSuffixes(entry.getKey(), token);
+					}
+					ids.add(id);
+				}
+			}
+			entries.put(id, tokens);
+		}
+
+		/**
+		 * Removes the entry for an entity
+		 * 
+		 * @param id
+		 *            the ID of the entity
+		 */
+		void remove(K id) {
+			Map<String, Set<String>> tokens = entries.remove(id);
+			if (tokens != null) {
+				for (Map.Entry<String, Set<String>> entry : tokens.entrySet()) {
+					Map<String, Set<K>> byToken = postings.get(entry.getKey());
+					for (String token : entry.getValue()) {
+						Set<K> ids = byToken.get(token);
+						if (ids != null) {
+							ids.remove(id);
+							if (ids.isEmpty()) {
+								byToken.remove(token);
+								removeSuffixes(entry.getKey(), token);
+							}
+						}
+					}
+				}
+			}
+		}
+
+		private void addSuffixes(String property, String token) {
+			NavigableMap<String, Set<String>> bySuffix = suffixes.get(property);
+			for (int i = 0; i < token.length(); i++) {
+				String suffix = token.substring(i);
+				Set<String> tokens = bySuffix.get(suffix);
+				if (tokens == null) {
+					tokens = new HashSet<>();
+					bySuffix.put(suffix, tokens);
+				}
+				tokens.add(token);
+			}
+		}
+
+		private void removeSuffixes(String property, String token) {
+			NavigableMap<String, Set<String>> bySuffix = suffixes.get(property);
+			for (int i = 0; i < token.length(); i++) {
+				String suffix = token.substring(i);
+				Set<String> tokens = bySuffix.get(suffix);
+				if (tokens != null) {
+					tokens.remove(token);
+					if (tokens.isEmpty()) {
+						bySuffix.remove(suffix);
+					}
+				}
+			}
+		}
+	}
+
+	private final String[] properties;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// guarded by the lock
+	private Contents<ID> contents;
+
+	// the changes that were made while a rebuild is in progress (a null value denotes a removal),
+	// or null if no rebuild is in progress - guarded by the lock
+	private Map<ID, Map<String, Set<String>>> pending;
+
+	// incremented whenever the index is invalidated - guarded by the lock
+	private long generation;
+
+	// makes sure that only one rebuild runs at a time
+	private final Object rebuildLock = new Object();
+
+	private int maxIds = DEFAULT_MAX_IDS;
+
+	private volatile long maxAge = DEFAULT_MAX_AGE;
+
+	private volatile boolean ready;
+
+	// the time at which the last successful rebuild started
+	private volatile long builtAt;
+
+	/**
+	 * Constructor - indexes the searchable string attributes of the entity model
+	 * 
+	 * @param entityModel
+	 *            the entity model
+	 */
+	public FullTextIndex(EntityModel<T> entityModel) {
+		List<String> result = new ArrayList<>();
+		for (AttributeModel am : entityModel.getAttributeModels()) {
+			if (am.isSearchable() && AttributeType.BASIC.equals(am.getAttributeType())
+			        && String.class.equals(am.getType())) {
+				result.add(am.getPath());
+			}
+		}
+		this.properties = result.toArray(new String[0]);
+		this.contents = new Contents<>(properties);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param properties
+	 *            the (string) properties to index
+	 */
+	public FullTextIndex(String... properties) {
+		this.properties = properties;
+		this.contents = new Contents<>(properties);
+	}
+
+	/**
+	 * Replaces all case insensitive "contains" filters on indexed attributes by a filter on the
+	 * IDs of the matching entities. The provided filter is not modified. If the index is not
+	 * current or a term matches too many entities, the "like" filter is kept
+	 * 
+	 * @param filter
+	 *            the filter
+	 * @return the resulting filter
+	 */
+	public Filter apply(Filter filter) {
+		if (filter == null || !isCurrent()) {
+			return filter;
+		}
+
+		if (filter instanceof And || filter instanceof Or) {
+			List<Filter> children = new ArrayList<>();
+			boolean changed = false;
+			for (Filter child : ((AbstractJunctionFilter) filter).getFilters()) {
+				Filter applied = apply(child);
+				changed |= applied != child;
+				children.add(applied);
+			}
+			if (!changed) {
+				return filter;
+			}
+			return filter instanceof And ? new And(children) : new Or(children);
+		} else if (filter instanceof Not) {
+			Filter child = ((Not) filter).getFilter();
+			Filter applied = apply(child);
+			return applied == child ? filter : new Not(applied);
+		} else if (filter instanceof Like) {
+			Like like = (Like) filter;
+			if (!like.isCaseSensitive() && Arrays.asList(properties).contains(like.getPropertyId())
+			        && CONTAINS_PATTERN.matcher(like.getValue()).matches()) {
+				String term = like.getValue().substring(1, like.getValue().length() - 1).toLowerCase();
+				Set<ID> ids = findIds(like.getPropertyId(), term);
+				if (ids != null && ids.size() <= maxIds) {
+					return new In(DynamoConstants.ID, new ArrayList<>(ids));
+				}
+			}
+		}
+		return filter;
+	}
+
+	/**
+	 * Removes all entities from the index
+	 */
+	public void clear() {
+		lock.writeLock().lock();
+		try {
+			contents = new Contents<>(properties);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Looks up the IDs of the entities for which an attribute contains a term
+	 * 
+	 * @param property
+	 *            the attribute
+	 * @param term
+	 *            the term (in lower case)
+	 * @return the IDs, or <code>null</code> if the attribute is not indexed or the index is not
+	 *         ready
+	 */
+	public Set<ID> findIds(String property, String term) {
+		if (!ready || !Arrays.asList(properties).contains(property)) {
+			return null;
+		}
+		lock.readLock().lock();
+		try {
+			return contents.find(property, term);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public long getMaxAge() {
+		return maxAge;
+	}
+
+	public int getMaxIds() {
+		return maxIds;
+	}
+
+	public String[] getProperties() {
+		return Arrays.copyOf(properties, properties.length);
+	}
+
+	/**
+	 * 
+	 * @return the number of entities in the index
+	 */
+	public int getSize() {
+		lock.readLock().lock();
+		try {
+			return contents.entries.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds an entity to the index, replacing any previous entry for the same entity
+	 * 
+	 * @param entity
+	 *            the entity
+	 */
+	public void index(T entity) {
+		if (entity == null || entity.getId() == null) {
+			return;
+		}
+
+		// determine the tokens outside the lock
+		Map<String, Set<String>> tokens = tokenize(entity);
+		lock.writeLock().lock();
+		try {
+			contents.put(entity.getId(), tokens);
+			if (pending != null) {
+				pending.put(entity.getId(), tokens);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Marks the index as not ready, e.g. after a bulk update of which the effects are unknown.
+	 * Filters are left untouched until the index has been rebuilt. A rebuild that is already in
+	 * progress does not make the index ready again, since it might not have seen the update
+	 */
+	public void invalidate() {
+		lock.writeLock().lock();
+		try {
+			generation++;
+			ready = false;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Indicates whether the index is known to reflect the database, i.e. whether it is ready and
+	 * not older than the maximum age
+	 * 
+	 * @return
+	 */
+	public boolean isCurrent() {
+		return ready && (maxAge < 0 || System.currentTimeMillis() - builtAt <= maxAge);
+	}
+
+	public boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * (Re)builds the index by traversing all entities managed by a service. The entities are
+	 * indexed into a new, empty index, so the index remains available (with the previous contents)
+	 * while it is being rebuilt. The changes that are made in the meantime are recorded and
+	 * applied to the new index (they are at least as recent as the entities that were read),
+	 * after which the new index replaces the old one
+	 * 
+	 * @param service
+	 *            the service
+	 * @param batchSize
+	 *            the number of entities to retrieve at once
+	 */
+	public void rebuild(BaseService<ID, T> service, int batchSize) {
+		synchronized (rebuildLock) {
+			long start = System.currentTimeMillis();
+			long startGeneration;
+			lock.writeLock().lock();
+			try {
+				pending = new HashMap<>();
+				startGeneration = generation;
+			} finally {
+				lock.writeLock().unlock();
+			}
+
+			Contents<ID> fresh = new Contents<>(properties);
+			int size;
+			try {
+				try (CloseableIterator<T> it = service.stream(null, null, batchSize)) {
+					while (it.hasNext()) {
+						T t = it.next();
+						if (t.getId() != null) {
+							fresh.put(t.getId(), tokenize(t));
+						}
+					}
+				}
+
+				lock.writeLock().lock();
+				try {
+					for (Map.Entry<ID, Map<String, Set<String>>> entry : pending.entrySet()) {
+						if (entry.getValue() == null) {
+							fresh.remove(entry.getKey());
+						} else {
+							fresh.put(entry.getKey(), entry.getValue());
+						}
+					}
+					contents = fresh;
+					size = fresh.entries.size();
+					if (generation == startGeneration) {
+						builtAt = start;
+						ready = true;
+					}
+				} finally {
+					lock.writeLock().unlock();
+				}
+			} finally {
+				lock.writeLock().lock();
+				try {
+					pending = null;
+				} finally {
+					lock.writeLock().unlock();
+				}
+			}
+			LOG.info("Full text index for " + service.getEntityClass().getSimpleName() + " rebuilt in "
+			        + (System.currentTimeMillis() - start) + " ms (" + size + " entities)");
+		}
+	}
+
+	/**
+	 * Removes an entity from the index
+	 * 
+	 * @param id
+	 *            the ID of the entity
+	 */
+	public void remove(ID id) {
+		if (id == null) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			contents.remove(id);
+			if (pending != null) {
+				pending.put(id, null);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Performs a free text search. An entity matches if every word in the text occurs (as part of
+	 * a token) in at least one of the indexed attributes
+	 * 
+	 * @param text
+	 *            the text to search for
+	 * @return the IDs of the matching entities, or <code>null</code> if the index is not ready
+	 */
+	public List<ID> search(String text) {
+		if (!ready) {
+			return null;
+		}
+
+		Set<ID> result = null;
+		for (String term : tokenize(text)) {
+			Set<ID> matches = new LinkedHashSet<>();
+			for (String property : properties) {
+				Set<ID> ids = findIds(property, term);
+				if (ids == null) {
+					// invalidated while searching
+					return null;
+				}
+				matches.addAll(ids);
+			}
+			if (result == null) {
+				result = matches;
+			} else {
+				result.retainAll(matches);
+			}
+			if (result.isEmpty()) {
+				break;
+			}
+		}
+		return result == null ? Collections.<ID> emptyList() : new ArrayList<>(result);
+	}
+
+	/**
+	 * Sets the maximum age (in milliseconds) of the index. Changes made by other nodes or directly
+	 * in the database are only picked up by a rebuild, so once the last rebuild started longer ago
+	 * than this, filters are left untouched until the index has been rebuilt. A negative value
+	 * means that the index never expires, which is only safe if all changes are made through this
+	 * node
+	 * 
+	 * @param maxAge
+	 */
+	public void setMaxAge(long maxAge) {
+		this.maxAge = maxAge;
+	}
+
+	/**
+	 * Sets the maximum number of IDs with which a "like" filter may be replaced. When more
+	 * entities match, the database is queried instead
+	 * 
+	 * @param maxIds
+	 */
+	public void setMaxIds(int maxIds) {
+		this.maxIds = maxIds;
+	}
+
+	/**
+	 * Splits the indexed attributes of an entity into tokens
+	 * 
+	 * @param entity
+	 *            the entity
+	 * @return the tokens per attribute
+	 */
+	private Map<String, Set<String>> tokenize(T entity) {
+		Map<String, Set<String>> tokens = new HashMap<>();
+		for (String property : properties) {
+			Object value = ClassUtils.getFieldValue(entity, property);
+			if (value != null) {
+				tokens.put(property, tokenize(value.toString()));
+			}
+		}
+		return tokens;
+	}
+
+	/**
+	 * Splits a text into tokens
+	 * 
+	 * @param text
+	 *            the text
+	 * @return the distinct tokens, in lower case
+	 */
+	static Set<String> tokenize(String text) {
+		Set<String> result = new LinkedHashSet<>();
+		if (text == null) {
+			return result;
+		}
+		int start = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			boolean letterOrDigit = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+			if (letterOrDigit && start < 0) {
+				start = i;
+			} else if (!letterOrDigit && start >= 0) {
+				result.add(text.substring(start, i).toLowerCase());
+				start = -1;
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,175 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.service.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies. The latencies are stored in microseconds in logarithmic
+ * buckets that are each divided into 16 linear sub buckets, so the percentiles that are derived
+ * from the histogram have a relative error of at most about 6%. Recording a value only involves a
+ * few atomic increments
+ * 
+ * @author bas.rutten
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 4;
+
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * The highest power of two that is tracked (about 12 days in microseconds)
+	 */
+	private static final int MAX_EXPONENT = 40;
+
+	private static final int BUCKET_COUNT = SUB_BUCKET_COUNT * (MAX_EXPONENT - SUB_BUCKET_BITS + 2);
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+	private final AtomicLong count = new AtomicLong();
+
+	private final AtomicLong errorCount = new AtomicLong();
+
+	private final AtomicLong totalMicros = new AtomicLong();
+
+	private final AtomicLong maxMicros = new AtomicLong();
+
+	private volatile long start = System.nanoTime();
+
+	/**
+	 * Returns the index of the bucket for the provided value
+	 * 
+	 * @param micros
+	 *            the value in microseconds
+	 * @return
+	 */
+	static int getBucketIndex(long micros) {
+		if (micros < SUB_BUCKET_COUNT) {
+			return (int) Math.max(0, micros);
+		}
+		int exponent = Math.min(MAX_EXPONENT, 63 - Long.numberOfLeadingZeros(micros));
+		int sub = exponent == MAX_EXPONENT && micros >= (2L << MAX_EXPONENT) ? SUB_BUCKET_COUNT - 1
+		        : (int) (micros >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKET_COUNT;
+		return SUB_BUCKET_COUNT * (exponent - SUB_BUCKET_BITS + 1) + sub;
+	}
+
+	/**
+	 * Returns the highest value that is stored in the bucket with the provided index
+	 * 
+	 * @param index
+	 *            the index
+	 * @return
+	 */
+	static long getBucketUpperBound(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+		int sub = index % SUB_BUCKET_COUNT;
+		return ((long) (SUB_BUCKET_COUNT + sub + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+
+	/**
+	 * Records the duration of a call
+	 * 
+	 * @param nanos
+	 *            the duration in nanoseconds
+	 * @param error
+	 *            whether the call ended with an exception
+	 */
+	public void record(long nanos, boolean error) {
+		long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+		buckets.incrementAndGet(getBucketIndex(micros));
+		count.incrementAndGet();
+		totalMicros.addAndGet(micros);
+		if (error) {
+			errorCount.incrementAndGet();
+		}
+
+		long max = maxMicros.get();
+		while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+			max = maxMicros.get();
+		}
+	}
+
+	/**
+	 * Clears all recorded values
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			buckets.set(i, 0);
+		}
+		count.set(0);
+		errorCount.set(0);
+		totalMicros.set(0);
+		maxMicros.set(0);
+		start = System.nanoTime();
+	}
+
+	/**
+	 * Creates a snapshot of the recorded values. Since values can be recorded while the snapshot is
+	 * created, the snapshot is not necessarily exact
+	 * 
+	 * @param name
+	 *            the name of the snapshot
+	 * @return
+	 */
+	public MetricsSnapshot snapshot(String name) {
+		long[] copy = new long[BUCKET_COUNT];
+		long total = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			copy[i] = buckets.get(i);
+			total += copy[i];
+		}
+
+		long max = maxMicros.get();
+		long elapsed = System.nanoTime() - start;
+		double rate = elapsed <= 0 ? 0 : (double) total * TimeUnit.SECONDS.toNanos(1) / elapsed;
+		double mean = total == 0 ? 0 : (double) totalMicros.get() / count.get();
+
+		return new MetricsSnapshot(name, total, errorCount.get(), rate, mean, getPercentile(copy, total, 0.5,
+		        max), getPercentile(copy, total, 0.95, max), getPercentile(copy, total, 0.99, max), max);
+	}
+
+	/**
+	 * Determines a percentile
+	 * 
+	 * @param counts
+	 *            the bucket counts
+	 * @param total
+	 *            the sum of the bucket counts
+	 * @param fraction
+	 *            the percentile (between 0 and 1)
+	 * @param max
+	 *            the highest recorded value
+	 * @return
+	 */
+	private static long getPercentile(long[] counts, long total, double fraction, long max) {
+		if (total == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(fraction * total);
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(getBucketUpperBound(i), max);
+			}
+		}
+		return max;
+	}
+}
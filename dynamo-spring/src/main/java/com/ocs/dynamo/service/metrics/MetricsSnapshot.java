@@ -0,0 +1,122 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.service.metrics;
+
+import java.io.Serializable;
+
+/**
+ * An immutable snapshot of the metrics of a single service method. All latencies are in
+ * microseconds
+ * 
+ * @author bas.rutten
+ */
+public class MetricsSnapshot implements Serializable {
+
+	private static final long serialVersionUID = 2829150420866574127L;
+
+	private final String name;
+
+	private final long count;
+
+	private final long errorCount;
+
+	private final double rate;
+
+	private final double mean;
+
+	private final long p50;
+
+	private final long p95;
+
+	private final long p99;
+
+	private final long max;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param name
+	 *            the name of the service method
+	 * @param count
+	 *            the number of calls
+	 * @param errorCount
+	 *            the number of calls that ended with an exception
+	 * @param rate
+	 *            the number of calls per second
+	 * @param mean
+	 *            the mean latency
+	 * @param p50
+	 *            the median latency
+	 * @param p95
+	 *            the 95th percentile
+	 * @param p99
+	 *            the 99th percentile
+	 * @param max
+	 *            the highest latency
+	 */
+	public MetricsSnapshot(String name, long count, long errorCount, double rate, double mean, long p50, long p95,
+	        long p99, long max) {
+		this.name = name;
+		this.count = count;
+		this.errorCount = errorCount;
+		this.rate = rate;
+		this.mean = mean;
+		this.p50 = p50;
+		this.p95 = p95;
+		this.p99 = p99;
+		this.max = max;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getErrorCount() {
+		return errorCount;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	public double getMean() {
+		return mean;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getP50() {
+		return p50;
+	}
+
+	public long getP95() {
+		return p95;
+	}
+
+	public long getP99() {
+		return p99;
+	}
+
+	public double getRate() {
+		return rate;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: count=%d, errors=%d, rate=%.2f/s, mean=%.0fus, p50=%dus, p95=%dus, p99=%dus, max=%dus",
+		        name, count, errorCount, rate, mean, p50, p95, p99, max);
+	}
+}
@@ -0,0 +1,170 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.service.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.ocs.dynamo.exception.OCSRuntimeException;
+
+/**
+ * Registry that keeps a latency histogram per entity class and service method. The histograms
+ * are stored per entity class first so that no keys have to be constructed when a call is
+ * recorded
+ * 
+ * @author bas.rutten
+ */
+public class ServiceMetrics implements ServiceMetricsMBean {
+
+	/**
+	 * The name under which the metrics are registered with JMX
+	 */
+	public static final String OBJECT_NAME = "com.ocs.dynamo:type=ServiceMetrics";
+
+	private final ConcurrentMap<Class<?>, ConcurrentMap<String, LatencyHistogram>> histograms = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the histogram for a service method, creating it if needed
+	 * 
+	 * @param entityClass
+	 *            the entity class of the service
+	 * @param method
+	 *            the name of the method
+	 * @return
+	 */
+	public LatencyHistogram getHistogram(Class<?> entityClass, String method) {
+		ConcurrentMap<String, LatencyHistogram> map = histograms.get(entityClass);
+		if (map == null) {
+			map = new ConcurrentHashMap<>();
+			ConcurrentMap<String, LatencyHistogram> existing = histograms.putIfAbsent(entityClass, map);
+			if (existing != null) {
+				map = existing;
+			}
+		}
+		LatencyHistogram histogram = map.get(method);
+		if (histogram == null) {
+			histogram = new LatencyHistogram();
+			LatencyHistogram existing = map.putIfAbsent(method, histogram);
+			if (existing != null) {
+				histogram = existing;
+			}
+		}
+		return histogram;
+	}
+
+	@Override
+	public String[] getMetrics() {
+		List<MetricsSnapshot> snapshots = getSnapshots();
+		String[] result = new String[snapshots.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = snapshots.get(i).toString();
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a snapshot of the metrics of a single service method
+	 * 
+	 * @param entityClass
+	 *            the entity class of the service
+	 * @param method
+	 *            the name of the method
+	 * @return the snapshot, or <code>null</code> if the method has not been called
+	 */
+	public MetricsSnapshot getSnapshot(Class<?> entityClass, String method) {
+		ConcurrentMap<String, LatencyHistogram> map = histograms.get(entityClass);
+		LatencyHistogram histogram = map == null ? null : map.get(method);
+		return histogram == null ? null : histogram.snapshot(entityClass.getSimpleName() + "." + method);
+	}
+
+	/**
+	 * Returns snapshots of the metrics of all service methods that have been called
+	 * 
+	 * @return
+	 */
+	public List<MetricsSnapshot> getSnapshots() {
+		List<MetricsSnapshot> result = new ArrayList<>();
+		for (Entry<Class<?>, ConcurrentMap<String, LatencyHistogram>> entry : histograms.entrySet()) {
+			for (Entry<String, LatencyHistogram> method : entry.getValue().entrySet()) {
+				result.add(method.getValue().snapshot(entry.getKey().getSimpleName() + "." + method.getKey()));
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public long getTotalCount() {
+		long total = 0;
+		for (MetricsSnapshot snapshot : getSnapshots()) {
+			total += snapshot.getCount();
+		}
+		return total;
+	}
+
+	@Override
+	public long getTotalErrorCount() {
+		long total = 0;
+		for (MetricsSnapshot snapshot : getSnapshots()) {
+			total += snapshot.getErrorCount();
+		}
+		return total;
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server
+	 */
+	public void registerMBean() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (!server.isRegistered(name)) {
+				server.registerMBean(this, name);
+			}
+		} catch (JMException ex) {
+			throw new OCSRuntimeException(ex.getMessage(), ex);
+		}
+	}
+
+	@Override
+	public void reset() {
+		for (ConcurrentMap<String, LatencyHistogram> map : histograms.values()) {
+			for (LatencyHistogram histogram : map.values()) {
+				histogram.reset();
+			}
+		}
+	}
+
+	/**
+	 * Removes the metrics from the platform MBean server
+	 */
+	public void unregisterMBean() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+		} catch (JMException ex) {
+			throw new OCSRuntimeException(ex.getMessage(), ex);
+		}
+	}
+}
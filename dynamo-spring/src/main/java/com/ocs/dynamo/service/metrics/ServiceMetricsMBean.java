@@ -0,0 +1,48 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.service.metrics;
+
+/**
+ * JMX interface for the service metrics
+ * 
+ * @author bas.rutten
+ */
+public interface ServiceMetricsMBean {
+
+	/**
+	 * Returns a description of the metrics of every service method that has been called
+	 * 
+	 * @return
+	 */
+	String[] getMetrics();
+
+	/**
+	 * Returns the total number of calls
+	 * 
+	 * @return
+	 */
+	long getTotalCount();
+
+	/**
+	 * Returns the total number of calls that ended with an exception
+	 * 
+	 * @return
+	 */
+	long getTotalErrorCount();
+
+	/**
+	 * Clears all metrics
+	 */
+	void reset();
+}
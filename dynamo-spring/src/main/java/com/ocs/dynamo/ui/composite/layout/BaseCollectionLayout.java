@@ -24,6 +24,7 @@ import org.apache.commons.lang.ObjectUtils;
 
 import com.ocs.dynamo.constants.DynamoConstants;
 import com.ocs.dynamo.dao.query.FetchJoinInformation;
+import com.ocs.dynamo.dao.query.FetchJoinPlanner;
 import com.ocs.dynamo.domain.AbstractEntity;
 import com.ocs.dynamo.domain.model.EntityModel;
 import com.ocs.dynamo.service.BaseService;
@@ -31,6 +32,8 @@ import com.ocs.dynamo.ui.component.DefaultHorizontalLayout;
 import com.ocs.dynamo.ui.composite.form.FormOptions;
 import com.ocs.dynamo.ui.composite.form.ModelBasedEditForm;
 import com.ocs.dynamo.ui.composite.table.BaseTableWrapper;
+import com.ocs.dynamo.ui.container.QueryType;
+import com.ocs.dynamo.utils.SystemPropertyUtils;
 import com.vaadin.data.Container;
 import com.vaadin.data.Property;
 import com.vaadin.data.Container.Filter;
@@ -259,6 +262,11 @@ public abstract class BaseCollectionLayout<ID extends Serializable, T extends Ab
 	}
 
 	public FetchJoinInformation[] getJoins() {
+		if (joins == null && SystemPropertyUtils.useFetchJoinPlanner()) {
+			// when the query type is unknown, assume the worst case (a paged query)
+			QueryType queryType = getQueryType();
+			joins = FetchJoinPlanner.createTableJoins(getEntityModel(), queryType == null || queryType.isPaged());
+		}
 		return joins;
 	}
 
@@ -266,6 +274,16 @@ public abstract class BaseCollectionLayout<ID extends Serializable, T extends Ab
 		return pageLength;
 	}
 
+	/**
+	 * Returns the type of the query that is used to fill the table - overwrite in subclass if
+	 * needed
+	 * 
+	 * @return the query type, or null if the table is not filled by a query
+	 */
+	public QueryType getQueryType() {
+		return null;
+	}
+
 	public T getSelectedItem() {
 		return selectedItem;
 	}
@@ -382,6 +400,9 @@ public abstract class BaseCollectionLayout<ID extends Serializable, T extends Ab
 	}
 
 	public FetchJoinInformation[] getDetailJoins() {
+		if (detailJoins == null && SystemPropertyUtils.useFetchJoinPlanner()) {
+			detailJoins = FetchJoinPlanner.createDetailJoins(getEntityModel());
+		}
 		return detailJoins;
 	}
 
@@ -212,6 +212,7 @@ public class ServiceBasedSplitLayout<ID extends Serializable, T extends Abstract
 		}
 	}
 
+	@Override
 	public QueryType getQueryType() {
 		return queryType;
 	}
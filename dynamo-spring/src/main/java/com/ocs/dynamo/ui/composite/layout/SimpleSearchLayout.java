@@ -609,6 +609,7 @@ public class SimpleSearchLayout<ID extends Serializable, T extends AbstractEntit
 		return nrOfColumns;
 	}
 
+	@Override
 	public QueryType getQueryType() {
 		return queryType;
 	}
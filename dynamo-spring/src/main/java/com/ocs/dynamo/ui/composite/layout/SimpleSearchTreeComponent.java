@@ -113,7 +113,18 @@ public class SimpleSearchTreeComponent<ID extends Serializable, T extends Abstra
 
 	@Override
 	public HierarchicalFetchJoinInformation[] getJoins() {
-		return (HierarchicalFetchJoinInformation[]) super.getJoins();
+		FetchJoinInformation[] joins = super.getJoins();
+		if (joins == null || joins instanceof HierarchicalFetchJoinInformation[]) {
+			return (HierarchicalFetchJoinInformation[]) joins;
+		}
+
+		// joins that are derived from the entity model are not hierarchical - they belong to the
+		// top level, since that is the level of the entity model of this component
+		HierarchicalFetchJoinInformation[] result = new HierarchicalFetchJoinInformation[joins.length];
+		for (int i = 0; i < joins.length; i++) {
+			result[i] = new HierarchicalFetchJoinInformation(0, joins[i].getProperty(), joins[i].getJoinType());
+		}
+		return result;
 	}
 
 	@Override
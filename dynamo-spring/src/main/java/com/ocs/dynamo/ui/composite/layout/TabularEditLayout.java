@@ -130,7 +130,7 @@ public class TabularEditLayout<ID extends Serializable, T extends AbstractEntity
 	public void build() {
 		this.filter = constructFilter();
 		if (mainLayout == null) {
-			setViewmode(!isEditAllowed() || getFormOptions().isOpenInViewMode());
+			setViewmode(!isContainerEditable() || getFormOptions().isOpenInViewMode());
 			mainLayout = new DefaultVerticalLayout(true, true);
 
 			initTable();
@@ -152,7 +152,7 @@ public class TabularEditLayout<ID extends Serializable, T extends AbstractEntity
 				}
 			});
 			getButtonBar().addComponent(addButton);
-			addButton.setVisible(!getFormOptions().isHideAddButton() && isEditAllowed() && !isViewmode());
+			addButton.setVisible(!getFormOptions().isHideAddButton() && isContainerEditable() && !isViewmode());
 
 			// remove button
 			removeButton = new RemoveButton() {
@@ -169,7 +169,7 @@ public class TabularEditLayout<ID extends Serializable, T extends AbstractEntity
 				}
 			};
 			getButtonBar().addComponent(removeButton);
-			removeButton.setVisible(!isViewmode() && getFormOptions().isShowRemoveButton());
+			removeButton.setVisible(!isViewmode() && getFormOptions().isShowRemoveButton() && isContainerEditable());
 			registerButton(removeButton);
 
 			// save button
@@ -204,7 +204,7 @@ public class TabularEditLayout<ID extends Serializable, T extends AbstractEntity
 				}
 
 			});
-			editButton.setVisible(isViewmode() && getFormOptions().isShowEditButton());
+			editButton.setVisible(isViewmode() && getFormOptions().isShowEditButton() && isContainerEditable());
 			getButtonBar().addComponent(editButton);
 
 			cancelButton = new Button(message("ocs.cancel"));
@@ -251,7 +251,7 @@ public class TabularEditLayout<ID extends Serializable, T extends AbstractEntity
 	@Override
 	protected BaseTableWrapper<ID, T> constructTableWrapper() {
 		ServiceResultsTableWrapper<ID, T> tableWrapper = new ServiceResultsTableWrapper<ID, T>(getService(),
-		        getEntityModel(), QueryType.ID_BASED, filter, getSortOrders(), getFormOptions().isTableExportAllowed(),
+		        getEntityModel(), getQueryType(), filter, getSortOrders(), getFormOptions().isTableExportAllowed(),
 		        getJoins()) {
 
 			@Override
@@ -411,11 +411,11 @@ public class TabularEditLayout<ID extends Serializable, T extends AbstractEntity
 	@SuppressWarnings("unchecked")
 	protected void toggleViewMode(boolean viewMode) {
 		setViewmode(viewMode);
-		getTableWrapper().getTable().setEditable(!isViewmode() && isEditAllowed());
+		getTableWrapper().getTable().setEditable(!isViewmode() && isContainerEditable());
 		saveButton.setVisible(!isViewmode());
-		addButton.setVisible(!isViewmode() && !getFormOptions().isHideAddButton() && isEditAllowed());
-		removeButton.setVisible(!isViewmode() && getFormOptions().isShowRemoveButton() && isEditAllowed());
-		editButton.setVisible(isViewmode() && getFormOptions().isShowEditButton() && isEditAllowed());
+		addButton.setVisible(!isViewmode() && !getFormOptions().isHideAddButton() && isContainerEditable());
+		removeButton.setVisible(!isViewmode() && getFormOptions().isShowRemoveButton() && isContainerEditable());
+		editButton.setVisible(isViewmode() && getFormOptions().isShowEditButton() && isContainerEditable());
 		cancelButton.setVisible(!isViewmode());
 
 		// create or remove any generated columns for correctly dealing with URL fields
@@ -431,6 +431,17 @@ public class TabularEditLayout<ID extends Serializable, T extends AbstractEntity
 		// not needed
 	}
 
+	/**
+	 * Indicates whether items can be added to, modified in and removed from the table. This is
+	 * never the case when the container uses a projection query, since its beans are only
+	 * partially populated (see {@link ServiceContainer#isProjection()})
+	 * 
+	 * @return
+	 */
+	private boolean isContainerEditable() {
+		return isEditAllowed() && !getContainer().isProjection();
+	}
+
 	/**
 	 * Method that is called to remove an item
 	 */
@@ -450,6 +461,11 @@ public class TabularEditLayout<ID extends Serializable, T extends AbstractEntity
 		return editButton;
 	}
 
+	@Override
+	public QueryType getQueryType() {
+		return QueryType.ID_BASED;
+	}
+
 	public Button getRemoveButton() {
 		return removeButton;
 	}
@@ -15,19 +15,24 @@ package com.ocs.dynamo.ui.composite.table;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import com.ocs.dynamo.constants.DynamoConstants;
+import com.ocs.dynamo.dao.query.Aggregate;
 import com.ocs.dynamo.dao.query.FetchJoinInformation;
 import com.ocs.dynamo.domain.AbstractEntity;
 import com.ocs.dynamo.domain.model.EntityModel;
 import com.ocs.dynamo.service.BaseService;
 import com.ocs.dynamo.ui.Searchable;
+import com.ocs.dynamo.ui.ServiceLocator;
 import com.ocs.dynamo.ui.container.QueryType;
 import com.ocs.dynamo.ui.container.ServiceContainer;
 import com.ocs.dynamo.ui.container.ServiceQueryDefinition;
 import com.vaadin.data.Container;
 import com.vaadin.data.Container.Filter;
 import com.vaadin.data.sort.SortOrder;
+import com.vaadin.ui.Table;
 
 /**
  * A wrapper for a table that retrieves its data directly from the database
@@ -48,6 +53,11 @@ public class ServiceResultsTableWrapper<ID extends Serializable, T extends Abstr
 	 */
 	private Filter filter;
 
+	/**
+	 * The aggregates that are displayed in the footer of the table
+	 */
+	private Aggregate[] totalAggregates;
+
 	/**
 	 * @param service
 	 *            the service object
@@ -73,6 +83,9 @@ public class ServiceResultsTableWrapper<ID extends Serializable, T extends Abstr
 		        getQueryType(), getJoins());
 		((ServiceQueryDefinition<ID, T>) container.getQueryView().getQueryDefinition())
 		        .setEntityModel(getEntityModel());
+		if (totalAggregates != null) {
+			container.setTotalAggregates(totalAggregates);
+		}
 		doConstructContainer(container);
 		return container;
 	}
@@ -85,10 +98,17 @@ public class ServiceResultsTableWrapper<ID extends Serializable, T extends Abstr
 		super.initSortingAndFiltering();
 	}
 
+	@Override
+	public void build() {
+		super.build();
+		updateTotals();
+	}
+
 	@Override
 	public void reloadContainer() {
 		if (getContainer() instanceof Searchable) {
 			((Searchable) getContainer()).search(filter);
+			updateTotals();
 		}
 	}
 
@@ -97,6 +117,43 @@ public class ServiceResultsTableWrapper<ID extends Serializable, T extends Abstr
 		Filter temp = beforeSearchPerformed(filter);
 		if (getContainer() instanceof Searchable) {
 			((Searchable) getContainer()).search(temp != null ? temp : filter);
+			updateTotals();
+		}
+	}
+
+	/**
+	 * Sets the aggregates (e.g. <code>Aggregate.sum("amount")</code>) that are displayed in the
+	 * footer of the table. The totals are calculated by the database for all rows that match the
+	 * current filter, so no pages have to be fetched to display them. Must be called before the
+	 * component is built
+	 * 
+	 * @param totalAggregates
+	 */
+	public void setTotalAggregates(Aggregate... totalAggregates) {
+		this.totalAggregates = totalAggregates;
+	}
+
+	/**
+	 * Displays the totals in the footer of the table
+	 */
+	@SuppressWarnings("unchecked")
+	protected void updateTotals() {
+		if (totalAggregates == null || totalAggregates.length == 0 || !(getContainer() instanceof ServiceContainer)) {
+			return;
+		}
+		Map<String, Object> totals = ((ServiceContainer<ID, T>) getContainer()).getTotals();
+		Table table = getTable();
+		table.setFooterVisible(true);
+		for (Entry<String, Object> entry : totals.entrySet()) {
+			String value = null;
+			if (entry.getValue() != null) {
+				value = TableUtils.formatPropertyValue(ServiceLocator.getEntityModelFactory(), getEntityModel(),
+				        ServiceLocator.getMessageService(), entry.getKey(), entry.getValue());
+				if (value == null) {
+					value = entry.getValue().toString();
+				}
+			}
+			table.setColumnFooter(entry.getKey(), value);
 		}
 	}
 
@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
@@ -49,6 +50,7 @@ import com.ocs.dynamo.service.MessageService;
 import com.ocs.dynamo.ui.ServiceLocator;
 import com.ocs.dynamo.ui.composite.table.ModelBasedTreeTable;
 import com.ocs.dynamo.ui.composite.table.TableUtils;
+import com.ocs.dynamo.ui.container.ServiceContainer;
 import com.ocs.dynamo.ui.container.hierarchical.ModelBasedHierarchicalContainer;
 import com.ocs.dynamo.utils.NumberUtils;
 import com.ocs.dynamo.utils.StringUtil;
@@ -545,11 +547,15 @@ public class TableExportActionHandler implements Handler {
 
 		/**
 		 * Adds a total rows to the bottom of the sheet - overwritten so that the columns can be
-		 * property aligned
+		 * property aligned. When the totals have been calculated by the database (see
+		 * ServiceContainer.getTotals), these values are written directly rather than as formulas,
+		 * which also works for streaming exports. Numeric columns without such a total still get
+		 * a SUM formula
 		 */
 		@Override
 		protected void addTotalsRow(final int currentRow, final int startRow) {
-			if (!isStreaming()) {
+			final Map<String, Object> serverTotals = getServerTotals();
+			if (!isStreaming() || serverTotals != null) {
 				totalsRow = sheet.createRow(currentRow);
 				totalsRow.setHeightInPoints(30);
 				Cell cell;
@@ -570,7 +576,12 @@ public class TableExportActionHandler implements Handler {
 						}
 
 						cra = new CellRangeAddress(startRow, currentRow - 1, col, col);
-						if (isHierarchical()) {
+						if (serverTotals != null && serverTotals.containsKey(propId)) {
+							Object total = serverTotals.get(propId);
+							if (total instanceof Number) {
+								cell.setCellValue(((Number) total).doubleValue());
+							}
+						} else if (isHierarchical()) {
 							// 9 & 109 are for sum. 9 means include hidden
 							// cells,
 							// 109 means exclude.
@@ -592,6 +603,20 @@ public class TableExportActionHandler implements Handler {
 			}
 		}
 
+		/**
+		 * Returns the totals that have been calculated by the database
+		 * 
+		 * @return the totals, or <code>null</code> if the container does not provide them
+		 */
+		private Map<String, Object> getServerTotals() {
+			Container container = getTableHolder().getContainerDataSource();
+			if (container instanceof ServiceContainer && !isHierarchical()) {
+				Map<String, Object> totals = ((ServiceContainer<?, ?>) container).getTotals();
+				return totals.isEmpty() ? null : totals;
+			}
+			return null;
+		}
+
 		/**
 		 * Overruled from parent class to support model based formatting. Method is private in
 		 * parent.
@@ -14,8 +14,6 @@
 package com.ocs.dynamo.ui.container;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -27,11 +25,8 @@ import com.ocs.dynamo.dao.SortOrder;
 import com.ocs.dynamo.domain.AbstractEntity;
 import com.ocs.dynamo.domain.model.EntityModel;
 import com.ocs.dynamo.filter.Filter;
-import com.ocs.dynamo.filter.FilterConverter;
 import com.ocs.dynamo.ui.ServiceLocator;
 import com.ocs.dynamo.utils.ClassUtils;
-import com.vaadin.data.Container;
-import com.vaadin.data.util.filter.And;
 
 /**
  * A lazy container query that retrieves data using a service
@@ -103,28 +98,8 @@ public abstract class BaseServiceQuery<ID extends Serializable, T extends Abstra
      * @return
      */
     protected Filter constructFilter() {
-        final List<Container.Filter> filters = new ArrayList<>();
-        filters.addAll(getCustomQueryDefinition().getDefaultFilters());
-        filters.addAll(getCustomQueryDefinition().getFilters());
-
-        Container.Filter first;
-        if (!filters.isEmpty()) {
-            first = filters.remove(0);
-        } else {
-            first = null;
-        }
-        while (!filters.isEmpty()) {
-            final Container.Filter filter = filters.remove(0);
-            first = new And(first, filter);
-        }
-
         // look up the correct entity model for filter conversion
-        EntityModel<T> em = getCustomQueryDefinition().getEntityModel();
-        if (em == null) {
-            em = ServiceLocator.getEntityModelFactory().getModel(
-                    getCustomQueryDefinition().getService().getEntityClass());
-        }
-        return new FilterConverter(em).convert(first);
+        return getCustomQueryDefinition().constructFilter(getEntityModel());
     }
 
     /**
@@ -164,19 +139,6 @@ public abstract class BaseServiceQuery<ID extends Serializable, T extends Abstra
         modifiedBeans.removeAll(removedBeans);
         addedBeans.removeAll(removedBeans);
 
-        getCustomQueryDefinition().getService().save(modifiedBeans);
-
-        // any beans that have not been persisted before don't actually have to
-        // be removed - remove them from the collection before saving
-        Iterator<T> it = removedBeans.iterator();
-        while (it.hasNext()) {
-            T t = it.next();
-            if (getCustomQueryDefinition().getService().findById(t.getId()) == null) {
-                it.remove();
-            }
-        }
-        getCustomQueryDefinition().getService().delete(removedBeans);
-
         // clear the IDs of the newly added bean and let the database assign
         // proper ones
         for (T added : addedBeans) {
@@ -186,7 +148,24 @@ public abstract class BaseServiceQuery<ID extends Serializable, T extends Abstra
         // reset the counter so we can start again
         countDown = 0;
 
-        getCustomQueryDefinition().getService().save(addedBeans);
+        // any beans that have not been persisted before don't actually have to
+        // be removed - these are skipped by the service
+        getCustomQueryDefinition().getService().saveChanges(addedBeans, modifiedBeans, removedBeans);
+    }
+
+    /**
+     * Returns the entity model from the query definition, or the default model for the entity
+     * class if the query definition does not specify one
+     * 
+     * @return
+     */
+    protected EntityModel<T> getEntityModel() {
+        EntityModel<T> em = getCustomQueryDefinition().getEntityModel();
+        if (em == null) {
+            em = ServiceLocator.getEntityModelFactory().getModel(
+                    getCustomQueryDefinition().getService().getEntityClass());
+        }
+        return em;
     }
 
     @SuppressWarnings("unchecked")
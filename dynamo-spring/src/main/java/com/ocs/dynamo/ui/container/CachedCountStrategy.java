@@ -0,0 +1,118 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.ui.container;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ocs.dynamo.domain.AbstractEntity;
+import com.ocs.dynamo.filter.Filter;
+import com.ocs.dynamo.service.BaseService;
+
+/**
+ * Count strategy that remembers the result of a count for a certain amount of time. The results
+ * are stored per entity class and filter, so switching back to a previous search does not lead to
+ * a new count query. The (exact) count itself is delegated to another strategy
+ * 
+ * @author bas.rutten
+ */
+public class CachedCountStrategy implements CountStrategy {
+
+    private static final long serialVersionUID = 2209457417410437458L;
+
+    private static final int MAX_ENTRIES = 20;
+
+    private final CountStrategy delegate;
+
+    private final long timeToLive;
+
+    // the cached counts - not serialized, the counts are simply performed again after
+    // deserialization
+    private transient Map<List<Object>, CachedCount> counts;
+
+    /**
+     * A count and the moment it was determined
+     */
+    private static final class CachedCount {
+
+        private final int count;
+
+        private final long timestamp;
+
+        CachedCount(int count, long timestamp) {
+            this.count = count;
+            this.timestamp = timestamp;
+        }
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param timeToLive
+     *            the time (in milliseconds) for which a count remains valid
+     */
+    public CachedCountStrategy(long timeToLive) {
+        this(new ExactCountStrategy(), timeToLive);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param delegate
+     *            the strategy that is used to perform the actual count
+     * @param timeToLive
+     *            the time (in milliseconds) for which a count remains valid
+     */
+    public CachedCountStrategy(CountStrategy delegate, long timeToLive) {
+        this.delegate = delegate;
+        this.timeToLive = timeToLive;
+    }
+
+    @Override
+    public synchronized <ID extends Serializable, T extends AbstractEntity<ID>> int count(
+            BaseService<ID, T> service, Filter filter) {
+        if (counts == null) {
+            counts = new LinkedHashMap<List<Object>, CachedCount>(16, 0.75f, true) {
+
+                private static final long serialVersionUID = -1738423465427364658L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<Object>, CachedCount> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+        }
+
+        List<Object> key = Arrays.<Object> asList(service.getEntityClass(), filter);
+        long now = System.currentTimeMillis();
+        CachedCount cached = counts.get(key);
+        if (cached == null || now - cached.timestamp > timeToLive) {
+            cached = new CachedCount(delegate.count(service, filter), now);
+            counts.put(key, cached);
+        }
+        return cached.count;
+    }
+
+    /**
+     * Removes all cached counts, e.g. after entities have been added or removed
+     */
+    public synchronized void invalidate() {
+        if (counts != null) {
+            counts.clear();
+        }
+    }
+}
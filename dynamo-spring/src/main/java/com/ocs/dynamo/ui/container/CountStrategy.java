@@ -0,0 +1,40 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.ui.container;
+
+import java.io.Serializable;
+
+import com.ocs.dynamo.domain.AbstractEntity;
+import com.ocs.dynamo.filter.Filter;
+import com.ocs.dynamo.service.BaseService;
+
+/**
+ * Strategy for determining the number of rows in a lazy query container
+ * 
+ * @author bas.rutten
+ */
+public interface CountStrategy extends Serializable {
+
+    /**
+     * Determines the number of entities that match the filter
+     * 
+     * @param service
+     *            the service used to perform the count
+     * @param filter
+     *            the filter
+     * @return
+     */
+    <ID extends Serializable, T extends AbstractEntity<ID>> int count(BaseService<ID, T> service,
+            Filter filter);
+}
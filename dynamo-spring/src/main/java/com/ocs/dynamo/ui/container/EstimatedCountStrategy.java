@@ -0,0 +1,65 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.ui.container;
+
+import java.io.Serializable;
+
+import com.ocs.dynamo.domain.AbstractEntity;
+import com.ocs.dynamo.filter.Filter;
+import com.ocs.dynamo.service.BaseService;
+
+/**
+ * Count strategy that stops counting once a maximum has been reached. When more rows match, the
+ * maximum is returned and {@link #isLimitReached()} returns <code>true</code>, so that the user
+ * interface can display "more than N results" and ask the user to refine the search
+ * 
+ * @author bas.rutten
+ */
+public class EstimatedCountStrategy implements CountStrategy {
+
+    private static final long serialVersionUID = 5349731569087723311L;
+
+    private final int maxCount;
+
+    private boolean limitReached;
+
+    /**
+     * Constructor
+     * 
+     * @param maxCount
+     *            the maximum number of rows to count
+     */
+    public EstimatedCountStrategy(int maxCount) {
+        this.maxCount = maxCount;
+    }
+
+    @Override
+    public <ID extends Serializable, T extends AbstractEntity<ID>> int count(
+            BaseService<ID, T> service, Filter filter) {
+        long count = service.countUpTo(filter, maxCount);
+        limitReached = count > maxCount;
+        return (int) Math.min(count, maxCount);
+    }
+
+    public int getMaxCount() {
+        return maxCount;
+    }
+
+    /**
+     * @return whether the last count exceeded the maximum
+     */
+    public boolean isLimitReached() {
+        return limitReached;
+    }
+}
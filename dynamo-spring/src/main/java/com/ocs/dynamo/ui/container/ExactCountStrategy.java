@@ -0,0 +1,36 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.ui.container;
+
+import java.io.Serializable;
+
+import com.ocs.dynamo.domain.AbstractEntity;
+import com.ocs.dynamo.filter.Filter;
+import com.ocs.dynamo.service.BaseService;
+
+/**
+ * Count strategy that always performs an exact count query
+ * 
+ * @author bas.rutten
+ */
+public class ExactCountStrategy implements CountStrategy {
+
+    private static final long serialVersionUID = -8290497235437925043L;
+
+    @Override
+    public <ID extends Serializable, T extends AbstractEntity<ID>> int count(
+            BaseService<ID, T> service, Filter filter) {
+        return (int) service.count(filter, false);
+    }
+}
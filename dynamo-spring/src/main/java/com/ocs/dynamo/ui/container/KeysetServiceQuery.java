@@ -0,0 +1,125 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.ui.container;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.ocs.dynamo.constants.DynamoConstants;
+import com.ocs.dynamo.dao.Keyset;
+import com.ocs.dynamo.dao.SortOrder;
+import com.ocs.dynamo.dao.SortOrders;
+import com.ocs.dynamo.domain.AbstractEntity;
+import com.ocs.dynamo.filter.Filter;
+import com.ocs.dynamo.utils.ClassUtils;
+
+/**
+ * A version of the PagingServiceQuery that uses keyset ("seek") pagination - when the next page
+ * is requested, the query continues from the sort values and ID of the last row of the previous
+ * page rather than skipping all preceding rows. When the container jumps to an arbitrary page
+ * (e.g. because the user drags the scroll bar) the query falls back to offset based paging
+ *
+ * @author bas.rutten
+ * @param <ID>
+ *            the type of the primary key
+ * @param <T>
+ *            the type of the entity
+ */
+public class KeysetServiceQuery<ID extends Serializable, T extends AbstractEntity<ID>> extends
+        PagingServiceQuery<ID, T> {
+
+    private static final long serialVersionUID = 4659172273914327102L;
+
+    // the position of the last row that was loaded
+    private Keyset lastKeyset;
+
+    // the index of the row that directly follows the last loaded row
+    private int nextIndex = -1;
+
+    /**
+     * Constructor
+     *
+     * @param queryDefinition
+     * @param queryConfiguration
+     */
+    public KeysetServiceQuery(ServiceQueryDefinition<ID, T> queryDefinition,
+            Map<String, Object> queryConfiguration) {
+        super(queryDefinition, queryConfiguration);
+    }
+
+    /**
+     * Constructs the keyset for the provided entity
+     *
+     * @param t
+     *            the entity
+     * @param orders
+     *            the sort orders - the last one is always the ID
+     * @return
+     */
+    private Keyset constructKeyset(T t, SortOrder[] orders) {
+        Object[] values = new Object[orders.length - 1];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = ClassUtils.getFieldValue(t, orders[i].getProperty());
+        }
+        return new Keyset(t.getId(), values);
+    }
+
+    /**
+     * Constructs the sort orders, and adds the ID as the final sort order (if it is not already
+     * there) so that the keyset and offset based queries use the same total ordering
+     */
+    @Override
+    protected SortOrder[] constructOrder() {
+        SortOrder[] orders = super.constructOrder();
+        if (orders.length > 0 && DynamoConstants.ID.equals(orders[orders.length - 1].getProperty())) {
+            return orders;
+        }
+        SortOrder[] result = Arrays.copyOf(orders, orders.length + 1);
+        result[orders.length] = new SortOrder(DynamoConstants.ID);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<T> loadBeans(int startIndex, int count) {
+        Filter serviceFilter = constructFilter();
+        SortOrders orders = new SortOrders(constructOrder());
+        ServiceQueryDefinition<ID, T> definition = getCustomQueryDefinition();
+
+        List<T> result;
+        if (startIndex == 0) {
+            result = definition.getService().fetchAfter(serviceFilter, null, count, orders,
+                    definition.getJoins());
+        } else if (startIndex == nextIndex && lastKeyset != null) {
+            result = definition.getService().fetchAfter(serviceFilter, lastKeyset, count, orders,
+                    definition.getJoins());
+        } else {
+            // random access - fall back to offset based paging
+            result = super.loadBeans(startIndex, count);
+        }
+
+        if (result.isEmpty()) {
+            lastKeyset = null;
+            nextIndex = -1;
+        } else {
+            lastKeyset = constructKeyset(result.get(result.size() - 1), orders.toArray());
+            nextIndex = startIndex + result.size();
+        }
+        return result;
+    }
+}
@@ -67,6 +67,7 @@ public class PagingServiceQuery<ID extends Serializable, T extends AbstractEntit
         if (getCustomQueryDefinition().getPredeterminedCount() != null) {
             return getCustomQueryDefinition().getPredeterminedCount();
         }
-        return (int) getCustomQueryDefinition().getService().count(constructFilter(), false);
+        return getCustomQueryDefinition().getCountStrategy().count(
+                getCustomQueryDefinition().getService(), constructFilter());
     }
 }
@@ -0,0 +1,127 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.ui.container;
+
+import java.io.Serializable;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.ocs.dynamo.dao.SortOrders;
+import com.ocs.dynamo.domain.AbstractEntity;
+import com.ocs.dynamo.domain.model.AttributeModel;
+import com.ocs.dynamo.domain.model.AttributeType;
+import com.ocs.dynamo.filter.Filter;
+
+/**
+ * A version of the PagingServiceQuery that only retrieves the properties that are visible in the
+ * table (according to the entity model) rather than the complete entities. The resulting beans
+ * are only partially populated, so this query can only be used for read-only tables. When the
+ * table displays a collection property, the query falls back to retrieving the complete entities
+ *
+ * @author bas.rutten
+ * @param <ID>
+ *            the type of the primary key
+ * @param <T>
+ *            the type of the entity
+ */
+public class ProjectionServiceQuery<ID extends Serializable, T extends AbstractEntity<ID>> extends
+        PagingServiceQuery<ID, T> {
+
+    private static final long serialVersionUID = -6306467735623381950L;
+
+    private static final String READ_ONLY_MESSAGE = "A container that uses a projection query is read-only";
+
+    // the properties to retrieve
+    private String[] properties;
+
+    // whether the properties have been determined
+    private boolean initialized;
+
+    /**
+     * Constructor
+     *
+     * @param queryDefinition
+     * @param queryConfiguration
+     */
+    public ProjectionServiceQuery(ServiceQueryDefinition<ID, T> queryDefinition,
+            Map<String, Object> queryConfiguration) {
+        super(queryDefinition, queryConfiguration);
+    }
+
+    /**
+     * New items cannot be added to a container that uses a projection query
+     */
+    @Override
+    protected T constructBean() {
+        throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+    }
+
+    /**
+     * Determines the properties to retrieve, based on the attributes that are visible in the
+     * table. Nested attributes (e.g. those of an embedded object) are covered by retrieving the
+     * top level property. Properties that are not persistent are skipped by the DAO
+     *
+     * @return the properties, or <code>null</code> if the projection cannot be used
+     */
+    protected String[] getProjectedProperties() {
+        if (!initialized) {
+            Set<String> result = new LinkedHashSet<>();
+            for (AttributeModel am : getEntityModel().getAttributeModels()) {
+                if (am.isVisibleInTable()) {
+                    if (AttributeType.DETAIL.equals(am.getAttributeType())
+                            || AttributeType.ELEMENT_COLLECTION.equals(am.getAttributeType())) {
+                        result = null;
+                        break;
+                    }
+                    int p = am.getPath().indexOf('.');
+                    result.add(p >= 0 ? am.getPath().substring(0, p) : am.getPath());
+                }
+            }
+            properties = result == null ? null : result.toArray(new String[0]);
+            initialized = true;
+        }
+        return properties;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<T> loadBeans(int startIndex, int count) {
+        String[] projected = getProjectedProperties();
+        if (projected == null) {
+            return super.loadBeans(startIndex, count);
+        }
+
+        Filter serviceFilter = constructFilter();
+        ServiceQueryDefinition<ID, T> definition = getCustomQueryDefinition();
+        return definition.getService().fetchProjection(serviceFilter,
+                startIndex / definition.getBatchSize(), definition.getBatchSize(),
+                new SortOrders(constructOrder()), projected);
+    }
+
+    /**
+     * The properties of the container are read-only and items cannot be added (see
+     * {@link ServiceContainer#isProjection()}), so there is normally nothing to save. This method
+     * is still called whenever the container is committed. Removed items are rejected here
+     */
+    @Override
+    protected void saveBeans(List<T> addedBeans, List<T> modifiedBeans, List<T> removedBeans) {
+        if (!addedBeans.isEmpty() || !modifiedBeans.isEmpty() || !removedBeans.isEmpty()) {
+            throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+        }
+    }
+}
@@ -14,12 +14,20 @@
 package com.ocs.dynamo.ui.container;
 
 import java.io.Serializable;
+import java.math.BigDecimal;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.apache.commons.lang.ObjectUtils;
 import org.vaadin.addons.lazyquerycontainer.LazyQueryContainer;
 import org.vaadin.addons.lazyquerycontainer.LazyQueryView;
 
+import com.ocs.dynamo.dao.query.Aggregate;
+import com.ocs.dynamo.dao.query.AggregateResult;
 import com.ocs.dynamo.dao.query.FetchJoinInformation;
 import com.ocs.dynamo.domain.AbstractEntity;
 import com.ocs.dynamo.domain.model.AttributeModel;
@@ -27,6 +35,7 @@ import com.ocs.dynamo.domain.model.EntityModel;
 import com.ocs.dynamo.domain.model.EntityModelFactory;
 import com.ocs.dynamo.service.BaseService;
 import com.ocs.dynamo.ui.Searchable;
+import com.ocs.dynamo.ui.ServiceLocator;
 import com.vaadin.data.sort.SortOrder;
 import com.vaadin.shared.data.sort.SortDirection;
 
@@ -49,6 +58,15 @@ public class ServiceContainer<ID extends Serializable, T extends AbstractEntity<
             LazyQueryView.DEBUG_PROPERTY_ID_BATCH_QUERY_TIME,
             LazyQueryView.DEBUG_PROPERTY_ID_QUERY_INDEX });
 
+    // the aggregates that make up the totals row
+    private Aggregate[] totalAggregates;
+
+    // the totals for the current filter - calculated on demand
+    private Map<String, Object> totals;
+
+    // the filter for which the totals were calculated
+    private com.ocs.dynamo.filter.Filter totalsFilter;
+
     /**
      * Constructs a service container based on a query definition
      * 
@@ -109,7 +127,8 @@ public class ServiceContainer<ID extends Serializable, T extends AbstractEntity<
     }
 
     /**
-     * Adds properties based on an EntityModel
+     * Adds properties based on an EntityModel. The properties are read-only when the container
+     * uses a projection query
      * 
      * @param model
      */
@@ -117,23 +136,121 @@ public class ServiceContainer<ID extends Serializable, T extends AbstractEntity<
         for (AttributeModel attributeModel : model.getAttributeModels()) {
             if (attributeModel.isVisibleInTable()) {
                 addContainerProperty(attributeModel.getName(), attributeModel.getType(),
-                        attributeModel.getDefaultValue(), attributeModel.isReadOnly(),
+                        attributeModel.getDefaultValue(), attributeModel.isReadOnly() || isProjection(),
                         attributeModel.isSortable());
             }
         }
     }
 
     /**
-     * Adds a single property based on an attribute model
+     * Adds a single property based on an attribute model. The property is read-only when the
+     * container uses a projection query
      * 
      * @param attributeModel
      */
     public void addContainerProperty(AttributeModel attributeModel) {
         addContainerProperty(attributeModel.getPath(), attributeModel.getType(),
-                attributeModel.getDefaultValue(), attributeModel.isReadOnly(),
+                attributeModel.getDefaultValue(), attributeModel.isReadOnly() || isProjection(),
                 attributeModel.isSortable());
     }
 
+    /**
+     * Calculates the totals by performing a single aggregate query
+     * 
+     * @param filter
+     *            the filter to apply
+     * @return
+     */
+    private Map<String, Object> computeTotals(com.ocs.dynamo.filter.Filter filter) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        List<AggregateResult> results = getCustomQueryDefinition().getService().aggregate(filter,
+                new String[0], totalAggregates);
+        if (!results.isEmpty()) {
+            for (int i = 0; i < totalAggregates.length; i++) {
+                String property = totalAggregates[i].getProperty();
+                result.put(property, convertTotal(results.get(0).getAggregateValue(i),
+                        getType(property)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Converts a total to the type of the property, so that it can be formatted in the same way
+     * as the property itself (sums of integers are returned as longs and averages as doubles)
+     * 
+     * @param value
+     *            the total
+     * @param type
+     *            the type of the property
+     * @return
+     */
+    private static Object convertTotal(Object value, Class<?> type) {
+        if (!(value instanceof Number) || type == null || type.isInstance(value)) {
+            return value;
+        }
+        Number number = (Number) value;
+        if (Integer.class.equals(type)) {
+            return (int) Math.round(number.doubleValue());
+        } else if (Long.class.equals(type)) {
+            return Math.round(number.doubleValue());
+        } else if (BigDecimal.class.equals(type)) {
+            return new BigDecimal(number.toString());
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ServiceQueryDefinition<ID, T> getCustomQueryDefinition() {
+        return (ServiceQueryDefinition<ID, T>) getQueryView().getQueryDefinition();
+    }
+
+    /**
+     * Returns the totals (one value per property) for all items that match the current filter.
+     * The totals are calculated by the database using a single aggregate query, so the items do
+     * not have to be loaded. The result is cached until the filter changes or the totals are
+     * invalidated
+     * 
+     * @return the totals, or an empty map if no total aggregates have been set
+     */
+    public Map<String, Object> getTotals() {
+        if (totalAggregates == null || totalAggregates.length == 0) {
+            return new LinkedHashMap<>();
+        }
+
+        ServiceQueryDefinition<ID, T> definition = getCustomQueryDefinition();
+        EntityModel<T> model = definition.getEntityModel();
+        if (model == null) {
+            model = ServiceLocator.getEntityModelFactory().getModel(
+                    definition.getService().getEntityClass());
+        }
+        com.ocs.dynamo.filter.Filter filter = definition.constructFilter(model);
+        if (totals == null || !ObjectUtils.equals(filter, totalsFilter)) {
+            totals = computeTotals(filter);
+            totalsFilter = filter;
+        }
+        return totals;
+    }
+
+    /**
+     * Discards the cached totals, e.g. after the data has been modified
+     */
+    public void invalidateTotals() {
+        totals = null;
+    }
+
+    /**
+     * Indicates whether the container uses a projection query. Such a container is read-only,
+     * since its beans are only partially populated
+     * 
+     * @return
+     */
+    public boolean isProjection() {
+        return getQueryView() != null
+                && getQueryView().getQueryDefinition() instanceof ServiceQueryDefinition<?, ?>
+                && QueryType.PROJECTION.equals(getCustomQueryDefinition().getQueryType());
+    }
+
     @Override
     public void search(Filter filter) {
         // warning: do not use "removeAllContainerFilters" here since this will
@@ -145,6 +262,7 @@ public class ServiceContainer<ID extends Serializable, T extends AbstractEntity<
         if (filter != null) {
             getQueryView().addFilter(filter);
         }
+        invalidateTotals();
         refresh();
     }
 
@@ -158,6 +276,31 @@ public class ServiceContainer<ID extends Serializable, T extends AbstractEntity<
         return null;
     }
 
+    /**
+     * Sets the aggregates that are used to calculate the totals (e.g.
+     * <code>Aggregate.sum("amount")</code>). The totals are kept per property, so every aggregate
+     * must refer to a property and there can be at most one aggregate per property
+     * 
+     * @param totalAggregates
+     */
+    public void setTotalAggregates(Aggregate... totalAggregates) {
+        if (totalAggregates != null) {
+            Set<String> properties = new HashSet<>();
+            for (Aggregate aggregate : totalAggregates) {
+                if (aggregate.getProperty() == null) {
+                    throw new IllegalArgumentException("Total aggregate " + aggregate
+                            + " does not refer to a property");
+                }
+                if (!properties.add(aggregate.getProperty())) {
+                    throw new IllegalArgumentException("More than one total aggregate for property "
+                            + aggregate.getProperty());
+                }
+            }
+        }
+        this.totalAggregates = totalAggregates;
+        this.totals = null;
+    }
+
     public void sort(SortOrder... sortOrder) {
         if (sortOrder != null && sortOrder.length > 0) {
             Object[] pIds = new Object[sortOrder.length];
@@ -14,6 +14,8 @@
 package com.ocs.dynamo.ui.container;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.vaadin.addons.lazyquerycontainer.LazyQueryDefinition;
 
@@ -21,7 +23,11 @@ import com.ocs.dynamo.constants.DynamoConstants;
 import com.ocs.dynamo.dao.query.FetchJoinInformation;
 import com.ocs.dynamo.domain.AbstractEntity;
 import com.ocs.dynamo.domain.model.EntityModel;
+import com.ocs.dynamo.filter.Filter;
+import com.ocs.dynamo.filter.FilterConverter;
 import com.ocs.dynamo.service.BaseService;
+import com.vaadin.data.Container;
+import com.vaadin.data.util.filter.And;
 
 /**
  * @author bas.rutten Base class for a query definition that uses a service for data retrieval
@@ -46,6 +52,8 @@ public class ServiceQueryDefinition<ID extends Serializable, T extends AbstractE
 
 	private EntityModel<T> entityModel;
 
+	private CountStrategy countStrategy = new ExactCountStrategy();
+
 	/**
 	 * Constructor
 	 * 
@@ -92,6 +100,29 @@ public class ServiceQueryDefinition<ID extends Serializable, T extends AbstractE
 		setMaxNestedPropertyDepth(maxNestedPropertyDepth);
 	}
 
+	/**
+	 * Combines the default filters and the filters that have been added to the container into a
+	 * single search filter
+	 * 
+	 * @param model
+	 *            the entity model that is used to convert the filters
+	 * @return
+	 */
+	public Filter constructFilter(EntityModel<T> model) {
+		final List<Container.Filter> filters = new ArrayList<>();
+		filters.addAll(getDefaultFilters());
+		filters.addAll(getFilters());
+
+		Container.Filter combined = null;
+		if (filters.size() == 1) {
+			combined = filters.get(0);
+		} else if (!filters.isEmpty()) {
+			combined = new And(filters.toArray(new Container.Filter[filters.size()]));
+		}
+
+		return new FilterConverter(model).convert(combined);
+	}
+
 	public BaseService<ID, T> getService() {
 		return service;
 	}
@@ -121,6 +152,20 @@ public class ServiceQueryDefinition<ID extends Serializable, T extends AbstractE
 		this.predeterminedCount = predeterminedCount;
 	}
 
+	public CountStrategy getCountStrategy() {
+		return countStrategy;
+	}
+
+	/**
+	 * Sets the strategy that is used to determine the number of rows. By default, an exact count
+	 * is performed every time the container is refreshed
+	 * 
+	 * @param countStrategy
+	 */
+	public void setCountStrategy(CountStrategy countStrategy) {
+		this.countStrategy = countStrategy;
+	}
+
 	public EntityModel<T> getEntityModel() {
 		return entityModel;
 	}
@@ -44,6 +44,12 @@ public class ServiceQueryFactory<ID extends Serializable, T extends AbstractEnti
         case ID_BASED:
             return new IdBasedServiceQuery<ID, T>((ServiceQueryDefinition<ID, T>) queryDefinition,
                     null);
+        case KEYSET:
+            return new KeysetServiceQuery<ID, T>((ServiceQueryDefinition<ID, T>) queryDefinition,
+                    null);
+        case PROJECTION:
+            return new ProjectionServiceQuery<ID, T>(
+                    (ServiceQueryDefinition<ID, T>) queryDefinition, null);
         default:
             return null;
         }
@@ -21,13 +21,14 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.validation.constraints.Size;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.reflect.FieldUtils;
-import org.apache.commons.lang.reflect.MethodUtils;
 import org.apache.log4j.Logger;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.annotation.AnnotationUtils;
@@ -48,6 +49,21 @@ public final class ClassUtils {
 
     private static final String SET = "set";
 
+    // the names of the public methods of a class
+    private static final ClassValue<Set<String>> PUBLIC_METHOD_NAMES = new ClassValue<Set<String>>() {
+
+        @Override
+        protected Set<String> computeValue(Class<?> type) {
+            Set<String> result = new HashSet<>();
+            for (Method method : type.getMethods()) {
+                if (Modifier.isPublic(method.getModifiers())) {
+                    result.add(method.getName());
+                }
+            }
+            return result;
+        }
+    };
+
     private ClassUtils() {
     }
 
@@ -62,22 +78,15 @@ public final class ClassUtils {
      * @return
      */
     public static boolean canSetProperty(Object obj, String fieldName) {
-        try {
-            int p = fieldName.indexOf(".");
-            if (p >= 0) {
-                String firstProperty = fieldName.substring(0, p);
-                Object first = MethodUtils.invokeMethod(obj,
-                        GET + StringUtils.capitalize(firstProperty), new Object[] {});
-                if (first != null) {
-                    return canSetProperty(first, fieldName.substring(p + 1));
-                }
-                return false;
-            } else {
-                return hasMethod(obj, SET + StringUtils.capitalize(fieldName));
+        int p = fieldName.indexOf(".");
+        if (p >= 0) {
+            Object first = getFieldValue(obj, fieldName.substring(0, p));
+            if (first != null) {
+                return canSetProperty(first, fieldName.substring(p + 1));
             }
-        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
-            throw new OCSRuntimeException(e.getMessage(), e);
+            return false;
         }
+        return PropertyAccessor.forProperty(obj.getClass(), fieldName).isWritable();
     }
 
     /**
@@ -93,9 +102,7 @@ public final class ClassUtils {
         try {
             int p = fieldName.indexOf(".");
             if (p >= 0) {
-                String firstProperty = fieldName.substring(0, p);
-                Object first = MethodUtils.invokeMethod(obj,
-                        GET + StringUtils.capitalize(firstProperty), new Object[] {});
+                Object first = getFieldValue(obj, fieldName.substring(0, p));
                 if (first != null) {
                     clearFieldValue(first, fieldName.substring(p + 1), argType);
                 }
@@ -321,7 +328,8 @@ public final class ClassUtils {
     }
 
     /**
-     * Retrieves a field value
+     * Retrieves a field value. This method supports nested properties, and returns
+     * <code>null</code> when one of the intermediate values is <code>null</code>
      * 
      * @param obj
      *            the object from which to retrieve the field value
@@ -330,27 +338,7 @@ public final class ClassUtils {
      * @return
      */
     public static Object getFieldValue(Object obj, String fieldName) {
-        try {
-            int p = fieldName.indexOf(".");
-            if (p >= 0) {
-                String firstProperty = fieldName.substring(0, p);
-                Object first = MethodUtils.invokeMethod(obj,
-                        GET + StringUtils.capitalize(firstProperty), new Object[] {});
-                return getFieldValue(first, fieldName.substring(p + 1));
-            } else {
-                if (hasMethod(obj, GET + StringUtils.capitalize(fieldName))) {
-                    // first check for a getter
-                    return MethodUtils.invokeMethod(obj, GET + StringUtils.capitalize(fieldName),
-                            new Object[] {});
-                } else {
-                    // next, check for an "is" method in case of a boolean
-                    return MethodUtils.invokeMethod(obj, IS + StringUtils.capitalize(fieldName),
-                            new Object[] {});
-                }
-            }
-        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
-            throw new OCSRuntimeException("Error getting of " + obj + ":" + e.getMessage(), e);
-        }
+        return PropertyPath.of(fieldName).getValue(obj);
     }
 
     public static String getFieldValueAsString(Object obj, String fieldName) {
@@ -432,7 +420,8 @@ public final class ClassUtils {
      * based; for example given the type Map<Integer, List<String>>, getGeneric(0) will access the
      * Integer. Nested generics can be accessed by specifying multiple indexes; for example
      * getGeneric(1, 0) will access the String from the nested List. For convenience, if no indexes
-     * are specified the first generic is returned.
+     * are specified the first generic is returned. Type variables are resolved against the provided
+     * type (e.g. for a field that is declared by a generic superclass)
      * 
      * @param type
      * @param fieldName
@@ -442,7 +431,7 @@ public final class ClassUtils {
     public static <T> Class<?> getResolvedType(Class<T> type, String fieldName, int... indexes) {
         Field field = getField(type, fieldName);
         if (field != null) {
-            ResolvableType rt = ResolvableType.forField(field);
+            ResolvableType rt = ResolvableType.forField(field, type);
             if (rt != null) {
                 if (indexes != null && indexes.length > 0) {
                     rt = rt.getGeneric(indexes);
@@ -464,13 +453,7 @@ public final class ClassUtils {
      * @return
      */
     public static boolean hasMethod(Object obj, String methodName) {
-        Method[] methods = obj.getClass().getMethods();
-        for (Method method : methods) {
-            if (method.getName().equals(methodName) && (Modifier.isPublic(method.getModifiers()))) {
-                return true;
-            }
-        }
-        return false;
+        return PUBLIC_METHOD_NAMES.get(obj.getClass()).contains(methodName);
     }
 
     /**
@@ -505,21 +488,10 @@ public final class ClassUtils {
      */
     public static void setFieldValue(Object obj, String fieldName, Object value) {
         try {
-            int p = fieldName.indexOf(".");
-            if (p >= 0) {
-                String firstProperty = fieldName.substring(0, p);
-                Object first = MethodUtils.invokeMethod(obj,
-                        GET + StringUtils.capitalize(firstProperty), new Object[] {});
-                if (first != null) {
-                    setFieldValue(first, fieldName.substring(p + 1), value);
-                }
-            } else {
-                MethodUtils.invokeMethod(obj, SET + StringUtils.capitalize(fieldName),
-                        new Object[] { value });
-            }
-        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            PropertyPath.of(fieldName).setValue(obj, value);
+        } catch (OCSRuntimeException e) {
             LOG.error(e.getMessage(), e);
-            throw new OCSRuntimeException(e.getMessage(), e);
+            throw e;
         }
     }
 
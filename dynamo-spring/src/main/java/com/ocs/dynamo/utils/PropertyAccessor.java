@@ -0,0 +1,222 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.reflect.MethodUtils;
+
+import com.ocs.dynamo.exception.OCSRuntimeException;
+
+/**
+ * Provides fast access to a (non-nested) property of a class. The getter and setter are looked up
+ * only once per class and property and are converted to method handles, so that reading or
+ * writing a property costs little more than a direct method call. Accessors are cached per class
+ * (using a ClassValue, so that classes can still be unloaded)
+ * 
+ * @author bas.rutten
+ */
+public final class PropertyAccessor {
+
+    private static final String GET = "get";
+
+    private static final String IS = "is";
+
+    private static final String SET = "set";
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class,
+            Object.class);
+
+    private static final ClassValue<ConcurrentMap<String, PropertyAccessor>> ACCESSORS =
+            new ClassValue<ConcurrentMap<String, PropertyAccessor>>() {
+
+        @Override
+        protected ConcurrentMap<String, PropertyAccessor> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private final Class<?> type;
+
+    private final String property;
+
+    // the getter, or null if there is no getter
+    private final MethodHandle getter;
+
+    // the setter, or null if there is no setter or the setter is overloaded
+    private final MethodHandle setter;
+
+    // the (wrapped) parameter type of the setter
+    private final Class<?> setterType;
+
+    // whether there is at least one setter
+    private final boolean writable;
+
+    /**
+     * Constructor
+     * 
+     * @param type
+     *            the class
+     * @param property
+     *            the name of the property
+     */
+    private PropertyAccessor(Class<?> type, String property) {
+        this.type = type;
+        this.property = property;
+
+        String capitalized = StringUtils.capitalize(property);
+        Method get = null;
+        Method is = null;
+        Method set = null;
+        int setters = 0;
+        for (Method method : type.getMethods()) {
+            if (method.isBridge()) {
+                continue;
+            }
+            String name = method.getName();
+            int count = method.getParameterTypes().length;
+            if (count == 0 && name.equals(GET + capitalized)) {
+                get = method;
+            } else if (count == 0 && name.equals(IS + capitalized)) {
+                is = method;
+            } else if (count == 1 && name.equals(SET + capitalized)) {
+                set = method;
+                setters++;
+            }
+        }
+
+        this.getter = get != null ? toHandle(get, GETTER_TYPE) : is != null ? toHandle(is, GETTER_TYPE) : null;
+        this.writable = setters > 0;
+        if (setters == 1) {
+            this.setter = toHandle(set, SETTER_TYPE);
+            this.setterType = org.apache.commons.lang.ClassUtils.primitiveToWrapper(set.getParameterTypes()[0]);
+        } else {
+            this.setter = null;
+            this.setterType = null;
+        }
+    }
+
+    /**
+     * Returns the accessor for a property of a class
+     * 
+     * @param type
+     *            the class
+     * @param property
+     *            the name of the (non-nested) property
+     * @return
+     */
+    public static PropertyAccessor forProperty(Class<?> type, String property) {
+        ConcurrentMap<String, PropertyAccessor> accessors = ACCESSORS.get(type);
+        PropertyAccessor result = accessors.get(property);
+        if (result == null) {
+            result = new PropertyAccessor(type, property);
+            PropertyAccessor existing = accessors.putIfAbsent(property, result);
+            if (existing != null) {
+                result = existing;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Converts a method to a method handle of the provided (generic) type
+     * 
+     * @param method
+     *            the method
+     * @param methodType
+     *            the type of the resulting handle
+     * @return
+     */
+    private static MethodHandle toHandle(Method method, MethodType methodType) {
+        try {
+            // the method is public but the declaring class might not be
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method).asType(methodType);
+        } catch (IllegalAccessException | SecurityException e) {
+            throw new OCSRuntimeException(e.getMessage(), e);
+        }
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * Retrieves the value of the property, using the "get" method or (if there is none) the "is"
+     * method
+     * 
+     * @param obj
+     *            the object
+     * @return
+     */
+    public Object getValue(Object obj) {
+        if (getter == null) {
+            throw new OCSRuntimeException("Error getting of " + obj + ": no getter for property " + property);
+        }
+        try {
+            return (Object) getter.invokeExact(obj);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new OCSRuntimeException("Error getting of " + obj + ":" + e.getMessage(), e);
+        }
+    }
+
+    public boolean isReadable() {
+        return getter != null;
+    }
+
+    public boolean isWritable() {
+        return writable;
+    }
+
+    /**
+     * Sets the value of the property. When the setter is overloaded or the value does not match
+     * the parameter type exactly (e.g. a widening conversion is required), the setter is looked up
+     * based on the type of the value
+     * 
+     * @param obj
+     *            the object
+     * @param value
+     *            the new value
+     */
+    public void setValue(Object obj, Object value) {
+        try {
+            if (setter != null && (value == null || setterType.isInstance(value))) {
+                setter.invokeExact(obj, value);
+            } else {
+                MethodUtils.invokeMethod(obj, SET + StringUtils.capitalize(property), new Object[] { value });
+            }
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new OCSRuntimeException(e.getMessage(), e);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new OCSRuntimeException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * A (possibly nested) property path such as "a.b.c". The path is split into its segments only
+ * once, and the property accessors that are needed to traverse the path are cached per root class,
+ * so that reading a value from a large number of objects does not require any string handling,
+ * reflection or object allocation. Traversal is null-safe: when one of the intermediate values is
+ * <code>null</code>, the value of the path is <code>null</code>
+ * 
+ * @author bas.rutten
+ */
+public final class PropertyPath {
+
+    private static final ConcurrentMap<String, PropertyPath> PATHS = new ConcurrentHashMap<>();
+
+    private final String path;
+
+    private final String[] segments;
+
+    // the accessor chain per root class. The accessors are resolved lazily, since the class of an
+    // intermediate value is only known once the path is traversed
+    private final ClassValue<PropertyAccessor[]> chains = new ClassValue<PropertyAccessor[]>() {
+
+        @Override
+        protected PropertyAccessor[] computeValue(Class<?> type) {
+            PropertyAccessor[] chain = new PropertyAccessor[segments.length];
+            chain[0] = PropertyAccessor.forProperty(type, segments[0]);
+            return chain;
+        }
+    };
+
+    /**
+     * Constructor
+     * 
+     * @param path
+     *            the path
+     */
+    private PropertyPath(String path) {
+        this.path = path;
+        this.segments = StringUtils.split(path, '.');
+        if (segments.length == 0) {
+            throw new IllegalArgumentException("Empty property path: '" + path + "'");
+        }
+    }
+
+    /**
+     * Returns the property path for the provided string
+     * 
+     * @param path
+     *            the path, with the segments separated by dots
+     * @return
+     */
+    public static PropertyPath of(String path) {
+        PropertyPath result = PATHS.get(path);
+        if (result == null) {
+            result = new PropertyPath(path);
+            PropertyPath existing = PATHS.putIfAbsent(path, result);
+            if (existing != null) {
+                result = existing;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the accessor for the segment with the provided index. The cached accessor is used
+     * when it applies to the object, otherwise (e.g. when the object is a subclass or proxy of a
+     * different type) the accessor is looked up for the class of the object and cached
+     * 
+     * @param chain
+     *            the accessor chain
+     * @param index
+     *            the index of the segment
+     * @param obj
+     *            the (non-null) object to which the segment is applied
+     * @return
+     */
+    private PropertyAccessor getAccessor(PropertyAccessor[] chain, int index, Object obj) {
+        PropertyAccessor accessor = chain[index];
+        if (accessor == null || !accessor.getType().isInstance(obj)) {
+            // the accessor is immutable, so a racy update is harmless
+            accessor = PropertyAccessor.forProperty(obj.getClass(), segments[index]);
+            chain[index] = accessor;
+        }
+        return accessor;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the segments of the path. The returned array must not be modified
+     * 
+     * @return
+     */
+    public String[] getSegments() {
+        return segments;
+    }
+
+    /**
+     * Returns the value of the path for the provided object
+     * 
+     * @param root
+     *            the object
+     * @return the value, or <code>null</code> if the object or one of the intermediate values is
+     *         <code>null</code>
+     */
+    public Object getValue(Object root) {
+        if (root == null) {
+            return null;
+        }
+        PropertyAccessor[] chain = chains.get(root.getClass());
+        Object current = root;
+        for (int i = 0; i < segments.length && current != null; i++) {
+            current = getAccessor(chain, i, current).getValue(current);
+        }
+        return current;
+    }
+
+    public boolean isNested() {
+        return segments.length > 1;
+    }
+
+    /**
+     * Sets the value of the path for the provided object. Nothing happens when one of the
+     * intermediate values is <code>null</code>
+     * 
+     * @param root
+     *            the object
+     * @param value
+     *            the new value
+     */
+    public void setValue(Object root, Object value) {
+        if (root == null) {
+            return;
+        }
+        PropertyAccessor[] chain = chains.get(root.getClass());
+        Object current = root;
+        int last = segments.length - 1;
+        for (int i = 0; i < last && current != null; i++) {
+            current = getAccessor(chain, i, current).getValue(current);
+        }
+        if (current != null) {
+            getAccessor(chain, last, current).setValue(current, value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
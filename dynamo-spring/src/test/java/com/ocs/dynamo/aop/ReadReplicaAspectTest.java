@@ -0,0 +1,150 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.aop;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ocs.dynamo.constants.DynamoConstants;
+import com.ocs.dynamo.dao.routing.DataSourceContext;
+import com.ocs.dynamo.dao.routing.DataSourceType;
+import com.ocs.dynamo.test.BaseMockitoTest;
+
+public class ReadReplicaAspectTest extends BaseMockitoTest {
+
+    @Mock
+    private ProceedingJoinPoint joinPoint;
+
+    @Mock
+    private MethodSignature signature;
+
+    @After
+    public void tearDown() {
+        DataSourceContext.restore(null);
+        System.clearProperty(DynamoConstants.SP_READ_REPLICA);
+        System.clearProperty(DynamoConstants.SP_REPLICA_SERVICES);
+    }
+
+    /**
+     * Calls a method of the RoutedService through the aspect
+     * 
+     * @param aspect
+     *            the aspect
+     * @param methodName
+     *            the name of the method
+     * @return the data source type that was in effect during the call
+     */
+    private DataSourceType route(ReadReplicaAspect aspect, String methodName) throws Throwable {
+        Mockito.reset(joinPoint, signature);
+        Mockito.when(joinPoint.getTarget()).thenReturn(new RoutedService());
+        Mockito.when(joinPoint.getSignature()).thenReturn(signature);
+        Mockito.when(signature.getMethod()).thenReturn(RoutedService.class.getMethod(methodName));
+        Mockito.when(joinPoint.proceed()).thenAnswer(new Answer<DataSourceType>() {
+
+            @Override
+            public DataSourceType answer(InvocationOnMock invocation) {
+                return DataSourceContext.get();
+            }
+        });
+        return (DataSourceType) aspect.route(joinPoint);
+    }
+
+    @Test
+    public void testRoute() throws Throwable {
+        System.setProperty(DynamoConstants.SP_READ_REPLICA, "true");
+        ReadReplicaAspect aspect = new ReadReplicaAspect();
+        Assert.assertTrue(aspect.isEnabled());
+
+        Assert.assertEquals(DataSourceType.REPLICA, route(aspect, "read"));
+        Assert.assertEquals(DataSourceType.PRIMARY, route(aspect, "plain"));
+        Assert.assertNull(DataSourceContext.get());
+
+        // a write is registered so that the session does not read stale data from the replica
+        Assert.assertEquals(DataSourceType.PRIMARY, route(aspect, "write"));
+        Assert.assertTrue(DataSourceContext.getMillisSinceLastWrite() < 60000L);
+    }
+
+    @Test
+    public void testRoute_FailedWrite() throws Throwable {
+        System.setProperty(DynamoConstants.SP_READ_REPLICA, "true");
+        ReadReplicaAspect aspect = new ReadReplicaAspect();
+
+        DataSourceContext.bindSession(new AtomicLong());
+        try {
+            Mockito.when(joinPoint.getTarget()).thenReturn(new RoutedService());
+            Mockito.when(joinPoint.getSignature()).thenReturn(signature);
+            Mockito.when(signature.getMethod()).thenReturn(RoutedService.class.getMethod("write"));
+            Mockito.when(joinPoint.proceed()).thenThrow(new IllegalStateException());
+            try {
+                aspect.route(joinPoint);
+                Assert.fail();
+            } catch (IllegalStateException ex) {
+                // expected
+            }
+
+            // nothing was written, so the session can keep using the replica
+            Assert.assertNull(DataSourceContext.get());
+            Assert.assertTrue(DataSourceContext.getMillisSinceLastWrite() > 60000L);
+        } finally {
+            DataSourceContext.unbindSession();
+        }
+    }
+
+    @Test
+    public void testRoute_ReplicaService() throws Throwable {
+        System.setProperty(DynamoConstants.SP_READ_REPLICA, "true");
+        System.setProperty(DynamoConstants.SP_REPLICA_SERVICES, "RoutedService");
+        ReadReplicaAspect aspect = new ReadReplicaAspect();
+
+        // non-transactional methods of a listed service use the replica
+        Assert.assertEquals(DataSourceType.REPLICA, route(aspect, "plain"));
+        Assert.assertEquals(DataSourceType.PRIMARY, route(aspect, "write"));
+    }
+
+    @Test
+    public void testDisabled() throws Throwable {
+        ReadReplicaAspect aspect = new ReadReplicaAspect();
+        Assert.assertFalse(aspect.isEnabled());
+
+        Assert.assertNull(route(aspect, "read"));
+        Mockito.verify(joinPoint).proceed();
+    }
+
+    public static class RoutedService {
+
+        @Transactional(readOnly = true)
+        public void read() {
+            // read-only
+        }
+
+        @Transactional
+        public void write() {
+            // read-write
+        }
+
+        public void plain() {
+            // not transactional
+        }
+    }
+}
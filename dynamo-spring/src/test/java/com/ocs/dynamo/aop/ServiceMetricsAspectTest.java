@@ -0,0 +1,109 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.aop;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.aop.aspectj.AspectJExpressionPointcut;
+
+import com.ocs.dynamo.constants.DynamoConstants;
+import com.ocs.dynamo.dao.SortOrder;
+import com.ocs.dynamo.dao.query.FetchJoinInformation;
+import com.ocs.dynamo.domain.TestEntity;
+import com.ocs.dynamo.filter.Filter;
+import com.ocs.dynamo.service.TestEntityService;
+import com.ocs.dynamo.service.impl.TestEntityServiceImpl;
+import com.ocs.dynamo.service.metrics.MetricsSnapshot;
+import com.ocs.dynamo.test.BaseMockitoTest;
+
+public class ServiceMetricsAspectTest extends BaseMockitoTest {
+
+    @Mock
+    private ProceedingJoinPoint joinPoint;
+
+    @Mock
+    private Signature signature;
+
+    @Mock
+    private TestEntityService service;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        Mockito.when(joinPoint.getSignature()).thenReturn(signature);
+        Mockito.when(signature.getName()).thenReturn("fetch");
+        Mockito.when(service.getEntityClass()).thenReturn(TestEntity.class);
+    }
+
+    @Test
+    public void testMeasure() throws Throwable {
+        System.setProperty(DynamoConstants.SP_SERVICE_METRICS, "true");
+        try {
+            ServiceMetricsAspect aspect = new ServiceMetricsAspect();
+            Assert.assertTrue(aspect.isEnabled());
+
+            aspect.measure(joinPoint, service);
+
+            Mockito.when(joinPoint.proceed()).thenThrow(new IllegalStateException());
+            try {
+                aspect.measure(joinPoint, service);
+                Assert.fail();
+            } catch (IllegalStateException ex) {
+                // expected
+            }
+
+            MetricsSnapshot snapshot = aspect.getMetrics().getSnapshot(TestEntity.class, "fetch");
+            Assert.assertEquals("TestEntity.fetch", snapshot.getName());
+            Assert.assertEquals(2, snapshot.getCount());
+            Assert.assertEquals(1, snapshot.getErrorCount());
+            Assert.assertEquals(1, aspect.getMetrics().getMetrics().length);
+        } finally {
+            System.clearProperty(DynamoConstants.SP_SERVICE_METRICS);
+        }
+    }
+
+    @Test
+    public void testDisabled() throws Throwable {
+        ServiceMetricsAspect aspect = new ServiceMetricsAspect();
+        Assert.assertFalse(aspect.isEnabled());
+
+        aspect.measure(joinPoint, service);
+        Mockito.verify(joinPoint).proceed();
+        Assert.assertTrue(aspect.getMetrics().getSnapshots().isEmpty());
+    }
+
+    @Test
+    public void testPointcut() throws NoSuchMethodException {
+        AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+        pointcut.setPointcutDeclarationScope(ServiceMetricsAspect.class);
+        pointcut.setExpression("anyMeasuredMethod()");
+
+        Assert.assertTrue(pointcut.matches(
+                TestEntityServiceImpl.class.getMethod("fetch", Filter.class, FetchJoinInformation[].class),
+                TestEntityServiceImpl.class));
+        Assert.assertTrue(pointcut.matches(TestEntityServiceImpl.class.getMethod("count"),
+                TestEntityServiceImpl.class));
+
+        // the asynchronous methods only submit the work
+        Assert.assertFalse(pointcut.matches(
+                TestEntityServiceImpl.class.getMethod("countAsync", Filter.class, boolean.class),
+                TestEntityServiceImpl.class));
+        Assert.assertFalse(pointcut.matches(TestEntityServiceImpl.class.getMethod("findIdsAsync",
+                Filter.class, SortOrder[].class), TestEntityServiceImpl.class));
+    }
+}
@@ -0,0 +1,94 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.aop;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+import com.ocs.dynamo.constants.DynamoConstants;
+import com.ocs.dynamo.dao.monitor.StatementListener;
+import com.ocs.dynamo.dao.monitor.StatementMonitor;
+import com.ocs.dynamo.dao.monitor.StatementStatistics;
+import com.ocs.dynamo.service.TestEntityService;
+import com.ocs.dynamo.test.BaseMockitoTest;
+
+public class StatementMonitorAspectTest extends BaseMockitoTest {
+
+    @Mock
+    private ProceedingJoinPoint joinPoint;
+
+    @Mock
+    private Signature signature;
+
+    @Mock
+    private TestEntityService service;
+
+    private final List<StatementStatistics> completed = new ArrayList<>();
+
+    private final StatementListener listener = new StatementListener() {
+
+        @Override
+        public void scopeCompleted(StatementStatistics statistics) {
+            completed.add(statistics);
+        }
+    };
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        Mockito.when(joinPoint.getTarget()).thenReturn(service);
+        Mockito.when(joinPoint.getSignature()).thenReturn(signature);
+        Mockito.when(signature.getName()).thenReturn("fetch");
+    }
+
+    @Test
+    public void testMonitor() throws Throwable {
+        System.setProperty(DynamoConstants.SP_STATEMENT_MONITOR, "true");
+        StatementMonitor.addListener(listener);
+        try {
+            StatementMonitorAspect aspect = new StatementMonitorAspect();
+            Assert.assertTrue(aspect.isEnabled());
+
+            aspect.monitor(joinPoint);
+            Mockito.verify(joinPoint).proceed();
+            Assert.assertEquals(1, completed.size());
+            Assert.assertTrue(completed.get(0).getName().endsWith(".fetch"));
+        } finally {
+            StatementMonitor.removeListener(listener);
+            System.clearProperty(DynamoConstants.SP_STATEMENT_MONITOR);
+        }
+    }
+
+    @Test
+    public void testDisabled() throws Throwable {
+        StatementMonitor.addListener(listener);
+        try {
+            StatementMonitorAspect aspect = new StatementMonitorAspect();
+            Assert.assertFalse(aspect.isEnabled());
+
+            aspect.monitor(joinPoint);
+            Mockito.verify(joinPoint).proceed();
+            Assert.assertTrue(completed.isEmpty());
+        } finally {
+            StatementMonitor.removeListener(listener);
+        }
+    }
+}
@@ -16,7 +16,11 @@ package com.ocs.dynamo.dao;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Inject;
 
@@ -25,10 +29,17 @@ import org.junit.Test;
 
 import com.google.common.collect.Lists;
 import com.mysema.query.BooleanBuilder;
+import com.ocs.dynamo.constants.DynamoConstants;
 import com.ocs.dynamo.dao.SortOrder.Direction;
+import com.ocs.dynamo.dao.monitor.StatementMonitor;
+import com.ocs.dynamo.dao.monitor.StatementStatistics;
+import com.ocs.dynamo.dao.query.Aggregate;
+import com.ocs.dynamo.dao.query.AggregateResult;
+import com.ocs.dynamo.dao.query.CloseableIterator;
 import com.ocs.dynamo.dao.query.FetchJoinInformation;
 import com.ocs.dynamo.domain.QTestEntity;
 import com.ocs.dynamo.domain.TestEntity;
+import com.ocs.dynamo.exception.OCSRuntimeException;
 import com.ocs.dynamo.filter.And;
 import com.ocs.dynamo.filter.Compare;
 import com.ocs.dynamo.filter.Filter;
@@ -76,6 +87,52 @@ public class TestEntityDaoTest extends BaseIntegrationTest {
 		Assert.assertEquals(3, list.size());
 	}
 
+	@Test
+	public void testSaveInBatches() {
+		List<TestEntity> list = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			list.add(new TestEntity("Bob", (long) i));
+		}
+
+		List<TestEntity> saved = dao.save(list, 2);
+		Assert.assertEquals(5, saved.size());
+		for (TestEntity t : saved) {
+			assertNotNull(t.getId());
+		}
+
+		// only the last batch is still managed
+		Assert.assertFalse(getEntityManager().contains(saved.get(0)));
+		Assert.assertTrue(getEntityManager().contains(saved.get(4)));
+
+		list.clear();
+		for (int i = 0; i < 3; i++) {
+			list.add(new TestEntity("Kevin", (long) i));
+		}
+		List<Integer> ids = dao.saveAndReturnIds(list, 2);
+		Assert.assertEquals(3, ids.size());
+		Assert.assertEquals("Kevin", dao.findById(ids.get(0)).getName());
+
+		Assert.assertEquals(8, dao.count());
+	}
+
+	@Test
+	public void testDeleteAndUpdateByFilter() {
+		save("Jan", 11L);
+		save("Piet", 12L);
+		save("Klaas", 13L);
+
+		Map<String, Object> values = new HashMap<>();
+		values.put("age", 20L);
+		Assert.assertEquals(2, dao.updateByFilter(new Compare.Greater("age", 11L), values));
+		Assert.assertEquals(2, dao.count(new Compare.Equal("age", 20L), false));
+
+		Assert.assertEquals(1, dao.deleteByFilter(new Compare.Equal("name", "Jan")));
+		Assert.assertEquals(2, dao.count());
+
+		Assert.assertEquals(2, dao.deleteByFilter(null));
+		Assert.assertEquals(0, dao.count());
+	}
+
 	/**
 	 * Basic test of the count and find methods
 	 */
@@ -160,6 +217,95 @@ public class TestEntityDaoTest extends BaseIntegrationTest {
 		assertEquals(detail, children.get(0));
 	}
 
+	@Test
+	public void testSubtree() {
+		TestEntity root = new TestEntity("Root", 50L);
+		TestEntity child1 = root.addChild(new TestEntity("Child1", 30L));
+		TestEntity child2 = root.addChild(new TestEntity("Child2", 28L));
+		TestEntity grandChild = child1.addChild(new TestEntity("GrandChild", 5L));
+		grandChild.addChild(new TestEntity("GreatGrandChild", 1L));
+		child2.addChild(new TestEntity("GrandChild2", 2L));
+		root = dao.save(root);
+
+		List<TestEntity> subtree = dao.findSubtree(root);
+		assertEquals(5, subtree.size());
+		// ordered by level
+		assertEquals("GreatGrandChild", subtree.get(4).getName());
+
+		// Child1 and Child2 (of root), GrandChild (of child1) and GrandChild2 (of child2)
+		assertEquals(4, dao.findByParents(Lists.newArrayList(root, child1, child2)).size());
+
+		TestEntity greatGrandChild = subtree.get(4);
+		List<TestEntity> ancestors = dao.findAncestors(greatGrandChild);
+		assertEquals(3, ancestors.size());
+		assertEquals("GrandChild", ancestors.get(0).getName());
+		assertEquals("Child1", ancestors.get(1).getName());
+		assertEquals("Root", ancestors.get(2).getName());
+
+		Assert.assertTrue(dao.findSubtree(greatGrandChild).isEmpty());
+		Assert.assertTrue(dao.findAncestors(root).isEmpty());
+	}
+
+	@Test
+	public void testSubtree_RecursiveQuery() {
+		TestEntity root = new TestEntity("Root", 50L);
+		TestEntity child1 = root.addChild(new TestEntity("Child1", 30L));
+		TestEntity grandChild = child1.addChild(new TestEntity("GrandChild", 5L));
+		grandChild.addChild(new TestEntity("GreatGrandChild", 1L));
+		root.addChild(new TestEntity("Child2", 28L)).addChild(new TestEntity("GrandChild2", 2L));
+		root = dao.save(root);
+		dao.flushAndClear();
+
+		System.setProperty(DynamoConstants.SP_TREE_RECURSIVE_QUERY, "true");
+		try {
+			List<TestEntity> subtree = dao.findSubtree(root);
+			assertEquals(5, subtree.size());
+			// ordered by level
+			assertEquals("GreatGrandChild", subtree.get(4).getName());
+
+			List<TestEntity> ancestors = dao.findAncestors(subtree.get(4));
+			assertEquals(3, ancestors.size());
+			assertEquals("GrandChild", ancestors.get(0).getName());
+			assertEquals("Child1", ancestors.get(1).getName());
+			assertEquals("Root", ancestors.get(2).getName());
+
+			Assert.assertTrue(dao.findSubtree(subtree.get(4)).isEmpty());
+			Assert.assertTrue(dao.findAncestors(root).isEmpty());
+		} finally {
+			System.clearProperty(DynamoConstants.SP_TREE_RECURSIVE_QUERY);
+		}
+	}
+
+	@Test
+	public void testSubtree_Cycle() {
+		TestEntity root = new TestEntity("Root", 50L);
+		root.addChild(new TestEntity("Child", 30L)).addChild(new TestEntity("GrandChild", 5L));
+		root = dao.save(root);
+		dao.flushAndClear();
+
+		// corrupt data: the root is a child of its own grandchild
+		List<TestEntity> subtree = dao.findSubtree(root);
+		root = dao.findById(root.getId());
+		root.setParent(dao.findById(subtree.get(1).getId()));
+		dao.save(root);
+		dao.flushAndClear();
+
+		System.setProperty(DynamoConstants.SP_TREE_RECURSIVE_QUERY, "true");
+		try {
+			subtree = dao.findSubtree(root);
+			assertEquals(2, subtree.size());
+			assertEquals("Child", subtree.get(0).getName());
+			assertEquals("GrandChild", subtree.get(1).getName());
+
+			List<TestEntity> ancestors = dao.findAncestors(subtree.get(0));
+			assertEquals(2, ancestors.size());
+			assertEquals("Root", ancestors.get(0).getName());
+			assertEquals("GrandChild", ancestors.get(1).getName());
+		} finally {
+			System.clearProperty(DynamoConstants.SP_TREE_RECURSIVE_QUERY);
+		}
+	}
+
 	@Test
 	public void testFindFilter() {
 		TestEntity jan = save("Jan", 11L);
@@ -238,6 +384,42 @@ public class TestEntityDaoTest extends BaseIntegrationTest {
 		Assert.assertEquals("Piet", list.get(2).getName());
 	}
 
+	@Test
+	public void testFetchByIdsInBuckets() {
+		List<TestEntity> entities = new ArrayList<>();
+		for (int i = 0; i < 1100; i++) {
+			TestEntity entity = new TestEntity();
+			entity.setName("Name" + (i % 7));
+			entity.setAge((long) i);
+			entities.add(entity);
+		}
+		List<Integer> ids = dao.saveAndReturnIds(entities, 100);
+
+		// split over two buckets - the results are returned in the requested order
+		List<Integer> reversed = new ArrayList<>(ids);
+		Collections.reverse(reversed);
+		List<TestEntity> list = dao.fetchByIds(reversed, null);
+		Assert.assertEquals(1100, list.size());
+		Assert.assertEquals(reversed.get(0), list.get(0).getId());
+		Assert.assertEquals(reversed.get(1099), list.get(1099).getId());
+
+		// sorting is applied across the buckets
+		list = dao.fetchByIds(ids, new SortOrders(new SortOrder(Direction.DESC, "age")));
+		Assert.assertEquals(1099L, list.get(0).getAge().longValue());
+		Assert.assertEquals(0L, list.get(1099).getAge().longValue());
+
+		// a single (padded) bucket
+		list = dao.fetchByIds(ids.subList(0, 20), new SortOrders(new SortOrder(Direction.DESC, "age")));
+		Assert.assertEquals(20, list.size());
+		Assert.assertEquals(19L, list.get(0).getAge().longValue());
+
+		// a single bucket without sort orders is returned in the requested order as well
+		list = dao.fetchByIds(reversed.subList(0, 20), null);
+		Assert.assertEquals(20, list.size());
+		Assert.assertEquals(reversed.get(0), list.get(0).getId());
+		Assert.assertEquals(reversed.get(19), list.get(19).getId());
+	}
+
 	@Test
 	public void testFetch() {
 		save("Kevin", 11L);
@@ -261,6 +443,106 @@ public class TestEntityDaoTest extends BaseIntegrationTest {
 		Assert.assertEquals("Bob", results.get(0).getName());
 	}
 
+	@Test
+	public void testFetchAfter() {
+		save("Kevin", 11L);
+		save("Bob", 12L);
+		TestEntity bob = save("Bob", 13L);
+		save("Stuart", 14L);
+
+		SortOrders orders = new SortOrders(new SortOrder("name"));
+
+		// first page
+		List<TestEntity> results = dao.fetchAfter(null, null, 2, orders);
+		Assert.assertEquals(2, results.size());
+		Assert.assertEquals("Bob", results.get(0).getName());
+		Assert.assertEquals("Bob", results.get(1).getName());
+
+		// continue after the last row - ties are resolved using the ID
+		TestEntity last = results.get(1);
+		results = dao.fetchAfter(null, new Keyset(last.getId(), last.getName()), 2, orders);
+		Assert.assertEquals(2, results.size());
+		Assert.assertEquals("Kevin", results.get(0).getName());
+		Assert.assertEquals("Stuart", results.get(1).getName());
+
+		last = results.get(1);
+		results = dao.fetchAfter(null, new Keyset(last.getId(), last.getName()), 2, orders);
+		Assert.assertTrue(results.isEmpty());
+
+		// descending, combined with a filter
+		orders = new SortOrders(new SortOrder(Direction.DESC, "age"));
+		results = dao.fetchAfter(new Compare.Equal("name", "Bob"), new Keyset(bob.getId(), bob.getAge()), 2, orders);
+		Assert.assertEquals(1, results.size());
+		Assert.assertEquals(12L, results.get(0).getAge().longValue());
+	}
+
+	@Test
+	public void testCountUpTo() {
+		save("Kevin", 11L);
+		save("Bob", 12L);
+		save("Stuart", 14L);
+
+		Assert.assertEquals(3, dao.countUpTo(null, 5));
+		Assert.assertEquals(3, dao.countUpTo(null, 2));
+		Assert.assertEquals(1, dao.countUpTo(new Compare.Equal("name", "Bob"), 2));
+	}
+
+	@Test
+	public void testFetchProjection() {
+		save("Kevin", 11L);
+		save("Bob", 12L);
+		save("Stuart", 14L);
+
+		List<TestEntity> results = dao.fetchProjection(new Compare.Greater("age", 11L), new PageableImpl(0, 10,
+		        new SortOrder("name")), "name");
+		Assert.assertEquals(2, results.size());
+		Assert.assertEquals("Bob", results.get(0).getName());
+		Assert.assertNotNull(results.get(0).getId());
+
+		// properties that are not part of the projection are not set
+		Assert.assertNull(results.get(0).getAge());
+		Assert.assertEquals("Stuart", results.get(1).getName());
+
+		// paging
+		results = dao.fetchProjection(null, new PageableImpl(1, 2, new SortOrder("name")), "name", "age");
+		Assert.assertEquals(1, results.size());
+		Assert.assertEquals(14L, results.get(0).getAge().longValue());
+
+	}
+
+	@Test(expected = OCSRuntimeException.class)
+	public void testFetchProjection_UnknownProperty() {
+		dao.fetchProjection(null, new PageableImpl(0, 10, new SortOrder("name")), "name", "nmae");
+	}
+
+	@Test
+	public void testStream() {
+		save("Kevin", 11L);
+		save("Stuart", 12L);
+		save("Bob", 13L);
+		dao.flushAndClear();
+
+		List<TestEntity> results = new ArrayList<>();
+		try (CloseableIterator<TestEntity> it = dao.stream(null, new SortOrders(new SortOrder("name")), 2)) {
+			while (it.hasNext()) {
+				results.add(it.next());
+			}
+		}
+		Assert.assertEquals(3, results.size());
+		Assert.assertEquals("Bob", results.get(0).getName());
+		Assert.assertEquals("Kevin", results.get(1).getName());
+		Assert.assertEquals("Stuart", results.get(2).getName());
+
+		// the persistence context is cleared while iterating
+		Assert.assertFalse(getEntityManager().contains(results.get(0)));
+
+		try (CloseableIterator<TestEntity> it = dao.stream(new Compare.Equal("name", "Bob"), null, 10)) {
+			Assert.assertTrue(it.hasNext());
+			Assert.assertEquals("Bob", it.next().getName());
+			Assert.assertFalse(it.hasNext());
+		}
+	}
+
 	@Test
 	public void testFlushAndClear() {
 		TestEntity entity = save("Jan", 11L);
@@ -288,6 +570,49 @@ public class TestEntityDaoTest extends BaseIntegrationTest {
 		Assert.assertEquals(11L, ages.get(0));
 	}
 
+	@Test
+	public void testStatementMonitor() {
+		save("Kevin", 11L);
+		save("Bob", 12L);
+		dao.flushAndClear();
+
+		StatementMonitor.begin("test");
+		List<TestEntity> list = dao.findAll();
+		StatementStatistics statistics = StatementMonitor.end();
+
+		Assert.assertEquals(2, list.size());
+		Assert.assertEquals(1, statistics.getStatementCount());
+		Assert.assertEquals(2, statistics.getEntityCount());
+		Assert.assertFalse(statistics.hasRepeatedStatements());
+	}
+
+	@Test
+	public void testAggregate() {
+		save("Bob", 10L);
+		save("Bob", 20L);
+		save("Kevin", 30L);
+
+		List<AggregateResult> results = dao.aggregate(null, new String[] { "name" }, Aggregate.count(),
+		        Aggregate.sum("age"), Aggregate.avg("age"), Aggregate.min("age"), Aggregate.max("age"));
+		Assert.assertEquals(2, results.size());
+
+		AggregateResult bob = results.get(0);
+		Assert.assertEquals("Bob", bob.getGroupValue(0));
+		Assert.assertEquals(2L, ((Number) bob.getAggregateValue(0)).longValue());
+		Assert.assertEquals(30L, ((Number) bob.getAggregateValue(1)).longValue());
+		Assert.assertEquals(15.0, ((Number) bob.getAggregateValue(2)).doubleValue(), 0.001);
+		Assert.assertEquals(10L, ((Number) bob.getAggregateValue(3)).longValue());
+		Assert.assertEquals(20L, ((Number) bob.getAggregateValue(4)).longValue());
+		Assert.assertEquals("Kevin", results.get(1).getGroupValue(0));
+
+		// without grouping, a single row is returned
+		results = dao.aggregate(new Compare.Equal("name", "Bob"), null, Aggregate.count(), Aggregate.max("age"));
+		Assert.assertEquals(1, results.size());
+		Assert.assertEquals(0, results.get(0).getGroupCount());
+		Assert.assertEquals(2L, ((Number) results.get(0).getAggregateValue(0)).longValue());
+		Assert.assertEquals(20L, ((Number) results.get(0).getAggregateValue(1)).longValue());
+	}
+
 	private TestEntity save(String name, long age) {
 		TestEntity entity = new TestEntity();
 		entity.setName(name);
@@ -13,11 +13,19 @@
  */
 package com.ocs.dynamo.dao.impl;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
 import org.junit.Assert;
 import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import com.ocs.dynamo.domain.QTestEntity;
 import com.ocs.dynamo.domain.TestEntity;
+import com.ocs.dynamo.utils.SystemPropertyUtils;
 
 public class DefaultDaoImplTest {
 
@@ -45,4 +53,30 @@ public class DefaultDaoImplTest {
         Assert.assertEquals("testEntities", dao.getFetchJoins()[0].getProperty());
     }
 
+    @Test
+    public void testSave_DefaultBatchSize() {
+        dao = new DefaultDaoImpl<Integer, TestEntity>(QTestEntity.testEntity, TestEntity.class);
+        EntityManager entityManager = Mockito.mock(EntityManager.class);
+        ReflectionTestUtils.setField(dao, "entityManager", entityManager);
+
+        // more entities than fit in two batches of the default size
+        int batchSize = SystemPropertyUtils.getDefaultBatchSize();
+        List<TestEntity> list = new ArrayList<>();
+        for (int i = 0; i < 2 * batchSize + 1; i++) {
+            list.add(new TestEntity("Bob", (long) i));
+        }
+
+        // a batch size that is not positive falls back to the default
+        Assert.assertEquals(list.size(), dao.save(list, 0).size());
+        Mockito.verify(entityManager, Mockito.times(list.size())).persist(Mockito.any(TestEntity.class));
+        Mockito.verify(entityManager, Mockito.times(2)).clear();
+        Mockito.verify(entityManager, Mockito.times(3)).flush();
+
+        // the same holds for saveAndReturnIds (which also flushes and clears the last batch)
+        Mockito.reset(entityManager);
+        Assert.assertEquals(list.size(), dao.saveAndReturnIds(list, -1).size());
+        Mockito.verify(entityManager, Mockito.times(3)).clear();
+        Mockito.verify(entityManager, Mockito.times(3)).flush();
+    }
+
 }
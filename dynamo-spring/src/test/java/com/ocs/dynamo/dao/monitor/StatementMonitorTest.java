@@ -0,0 +1,74 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.dao.monitor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StatementMonitorTest {
+
+    @Test
+    public void testNoScope() {
+        StatementMonitor.registerStatement("select 1");
+        Assert.assertNull(StatementMonitor.getCurrent());
+        Assert.assertNull(StatementMonitor.end());
+    }
+
+    @Test
+    public void testRepeatedStatements() {
+        final List<StatementStatistics> completed = new ArrayList<>();
+        StatementListener listener = new StatementListener() {
+
+            @Override
+            public void scopeCompleted(StatementStatistics statistics) {
+                completed.add(statistics);
+            }
+        };
+        StatementMonitor.addListener(listener);
+        try {
+            StatementMonitor.begin("outer");
+            StatementMonitor.registerStatement("select * from parent");
+
+            StatementMonitor.begin("inner");
+            for (int i = 0; i < 10; i++) {
+                StatementMonitor.registerStatement("select * from child where parent_id=?");
+                StatementMonitor.registerEntityLoad();
+            }
+            StatementStatistics inner = StatementMonitor.end();
+            StatementStatistics outer = StatementMonitor.end();
+
+            Assert.assertTrue(inner.isNested());
+            Assert.assertEquals(10, inner.getStatementCount());
+            Assert.assertEquals(10, inner.getEntityCount());
+            Assert.assertEquals(1, inner.getStatements().size());
+
+            Assert.assertFalse(outer.isNested());
+            Assert.assertEquals(11, outer.getStatementCount());
+            Assert.assertTrue(outer.hasRepeatedStatements());
+            Assert.assertEquals(Integer.valueOf(10),
+                    outer.getRepeatedStatements().get("select * from child where parent_id=?"));
+            Assert.assertFalse(outer.getRepeatedStatements().containsKey("select * from parent"));
+
+            Assert.assertEquals(2, completed.size());
+            Assert.assertEquals("inner", completed.get(0).getName());
+            Assert.assertEquals("outer", completed.get(1).getName());
+            Assert.assertNull(StatementMonitor.getCurrent());
+        } finally {
+            StatementMonitor.removeListener(listener);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.dao.query;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.common.collect.Lists;
+import com.ocs.dynamo.domain.TestEntity;
+import com.ocs.dynamo.domain.TestEntity2;
+import com.ocs.dynamo.domain.model.AttributeModel;
+import com.ocs.dynamo.domain.model.AttributeType;
+import com.ocs.dynamo.domain.model.EntityModel;
+import com.ocs.dynamo.domain.model.EntityModelFactory;
+import com.ocs.dynamo.domain.model.impl.AttributeModelImpl;
+import com.ocs.dynamo.domain.model.impl.EntityModelFactoryImpl;
+
+public class FetchJoinPlannerTest {
+
+    private EntityModelFactory factory = new EntityModelFactoryImpl();
+
+    @Test
+    public void testCreateDetailJoins() {
+        EntityModel<TestEntity2> model = factory.getModel(TestEntity2.class);
+        List<FetchJoinInformation> joins = Arrays.asList(FetchJoinPlanner.createDetailJoins(model));
+
+        Assert.assertTrue(joins.contains(new FetchJoinInformation("testEntity")));
+        Assert.assertTrue(joins.contains(new FetchJoinInformation("testEntityAlt")));
+        Assert.assertTrue(joins.contains(new FetchJoinInformation("testEntityAlt2")));
+
+        // the collection is fetched when displaying a single entity
+        EntityModel<TestEntity> model2 = factory.getModel(TestEntity.class);
+        joins = Arrays.asList(FetchJoinPlanner.createDetailJoins(model2));
+        Assert.assertTrue(joins.contains(new FetchJoinInformation("testEntities")));
+    }
+
+    @Test
+    public void testCreateTableJoins() {
+        // relations are not visible in the table by default
+        EntityModel<TestEntity2> model = factory.getModel(TestEntity2.class);
+        Assert.assertEquals(0, FetchJoinPlanner.createTableJoins(model, true).length);
+
+        EntityModel<TestEntity> model2 = factory.getModel(TestEntity.class);
+        ((AttributeModelImpl) model2.getAttributeModel("testEntities")).setVisibleInTable(true);
+
+        // collections are never fetched in a paged query
+        List<FetchJoinInformation> joins = Arrays.asList(FetchJoinPlanner.createTableJoins(model2, true));
+        Assert.assertFalse(joins.contains(new FetchJoinInformation("testEntities")));
+
+        joins = Arrays.asList(FetchJoinPlanner.createTableJoins(model2, false));
+        Assert.assertTrue(joins.contains(new FetchJoinInformation("testEntities")));
+    }
+
+    @Test
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void testCreateJoins_NestedDisplayProperty() {
+        // "parent" is displayed using its "owner", so "parent.owner" is fetched (which also
+        // fetches "parent")
+        AttributeModel owner = Mockito.mock(AttributeModel.class);
+        Mockito.when(owner.getName()).thenReturn("owner");
+        Mockito.when(owner.getAttributeType()).thenReturn(AttributeType.MASTER);
+
+        EntityModel nested = Mockito.mock(EntityModel.class);
+        Mockito.when(nested.getDisplayProperty()).thenReturn("owner");
+        Mockito.when(nested.getAttributeModel("owner")).thenReturn(owner);
+
+        AttributeModel parent = Mockito.mock(AttributeModel.class);
+        Mockito.when(parent.getName()).thenReturn("parent");
+        Mockito.when(parent.getAttributeType()).thenReturn(AttributeType.MASTER);
+        Mockito.when(parent.isVisible()).thenReturn(true);
+        Mockito.when(parent.isVisibleInTable()).thenReturn(true);
+        Mockito.when(parent.getNestedEntityModel()).thenReturn(nested);
+
+        EntityModel model = Mockito.mock(EntityModel.class);
+        Mockito.when(model.getAttributeModels()).thenReturn(Lists.newArrayList(parent));
+
+        Assert.assertArrayEquals(new FetchJoinInformation[] { new FetchJoinInformation("parent.owner") },
+                FetchJoinPlanner.createDetailJoins(model));
+        Assert.assertArrayEquals(new FetchJoinInformation[] { new FetchJoinInformation("parent.owner") },
+                FetchJoinPlanner.createTableJoins(model, true));
+    }
+}
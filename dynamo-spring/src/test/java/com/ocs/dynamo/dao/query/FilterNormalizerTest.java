@@ -0,0 +1,84 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.dao.query;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.ocs.dynamo.filter.And;
+import com.ocs.dynamo.filter.Compare;
+import com.ocs.dynamo.filter.Filter;
+import com.ocs.dynamo.filter.In;
+import com.ocs.dynamo.filter.Like;
+import com.ocs.dynamo.filter.Not;
+import com.ocs.dynamo.filter.Or;
+
+public class FilterNormalizerTest {
+
+	@Test
+	public void testFlatten() {
+		Filter a = new Compare.Equal("a", 1);
+		Filter b = new Compare.Greater("b", 2);
+		Filter c = new Like("c", "x%", false);
+
+		And and = new And(a, new And(b, new And(c)));
+		Filter normalized = FilterNormalizer.normalize(and);
+
+		Assert.assertEquals(new And(a, b, c), normalized);
+		// the original filter is not modified
+		Assert.assertEquals(2, and.getFilters().size());
+	}
+
+	@Test
+	public void testRemoveEmptyAndDuplicates() {
+		Filter a = new Compare.Equal("a", 1);
+		Filter b = new Compare.Greater("b", 2);
+
+		Assert.assertNull(FilterNormalizer.normalize(null));
+		Assert.assertNull(FilterNormalizer.normalize(new And()));
+		Assert.assertEquals(a, FilterNormalizer.normalize(new And(a, new Or(), new Compare.Equal("a", 1))));
+		Assert.assertEquals(new And(a, b), FilterNormalizer.normalize(new And(new And(a, b), new And(b, a))));
+	}
+
+	@Test
+	public void testMergeEquals() {
+		Filter normalized = FilterNormalizer.normalize(new Or(new Compare.Equal("a", 1), new Compare.Less("b", 4),
+		        new Or(new Compare.Equal("a", 2), new In("a", Lists.newArrayList(3, 1)))));
+		Assert.assertEquals(new Or(new In("a", Lists.newArrayList(1, 2, 3)), new Compare.Less("b", 4)), normalized);
+
+		// equals within an "And" are not merged
+		And and = new And(new Compare.Equal("a", 1), new Compare.Equal("a", 2));
+		Assert.assertEquals(and, FilterNormalizer.normalize(and));
+
+		// a single equal is left alone
+		Or or = new Or(new Compare.Equal("a", 1), new Compare.Equal("b", 2));
+		Assert.assertEquals(or, FilterNormalizer.normalize(or));
+	}
+
+	@Test
+	public void testDoubleNegation() {
+		Filter a = new Compare.Equal("a", 1);
+		Assert.assertEquals(a, FilterNormalizer.normalize(new Not(new Not(a))));
+		Assert.assertEquals(new Not(a), FilterNormalizer.normalize(new Not(new And(a))));
+	}
+
+	@Test
+	public void testIdempotent() {
+		Filter filter = new And(new Or(new Compare.Equal("a", "1,5"), new Compare.Equal("a", "2")), new Not(
+		        new Not(new Compare.Equal("b", 1))));
+		Filter normalized = FilterNormalizer.normalize(filter);
+		Assert.assertEquals(normalized, FilterNormalizer.normalize(normalized));
+	}
+}
@@ -17,6 +17,7 @@ import java.util.List;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaQuery;
 
@@ -25,8 +26,11 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.google.common.collect.Lists;
+import com.ocs.dynamo.dao.SortOrder;
 import com.ocs.dynamo.domain.TestEntity;
 import com.ocs.dynamo.domain.TestEntity2;
+import com.ocs.dynamo.domain.TestTransientEntity;
+import com.ocs.dynamo.exception.OCSRuntimeException;
 import com.ocs.dynamo.filter.And;
 import com.ocs.dynamo.filter.Compare;
 import com.ocs.dynamo.filter.In;
@@ -263,6 +267,71 @@ public class JPAQueryBuilderTest extends BaseIntegrationTest {
         Assert.assertEquals(e1, entity);
     }
 
+    @Test
+    public void testPrepareCountQuery_Cached() {
+        JpaQueryBuilder.getQueryCache().clear();
+
+        TypedQuery<Long> query = JpaQueryBuilder.prepareCountQuery(entityManager,
+                TestEntity.class, new Compare.Greater("age", 25L), false);
+        Assert.assertEquals(2L, query.getSingleResult().longValue());
+        Assert.assertEquals(0, JpaQueryBuilder.getQueryCache().getHits());
+        Assert.assertEquals(1, JpaQueryBuilder.getQueryCache().getMisses());
+
+        // same shape, different value - the cached query is reused
+        query = JpaQueryBuilder.prepareCountQuery(entityManager, TestEntity.class,
+                new Compare.Greater("age", 35L), false);
+        Assert.assertEquals(1L, query.getSingleResult().longValue());
+        Assert.assertEquals(1, JpaQueryBuilder.getQueryCache().getHits());
+
+        // different shape
+        query = JpaQueryBuilder.prepareCountQuery(entityManager, TestEntity.class,
+                new And(new Compare.Greater("age", 25L), new Like("name", "%a%", false)), false);
+        Assert.assertEquals(1L, query.getSingleResult().longValue());
+        Assert.assertEquals(2, JpaQueryBuilder.getQueryCache().getMisses());
+    }
+
+    @Test
+    public void testPrepareSelectQuery_NotCacheable() {
+        JpaQueryBuilder.getQueryCache().clear();
+
+        // the value type does not match the property type, so the literal query is used
+        TypedQuery<TestEntity> query = JpaQueryBuilder.prepareSelectQuery(new Compare.Equal("age", 25),
+                entityManager, TestEntity.class, null);
+        Assert.assertEquals(1, query.getResultList().size());
+
+        query = JpaQueryBuilder.prepareSelectQuery(new Compare.Equal("age", 35), entityManager,
+                TestEntity.class, null);
+        Assert.assertEquals("Sally", query.getSingleResult().getName());
+        Assert.assertEquals(1, JpaQueryBuilder.getQueryCache().getSize());
+
+        // an empty "In" filter is translated using a dummy value
+        query = JpaQueryBuilder.prepareSelectQuery(new In("age", null), entityManager,
+                TestEntity.class, null);
+        Assert.assertEquals(0, query.getResultList().size());
+    }
+
+    @Test
+    public void testGetPersistentProperties() {
+        // transient properties are skipped
+        Assert.assertArrayEquals(new String[] { "name" }, JpaQueryBuilder.getPersistentProperties(
+                entityManager, TestTransientEntity.class, "name", "remark"));
+
+        // unknown properties are rejected
+        try {
+            JpaQueryBuilder.getPersistentProperties(entityManager, TestTransientEntity.class, "nmae");
+            Assert.fail();
+        } catch (OCSRuntimeException ex) {
+            Assert.assertEquals("Entity TestTransientEntity has no property nmae", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testPrepareIdQuery() {
+        TypedQuery<Tuple> query = JpaQueryBuilder.prepareIdQuery(entityManager, TestEntity.class,
+                new In("age", Lists.newArrayList(25L, 44L)), new SortOrder("name"));
+        Assert.assertEquals(2, query.getResultList().size());
+    }
+
     private void save(String name, long age) {
         TestEntity entity = new TestEntity(name, age);
         entityManager.persist(entity);
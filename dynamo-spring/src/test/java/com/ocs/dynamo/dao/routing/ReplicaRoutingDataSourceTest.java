@@ -0,0 +1,144 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.dao.routing;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class ReplicaRoutingDataSourceTest {
+
+	private DataSource primary;
+
+	private DataSource replica;
+
+	private Connection primaryConnection;
+
+	private Connection replicaConnection;
+
+	private ReplicaRoutingDataSource dataSource;
+
+	@Before
+	public void setUp() throws SQLException {
+		primary = Mockito.mock(DataSource.class);
+		replica = Mockito.mock(DataSource.class);
+		primaryConnection = Mockito.mock(Connection.class);
+		replicaConnection = Mockito.mock(Connection.class);
+		Mockito.when(primary.getConnection()).thenReturn(primaryConnection);
+		Mockito.when(replica.getConnection()).thenReturn(replicaConnection);
+		dataSource = new ReplicaRoutingDataSource(primary, replica);
+	}
+
+	@After
+	public void tearDown() {
+		DataSourceContext.restore(null);
+	}
+
+	@Test
+	public void testRouting() throws SQLException {
+		// no context - use the primary
+		Assert.assertEquals(primaryConnection, dataSource.getConnection());
+
+		DataSourceType previous = DataSourceContext.set(DataSourceType.REPLICA);
+		Assert.assertNull(previous);
+		Assert.assertEquals(replicaConnection, dataSource.getConnection());
+
+		DataSourceContext.set(DataSourceType.PRIMARY);
+		Assert.assertEquals(primaryConnection, dataSource.getConnection());
+
+		DataSourceContext.restore(previous);
+		Assert.assertNull(DataSourceContext.get());
+	}
+
+	@Test
+	public void testFallback() throws SQLException {
+		Mockito.when(replica.getConnection()).thenThrow(new SQLException("connection refused"));
+		DataSourceContext.set(DataSourceType.REPLICA);
+
+		Assert.assertEquals(primaryConnection, dataSource.getConnection());
+		Assert.assertFalse(dataSource.isReplicaAvailable());
+
+		// the replica is not tried again until the retry interval has passed
+		Assert.assertEquals(primaryConnection, dataSource.getConnection());
+		Mockito.verify(replica, Mockito.times(1)).getConnection();
+
+		dataSource.setRetryInterval(0);
+		Assert.assertTrue(dataSource.isReplicaAvailable());
+	}
+
+	@Test
+	public void testReplicationLag() throws SQLException {
+		dataSource.setMaxReplicationLag(60000L);
+		DataSourceContext.registerWrite();
+		DataSourceContext.set(DataSourceType.REPLICA);
+
+		// directly after a write, the replica may not be up to date yet
+		Assert.assertEquals(primaryConnection, dataSource.getConnection());
+
+		dataSource.setMaxReplicationLag(0L);
+		Assert.assertEquals(replicaConnection, dataSource.getConnection());
+	}
+
+	@Test
+	public void testReplicationLag_PerSession() throws Exception {
+		dataSource.setMaxReplicationLag(60000L);
+		final AtomicLong session = new AtomicLong();
+		DataSourceContext.bindSession(session);
+		try {
+			DataSourceContext.registerWrite();
+			DataSourceContext.set(DataSourceType.REPLICA);
+			Assert.assertEquals(primaryConnection, dataSource.getConnection());
+		} finally {
+			DataSourceContext.unbindSession();
+		}
+
+		// another session still uses the replica
+		DataSourceContext.bindSession(new AtomicLong());
+		try {
+			Assert.assertEquals(replicaConnection, dataSource.getConnection());
+		} finally {
+			DataSourceContext.unbindSession();
+		}
+
+		// the same session handled by another thread reads its own writes from the primary
+		final Connection[] result = new Connection[1];
+		Thread thread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				DataSourceContext.bindSession(session);
+				DataSourceContext.set(DataSourceType.REPLICA);
+				try {
+					result[0] = dataSource.getConnection();
+				} catch (SQLException ex) {
+					// fails the assertion below
+				} finally {
+					DataSourceContext.restore(null);
+					DataSourceContext.unbindSession();
+				}
+			}
+		});
+		thread.start();
+		thread.join();
+		Assert.assertEquals(primaryConnection, result[0]);
+	}
+}
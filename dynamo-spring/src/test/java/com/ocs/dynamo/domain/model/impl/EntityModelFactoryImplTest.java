@@ -13,11 +13,18 @@
  */
 package com.ocs.dynamo.domain.model.impl;
 
+import java.lang.reflect.Method;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.persistence.Basic;
 import javax.persistence.ElementCollection;
@@ -39,6 +46,10 @@ import org.junit.Before;
 import org.junit.Test;
 import org.springframework.context.support.ResourceBundleMessageSource;
 
+import com.ocs.dynamo.constants.DynamoConstants;
+import com.ocs.dynamo.domain.TestDomain;
+import com.ocs.dynamo.domain.TestEntity;
+import com.ocs.dynamo.domain.TestEntity2;
 import com.ocs.dynamo.domain.model.AttributeDateType;
 import com.ocs.dynamo.domain.model.AttributeModel;
 import com.ocs.dynamo.domain.model.AttributeSelectMode;
@@ -50,6 +61,7 @@ import com.ocs.dynamo.domain.model.annotation.AttributeGroup;
 import com.ocs.dynamo.domain.model.annotation.AttributeGroups;
 import com.ocs.dynamo.domain.model.annotation.AttributeOrder;
 import com.ocs.dynamo.domain.model.annotation.Model;
+import com.ocs.dynamo.domain.model.metadata.EntityMetadata;
 import com.ocs.dynamo.domain.validator.Email;
 import com.ocs.dynamo.service.MessageService;
 import com.ocs.dynamo.service.impl.MessageServiceImpl;
@@ -506,6 +518,80 @@ public class EntityModelFactoryImplTest extends BaseMockitoTest {
 		Assert.assertEquals("dd-MM-yyyy", am.getDisplayFormat());
 	}
 
+	@Test
+	public void testConcurrentConstruction() throws InterruptedException, ExecutionException {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Callable<EntityModel<?>>> tasks = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				final Class<?> clazz = i % 2 == 0 ? Entity1.class : Entity2.class;
+				tasks.add(new Callable<EntityModel<?>>() {
+
+					@Override
+					public EntityModel<?> call() {
+						return factory.getModel(clazz);
+					}
+				});
+			}
+
+			// every thread gets the same model for the same entity
+			List<Future<EntityModel<?>>> futures = executor.invokeAll(tasks);
+			for (int i = 2; i < futures.size(); i++) {
+				Assert.assertSame(futures.get(i - 2).get(), futures.get(i).get());
+			}
+			Assert.assertSame(factory.getModel(Entity1.class), futures.get(0).get());
+			Assert.assertNotSame(futures.get(0).get(), futures.get(1).get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testWarmUp() {
+		// nothing happens by default
+		factory.warmUp();
+		Assert.assertFalse(factory.hasModel(TestEntity.class.getSimpleName()));
+
+		System.setProperty(DynamoConstants.SP_ENTITY_MODEL_WARMUP_PACKAGES, TestEntity.class.getPackage().getName());
+		try {
+			factory.warmUp();
+			Assert.assertTrue(factory.hasModel(TestEntity.class.getSimpleName()));
+			Assert.assertTrue(factory.hasModel(TestEntity2.class.getSimpleName()));
+		} finally {
+			System.clearProperty(DynamoConstants.SP_ENTITY_MODEL_WARMUP_PACKAGES);
+		}
+	}
+
+	@Test
+	public void testIndexedLookups() {
+		EntityModel<Entity1> model = factory.getModel(Entity1.class);
+
+		// the lookups are answered from the index
+		List<AttributeModel> attributeModels = model.getAttributeModels();
+		Assert.assertSame(attributeModels, model.getAttributeModels());
+		Assert.assertSame(model.getRequiredAttributeModels(), model.getRequiredAttributeModels());
+		Assert.assertEquals(1, model.getRequiredAttributeModels().size());
+		Assert.assertEquals("name", model.getMainAttributeModel().getName());
+		Assert.assertEquals(1, model.getAttributeModelsForType(null, Date.class).size());
+		Assert.assertNull(model.getAttributeModel("unknown"));
+
+		// changing an attribute rebuilds the index
+		AttributeModelImpl nameModel = (AttributeModelImpl) model.getAttributeModel("name");
+		nameModel.setRequired(true);
+		Assert.assertEquals(2, model.getRequiredAttributeModels().size());
+
+		// adding an attribute rebuilds the index
+		AttributeModelImpl extra = new AttributeModelImpl();
+		extra.setName("extra");
+		extra.setOrder(100);
+		extra.setType(Date.class);
+		model.addAttributeModel(EntityModel.DEFAULT_GROUP, extra, null);
+		Assert.assertSame(extra, model.getAttributeModel("extra"));
+		Assert.assertEquals(8, model.getAttributeModels().size());
+		Assert.assertSame(extra, model.getAttributeModels().get(7));
+		Assert.assertEquals(2, model.getAttributeModelsForType(null, Date.class).size());
+	}
+
 	@Test
 	public void testElementCollection() {
 		EntityModel<Entity9> model = factory.getModel(Entity9.class);
@@ -514,6 +600,51 @@ public class EntityModelFactoryImplTest extends BaseMockitoTest {
 		Assert.assertEquals(AttributeType.ELEMENT_COLLECTION, am.getAttributeType());
 	}
 
+	/**
+	 * The models that are based on the generated metadata are the same as the models that are
+	 * constructed using introspection
+	 */
+	@Test
+	public void testGeneratedMetadata() throws Exception {
+		EntityModelFactoryImpl reflectionFactory = new ReflectionEntityModelFactory();
+		wireTestSubject(reflectionFactory);
+		PrivateAccessor.setField(reflectionFactory, "messageService", messageService);
+
+		for (Class<?> entityClass : new Class<?>[] { TestEntity.class, TestEntity2.class, TestDomain.class }) {
+			Assert.assertNotNull(EntityMetadata.forClass(entityClass));
+			Assert.assertNull(reflectionFactory.getMetadata(entityClass));
+
+			EntityModel<?> expected = reflectionFactory.getModel(entityClass);
+			EntityModel<?> actual = factory.getModel(entityClass);
+			Assert.assertEquals(expected.getDisplayProperty(), actual.getDisplayProperty());
+			Assert.assertEquals(expected.getIdAttributeModel().getName(), actual.getIdAttributeModel().getName());
+			Assert.assertEquals(expected.getAttributeModels().size(), actual.getAttributeModels().size());
+
+			for (int i = 0; i < expected.getAttributeModels().size(); i++) {
+				AttributeModel expectedAttribute = expected.getAttributeModels().get(i);
+				AttributeModel actualAttribute = actual.getAttributeModels().get(i);
+				for (Method method : AttributeModel.class.getMethods()) {
+					if (method.getParameterTypes().length == 0
+					        && !EntityModel.class.isAssignableFrom(method.getReturnType())) {
+						Assert.assertEquals(expectedAttribute.getPath() + "." + method.getName(),
+						        method.invoke(expectedAttribute), method.invoke(actualAttribute));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Entity model factory that ignores the generated metadata
+	 */
+	private static class ReflectionEntityModelFactory extends EntityModelFactoryImpl {
+
+		@Override
+		EntityMetadata<?> getMetadata(Class<?> clazz) {
+			return null;
+		}
+	}
+
 	private class Entity1 {
 
 		@Size(max = 55)
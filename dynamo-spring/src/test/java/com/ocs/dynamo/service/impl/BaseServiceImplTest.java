@@ -13,9 +13,16 @@
  */
 package com.ocs.dynamo.service.impl;
 
+import java.security.Principal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import javax.persistence.FetchType;
+import javax.persistence.ManyToOne;
 import javax.validation.Validation;
 import javax.validation.Validator;
 import javax.validation.ValidatorFactory;
@@ -28,6 +35,10 @@ import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 import com.google.common.collect.Lists;
 import com.ocs.dynamo.dao.BaseDao;
@@ -36,11 +47,15 @@ import com.ocs.dynamo.dao.SortOrder;
 import com.ocs.dynamo.dao.SortOrder.Direction;
 import com.ocs.dynamo.dao.SortOrders;
 import com.ocs.dynamo.dao.query.FetchJoinInformation;
+import com.ocs.dynamo.domain.AbstractEntity;
 import com.ocs.dynamo.domain.TestEntity;
+import com.ocs.dynamo.domain.model.annotation.Model;
 import com.ocs.dynamo.exception.OCSNonUniqueException;
+import com.ocs.dynamo.exception.OCSRuntimeException;
 import com.ocs.dynamo.exception.OCSValidationException;
 import com.ocs.dynamo.filter.Compare;
 import com.ocs.dynamo.filter.Filter;
+import com.ocs.dynamo.service.BaseService;
 import com.ocs.dynamo.service.MessageService;
 import com.ocs.dynamo.test.BaseMockitoTest;
 import com.ocs.dynamo.test.MockUtil;
@@ -62,6 +77,9 @@ public class BaseServiceImplTest extends BaseMockitoTest {
     @Mock
     private BaseDao<Integer, TestEntity> dao;
 
+    @Mock
+    private BaseDao<Integer, CachedEntity> cachedDao;
+
     @Mock
     private Dependency dependency;
 
@@ -89,6 +107,74 @@ public class BaseServiceImplTest extends BaseMockitoTest {
         Assert.assertNotNull(result);
     }
 
+    @Test
+    public void testFindById_NotCacheable() {
+        Mockito.when(dao.findById(ID)).thenReturn(new TestEntity());
+
+        // the entity is not cacheable, so every call goes to the DAO
+        service.findById(ID);
+        service.findById(ID);
+        Assert.assertNull(service.getEntityCache());
+        Mockito.verify(dao, Mockito.times(2)).findById(ID);
+    }
+
+    @Test
+    public void testEntityCache() {
+        CachedEntity entity = new CachedEntity();
+        entity.setId(ID);
+        Mockito.when(cachedDao.getEntityClass()).thenReturn(CachedEntity.class);
+        Mockito.when(cachedDao.findById(ID)).thenReturn(entity);
+        CachedService cachedService = wireTestSubject(new CachedService());
+
+        // outside a transaction, the second call is answered from the cache
+        CachedEntity first = cachedService.findById(ID);
+        CachedEntity second = cachedService.findById(ID);
+        Mockito.verify(cachedDao, Mockito.times(1)).findById(ID);
+
+        // the caller that loaded the entity keeps it, the cache holds a copy that is shared
+        Assert.assertSame(entity, first);
+        Assert.assertEquals(first, second);
+        Assert.assertNotSame(first, second);
+        Assert.assertSame(second, cachedService.findById(ID));
+        Assert.assertEquals(1, cachedService.getEntityCache().getSize());
+
+        // inside a read-write transaction the cache is not used
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            Assert.assertSame(entity, cachedService.findById(ID));
+            Mockito.verify(cachedDao, Mockito.times(2)).findById(ID);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+
+        // without a transaction, the entity is removed from the cache right away
+        cachedService.delete(first);
+        Assert.assertEquals(0, cachedService.getEntityCache().getSize());
+    }
+
+    @Test
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void testEntityCache_NotSerializable() {
+        NotSerializableEntity entity = new NotSerializableEntity();
+        entity.setId(ID);
+        Mockito.when(cachedDao.getEntityClass()).thenReturn((Class) NotSerializableEntity.class);
+        Mockito.when(cachedDao.findById(ID)).thenReturn(entity);
+        CachedService cachedService = wireTestSubject(new CachedService());
+
+        // the entity cannot be copied, so it is not cached
+        Assert.assertSame(entity, cachedService.findById(ID));
+        Assert.assertSame(entity, cachedService.findById(ID));
+        Mockito.verify(cachedDao, Mockito.times(2)).findById(ID);
+        Assert.assertEquals(0, cachedService.getEntityCache().getSize());
+    }
+
+    @Test(expected = OCSRuntimeException.class)
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void testEntityCache_LazyAssociation() {
+        Mockito.when(cachedDao.getEntityClass()).thenReturn((Class) LazyEntity.class);
+        wireTestSubject(new CachedService()).getEntityCache();
+    }
+
     @Test
     public void testSave() {
         TestEntity obj = new TestEntity("name1", 14L);
@@ -108,6 +194,28 @@ public class BaseServiceImplTest extends BaseMockitoTest {
         Mockito.verify(dao).save(Lists.newArrayList(obj1, obj2));
     }
 
+    @Test
+    public void testSaveChanges() {
+        TestEntity added = new TestEntity("added", 14L);
+        TestEntity modified = new TestEntity(2, "modified", 15L);
+        TestEntity removed = new TestEntity(3, "removed", 16L);
+        TestEntity neverSaved = new TestEntity(-1, "never saved", 17L);
+
+        Mockito.when(dao.fetchByIds(Lists.newArrayList(2, 3, -1), null)).thenReturn(
+                Lists.newArrayList(modified, removed));
+        Mockito.when(dao.save(Lists.newArrayList(modified))).thenReturn(Lists.newArrayList(modified));
+        Mockito.when(dao.save(Lists.newArrayList(added))).thenReturn(Lists.newArrayList(added));
+
+        List<TestEntity> result = service.saveChanges(Lists.newArrayList(added), Lists.newArrayList(modified),
+                Lists.newArrayList(removed, neverSaved));
+        Assert.assertEquals(Lists.newArrayList(modified, added), result);
+
+        // the existing entities are retrieved at once and only the existing entity is deleted
+        Mockito.verify(dao).fetchByIds(Lists.newArrayList(2, 3, -1), null);
+        Mockito.verify(dao).delete(Lists.newArrayList(removed));
+        Mockito.verify(dao, Mockito.never()).findById(Matchers.anyInt());
+    }
+
     @Test
     public void testValidate() {
         TestEntity entity = new TestEntity("name1", 15L);
@@ -332,6 +440,94 @@ public class BaseServiceImplTest extends BaseMockitoTest {
                 new SortOrder(Direction.ASC, "property1"));
     }
 
+    @Test
+    public void testAsync() throws Exception {
+        Filter filter = new Compare.Equal("property1", 1);
+        Mockito.when(dao.count(filter, false)).thenReturn(3L);
+        Mockito.when(dao.findIds(filter)).thenReturn(Lists.newArrayList(1, 2, 3));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            service.setAsyncExecutor(executor);
+
+            Future<Long> count = service.countAsync(filter, false);
+            Future<List<Integer>> ids = service.findIdsAsync(filter);
+
+            Assert.assertEquals(3L, count.get().longValue());
+            Assert.assertEquals(Lists.newArrayList(1, 2, 3), ids.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testAsync_Proxy() throws Exception {
+        Filter filter = new Compare.Equal("property1", 1);
+
+        // the asynchronous methods call the service through its Spring proxy
+        @SuppressWarnings("unchecked")
+        BaseService<Integer, TestEntity> proxy = Mockito.mock(BaseService.class);
+        Mockito.when(proxy.count(filter, false)).thenReturn(5L);
+        addBeanToContext(TestService.class.getSimpleName(), proxy);
+        TestService proxied = wireTestSubject(new TestService());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            proxied.setAsyncExecutor(executor);
+            Assert.assertEquals(5L, proxied.countAsync(filter, false).get().longValue());
+            Mockito.verify(dao, Mockito.never()).count(filter, false);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = OCSRuntimeException.class)
+    public void testAsync_NoExecutor() {
+        service.countAsync(new Compare.Equal("property1", 1), false);
+    }
+
+    @Test
+    public void testAsync_RequestAttributes() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setUserPrincipal(new Principal() {
+
+            @Override
+            public String getName() {
+                return "bob";
+            }
+        });
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            service.setAsyncExecutor(executor);
+
+            // the task can see the user that submitted it
+            Future<String> userName = service.submitAsync(new Callable<String>() {
+
+                @Override
+                public String call() {
+                    return new DefaultUserDetailsServiceImpl().getCurrentUserName();
+                }
+            });
+            Assert.assertEquals("bob", userName.get());
+
+            // the request attributes are not left behind on the worker thread
+            RequestContextHolder.resetRequestAttributes();
+            Future<Boolean> cleared = executor.submit(new Callable<Boolean>() {
+
+                @Override
+                public Boolean call() {
+                    return RequestContextHolder.getRequestAttributes() == null;
+                }
+            });
+            Assert.assertTrue(cleared.get());
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+            executor.shutdown();
+        }
+    }
+
     /**
      * tests that a custom method is correctly delegated
      */
@@ -348,6 +544,53 @@ public class BaseServiceImplTest extends BaseMockitoTest {
         }
     }
 
+    @Model(cacheable = true)
+    public static class CachedEntity extends AbstractEntity<Integer> {
+
+        private static final long serialVersionUID = 6210464212418962512L;
+
+        private Integer id;
+
+        @Override
+        public Integer getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(Integer id) {
+            this.id = id;
+        }
+    }
+
+    @Model(cacheable = true)
+    public static class LazyEntity extends CachedEntity {
+
+        private static final long serialVersionUID = -3153389283432567374L;
+
+        @ManyToOne(fetch = FetchType.LAZY)
+        private CachedEntity parent;
+    }
+
+    @Model(cacheable = true)
+    public static class NotSerializableEntity extends CachedEntity {
+
+        private static final long serialVersionUID = 2755338540434981092L;
+
+        private final Object lock = new Object();
+
+        public Object getLock() {
+            return lock;
+        }
+    }
+
+    private class CachedService extends BaseServiceImpl<Integer, CachedEntity> {
+
+        @Override
+        protected BaseDao<Integer, CachedEntity> getDao() {
+            return cachedDao;
+        }
+    }
+
     private class TestService extends BaseServiceImpl<Integer, TestEntity> {
 
         @Autowired
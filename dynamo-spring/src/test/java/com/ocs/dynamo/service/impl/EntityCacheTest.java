@@ -0,0 +1,91 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.service.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ocs.dynamo.domain.TestEntity;
+
+public class EntityCacheTest {
+
+    @Test
+    public void testGetAndPut() {
+        EntityCache<Integer, TestEntity> cache = new EntityCache<>(10, 60000L);
+        TestEntity entity = new TestEntity("Bob", 11L);
+
+        Assert.assertNull(cache.get(1, ""));
+        cache.put(1, "", entity, cache.getGeneration());
+        Assert.assertEquals(entity, cache.get(1, ""));
+
+        // an entity fetched with different joins is a different entry
+        Assert.assertNull(cache.get(1, "fetch:"));
+
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(2, cache.getMisses());
+        Assert.assertEquals(1.0 / 3.0, cache.getHitRate(), 0.0001);
+    }
+
+    @Test
+    public void testInvalidate() {
+        EntityCache<Integer, TestEntity> cache = new EntityCache<>(10, 60000L);
+        cache.put(1, "", new TestEntity("Bob", 11L), cache.getGeneration());
+        cache.put(1, "fetch:", new TestEntity("Bob", 11L), cache.getGeneration());
+        cache.put(2, "", new TestEntity("Pete", 12L), cache.getGeneration());
+
+        cache.invalidate(1);
+        Assert.assertEquals(1, cache.getSize());
+        Assert.assertNull(cache.get(1, ""));
+        Assert.assertNotNull(cache.get(2, ""));
+
+        cache.clear();
+        Assert.assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testMaxSize() {
+        EntityCache<Integer, TestEntity> cache = new EntityCache<>(2, 60000L);
+        cache.put(1, "", new TestEntity("Bob", 11L), cache.getGeneration());
+        cache.put(2, "", new TestEntity("Pete", 12L), cache.getGeneration());
+
+        // the least recently used entry is removed
+        cache.get(1, "");
+        cache.put(3, "", new TestEntity("Sally", 13L), cache.getGeneration());
+        Assert.assertEquals(2, cache.getSize());
+        Assert.assertNotNull(cache.get(1, ""));
+        Assert.assertNull(cache.get(2, ""));
+    }
+
+    @Test
+    public void testPutAfterInvalidate() {
+        EntityCache<Integer, TestEntity> cache = new EntityCache<>(10, 60000L);
+        long generation = cache.getGeneration();
+
+        // an entity that was loaded before an invalidation is not added
+        cache.invalidate(1);
+        Assert.assertFalse(cache.put(1, "", new TestEntity("Bob", 11L), generation));
+        Assert.assertNull(cache.get(1, ""));
+
+        Assert.assertTrue(cache.put(1, "", new TestEntity("Bob", 11L), cache.getGeneration()));
+        Assert.assertNotNull(cache.get(1, ""));
+    }
+
+    @Test
+    public void testExpired() {
+        EntityCache<Integer, TestEntity> cache = new EntityCache<>(10, -1L);
+        cache.put(1, "", new TestEntity("Bob", 11L), cache.getGeneration());
+        Assert.assertNull(cache.get(1, ""));
+        Assert.assertEquals(0, cache.getSize());
+    }
+}
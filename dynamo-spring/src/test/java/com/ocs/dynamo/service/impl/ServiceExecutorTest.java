@@ -0,0 +1,60 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.service.impl;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ServiceExecutorTest {
+
+    @Test
+    public void testRejectWhenSaturated() throws InterruptedException {
+        ServiceExecutor serviceExecutor = new ServiceExecutor(1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        Runnable blocker = new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        try {
+            // one task is running and the queue is full - the next task must not be executed by
+            // the calling thread
+            int accepted = 0;
+            try {
+                for (int i = 0; i < 2000; i++) {
+                    serviceExecutor.getExecutor().execute(blocker);
+                    accepted++;
+                }
+                Assert.fail();
+            } catch (RejectedExecutionException ex) {
+                // expected
+            }
+            Assert.assertTrue(accepted < 2000);
+        } finally {
+            latch.countDown();
+            serviceExecutor.shutdown();
+        }
+        Assert.assertTrue(serviceExecutor.getExecutor().isTerminated());
+    }
+}
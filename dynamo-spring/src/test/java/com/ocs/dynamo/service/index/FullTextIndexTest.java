@@ -0,0 +1,252 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.service.index;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.ocs.dynamo.dao.SortOrders;
+import com.ocs.dynamo.dao.query.CloseableIterator;
+import com.ocs.dynamo.domain.TestEntity;
+import com.ocs.dynamo.domain.model.impl.EntityModelFactoryImpl;
+import com.ocs.dynamo.filter.And;
+import com.ocs.dynamo.filter.Compare;
+import com.ocs.dynamo.filter.Filter;
+import com.ocs.dynamo.filter.In;
+import com.ocs.dynamo.filter.Like;
+import com.ocs.dynamo.service.BaseService;
+
+public class FullTextIndexTest {
+
+	private FullTextIndex<Integer, TestEntity> index;
+
+	private TestEntity bob;
+
+	private TestEntity kevin;
+
+	private BaseService<Integer, TestEntity> service;
+
+	// executed while the entities are being read by a rebuild
+	private Runnable duringRebuild;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		bob = new TestEntity(1, "Bob Bobson", 11L);
+		bob.setSomeString("first entity");
+		kevin = new TestEntity(2, "Kevin O'Brien", 12L);
+		kevin.setSomeString("second entity");
+
+		final List<TestEntity> entities = Lists.newArrayList(bob, kevin);
+		service = Mockito.mock(BaseService.class);
+		Mockito.when(service.getEntityClass()).thenReturn(TestEntity.class);
+		Mockito.when(service.stream(Matchers.<Filter> any(), Matchers.<SortOrders> any(),
+		        Matchers.anyInt())).thenAnswer(new Answer<CloseableIterator<TestEntity>>() {
+
+			@Override
+			public CloseableIterator<TestEntity> answer(InvocationOnMock invocation) {
+				final Iterator<TestEntity> it = entities.iterator();
+				return new CloseableIterator<TestEntity>() {
+
+					@Override
+					public boolean hasNext() {
+						return it.hasNext();
+					}
+
+					@Override
+					public TestEntity next() {
+						if (duringRebuild != null) {
+							duringRebuild.run();
+							duringRebuild = null;
+						}
+						return it.next();
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+
+					@Override
+					public void close() {
+						// nothing to close
+					}
+				};
+			}
+		});
+
+		index = new FullTextIndex<>("name", "someString");
+		Assert.assertFalse(index.isReady());
+		Assert.assertNull(index.search("bob"));
+		index.rebuild(service, 10);
+	}
+
+	@Test
+	public void testTokenize() {
+		Assert.assertEquals(Lists.newArrayList("kevin", "o", "brien"),
+		        Lists.newArrayList(FullTextIndex.tokenize("Kevin O'Brien")));
+		Assert.assertTrue(FullTextIndex.tokenize(" -- ").isEmpty());
+	}
+
+	@Test
+	public void testEntityModel() {
+		FullTextIndex<Integer, TestEntity> modelIndex = new FullTextIndex<>(
+		        new EntityModelFactoryImpl().getModel(TestEntity.class));
+		Assert.assertArrayEquals(new String[] { "name" }, modelIndex.getProperties());
+	}
+
+	@Test
+	public void testSearch() {
+		Assert.assertTrue(index.isReady());
+		Assert.assertEquals(2, index.getSize());
+
+		Assert.assertEquals(Lists.newArrayList(1), index.search("bob"));
+		Assert.assertEquals(Lists.newArrayList(1), index.search("OBS"));
+		Assert.assertEquals(2, index.search("entity").size());
+		Assert.assertEquals(Lists.newArrayList(2), index.search("entity brie"));
+		Assert.assertTrue(index.search("bob second").isEmpty());
+		Assert.assertTrue(index.search("xyz").isEmpty());
+
+		// update and remove
+		bob.setName("Robert");
+		index.index(bob);
+		Assert.assertTrue(index.search("bob").isEmpty());
+		Assert.assertEquals(Lists.newArrayList(1), index.search("robert"));
+
+		index.remove(1);
+		Assert.assertTrue(index.search("robert").isEmpty());
+		Assert.assertEquals(1, index.getSize());
+	}
+
+	@Test
+	public void testSearch_Invalidated() {
+		// an invalidation that happens while searching
+		FullTextIndex<Integer, TestEntity> invalidated = new FullTextIndex<Integer, TestEntity>("name") {
+
+			@Override
+			public Set<Integer> findIds(String property, String term) {
+				invalidate();
+				return super.findIds(property, term);
+			}
+		};
+		invalidated.rebuild(service, 10);
+		Assert.assertTrue(invalidated.isReady());
+		Assert.assertNull(invalidated.search("bob"));
+	}
+
+	@Test
+	public void testApply() {
+		Filter age = new Compare.Equal("age", 11L);
+		Filter filter = new And(new Like("name", "%BRIEN%", false), age);
+
+		Assert.assertEquals(new And(new In("id", Lists.newArrayList(2)), age), index.apply(filter));
+
+		// case sensitive, prefix and multi word filters are left alone
+		Filter caseSensitive = new Like("name", "%Brien%", true);
+		Assert.assertSame(caseSensitive, index.apply(caseSensitive));
+		Filter prefix = new Like("name", "bob%", false);
+		Assert.assertSame(prefix, index.apply(prefix));
+		Filter words = new Like("name", "%bob bobson%", false);
+		Assert.assertSame(words, index.apply(words));
+
+		// too many matches
+		index.setMaxIds(1);
+		Filter entity = new Like("someString", "%entity%", false);
+		Assert.assertSame(entity, index.apply(entity));
+
+		// not ready
+		index.invalidate();
+		Assert.assertSame(filter, index.apply(filter));
+	}
+
+	@Test
+	public void testFindIds() {
+		Assert.assertEquals(Sets.newHashSet(1), index.findIds("name", "bobs"));
+		Assert.assertEquals(Sets.newHashSet(1, 2), index.findIds("name", "b"));
+		Assert.assertEquals(Sets.newHashSet(2), index.findIds("name", "rie"));
+		Assert.assertTrue(index.findIds("name", "bobx").isEmpty());
+		Assert.assertNull(index.findIds("someInt", "1"));
+
+		// the suffixes of tokens that are no longer used are removed
+		index.remove(2);
+		Assert.assertEquals(Sets.newHashSet(1), index.findIds("name", "b"));
+		Assert.assertTrue(index.findIds("name", "rie").isEmpty());
+	}
+
+	@Test
+	public void testApply_Expired() throws InterruptedException {
+		Filter filter = new Like("name", "%bob%", false);
+		Assert.assertTrue(index.isCurrent());
+		Assert.assertEquals(new In("id", Lists.newArrayList(1)), index.apply(filter));
+
+		index.setMaxAge(1L);
+		Thread.sleep(10L);
+		Assert.assertTrue(index.isReady());
+		Assert.assertFalse(index.isCurrent());
+		Assert.assertSame(filter, index.apply(filter));
+
+		// a rebuild brings the index up to date again
+		index.setMaxAge(60000L);
+		index.rebuild(service, 10);
+		Assert.assertTrue(index.isCurrent());
+	}
+
+	@Test
+	public void testRebuild_ConcurrentChanges() {
+		// changes that are committed while the rebuild reads the (older) entities are kept
+		final TestEntity renamed = new TestEntity(1, "Robert", 11L);
+		duringRebuild = new Runnable() {
+
+			@Override
+			public void run() {
+				index.index(renamed);
+				index.remove(2);
+			}
+		};
+		index.rebuild(service, 10);
+
+		Assert.assertTrue(index.isReady());
+		Assert.assertEquals(1, index.getSize());
+		Assert.assertTrue(index.search("bob").isEmpty());
+		Assert.assertEquals(Lists.newArrayList(1), index.search("robert"));
+	}
+
+	@Test
+	public void testRebuild_Invalidated() {
+		// an invalidation during the rebuild might not have been seen by it
+		duringRebuild = new Runnable() {
+
+			@Override
+			public void run() {
+				index.invalidate();
+			}
+		};
+		index.rebuild(service, 10);
+		Assert.assertFalse(index.isReady());
+
+		index.rebuild(service, 10);
+		Assert.assertTrue(index.isReady());
+	}
+}
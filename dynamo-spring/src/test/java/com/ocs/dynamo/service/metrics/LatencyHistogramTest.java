@@ -0,0 +1,60 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.service.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        for (long micros : new long[] { 0, 1, 15, 16, 17, 100, 1000, 12345, 1000000, 987654321 }) {
+            int index = LatencyHistogram.getBucketIndex(micros);
+            Assert.assertTrue(LatencyHistogram.getBucketUpperBound(index) >= micros);
+            // relative error of at most 1/16
+            Assert.assertTrue(LatencyHistogram.getBucketUpperBound(index) <= micros + micros / 16);
+        }
+        // values that are out of range end up in the last bucket
+        Assert.assertEquals(LatencyHistogram.getBucketIndex(1L << 41), LatencyHistogram.getBucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testSnapshot() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        MetricsSnapshot empty = histogram.snapshot("empty");
+        Assert.assertEquals(0, empty.getCount());
+        Assert.assertEquals(0, empty.getP99());
+
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i), i == 100);
+        }
+
+        MetricsSnapshot snapshot = histogram.snapshot("test");
+        Assert.assertEquals("test", snapshot.getName());
+        Assert.assertEquals(100, snapshot.getCount());
+        Assert.assertEquals(1, snapshot.getErrorCount());
+        Assert.assertEquals(100000, snapshot.getMax());
+        Assert.assertEquals(50500, snapshot.getMean(), 0.001);
+
+        Assert.assertTrue(snapshot.getP50() >= 50000 && snapshot.getP50() <= 53125);
+        Assert.assertTrue(snapshot.getP95() >= 95000 && snapshot.getP95() <= 100000);
+        Assert.assertTrue(snapshot.getP99() >= 99000 && snapshot.getP99() <= 100000);
+
+        histogram.reset();
+        Assert.assertEquals(0, histogram.snapshot("test").getCount());
+    }
+}
@@ -0,0 +1,88 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.ui.container;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+import com.ocs.dynamo.domain.TestEntity;
+import com.ocs.dynamo.filter.Compare;
+import com.ocs.dynamo.filter.Filter;
+import com.ocs.dynamo.service.TestEntityService;
+import com.ocs.dynamo.test.BaseMockitoTest;
+
+public class CountStrategyTest extends BaseMockitoTest {
+
+    @Mock
+    private TestEntityService service;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        Mockito.when(service.getEntityClass()).thenReturn(TestEntity.class);
+    }
+
+    @Test
+    public void testExact() {
+        Filter filter = new Compare.Equal("name", "Bob");
+        Mockito.when(service.count(filter, false)).thenReturn(12L);
+
+        Assert.assertEquals(12, new ExactCountStrategy().count(service, filter));
+    }
+
+    @Test
+    public void testCached() {
+        Filter filter = new Compare.Equal("name", "Bob");
+        Mockito.when(service.count(filter, false)).thenReturn(12L);
+
+        CachedCountStrategy strategy = new CachedCountStrategy(60000L);
+        Assert.assertEquals(12, strategy.count(service, filter));
+        Assert.assertEquals(12, strategy.count(service, new Compare.Equal("name", "Bob")));
+        Mockito.verify(service, Mockito.times(1)).count(filter, false);
+
+        // a different filter is counted separately
+        Filter other = new Compare.Equal("name", "Pete");
+        Mockito.when(service.count(other, false)).thenReturn(3L);
+        Assert.assertEquals(3, strategy.count(service, other));
+
+        strategy.invalidate();
+        Assert.assertEquals(12, strategy.count(service, filter));
+        Mockito.verify(service, Mockito.times(2)).count(filter, false);
+    }
+
+    @Test
+    public void testCachedExpired() {
+        Mockito.when(service.count(null, false)).thenReturn(5L);
+
+        CachedCountStrategy strategy = new CachedCountStrategy(-1L);
+        strategy.count(service, null);
+        strategy.count(service, null);
+        Mockito.verify(service, Mockito.times(2)).count(null, false);
+    }
+
+    @Test
+    public void testEstimated() {
+        Mockito.when(service.countUpTo(null, 100)).thenReturn(101L);
+
+        EstimatedCountStrategy strategy = new EstimatedCountStrategy(100);
+        Assert.assertEquals(100, strategy.count(service, null));
+        Assert.assertTrue(strategy.isLimitReached());
+
+        Mockito.when(service.countUpTo(null, 100)).thenReturn(40L);
+        Assert.assertEquals(40, strategy.count(service, null));
+        Assert.assertFalse(strategy.isLimitReached());
+    }
+}
@@ -0,0 +1,82 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.ui.container;
+
+import javax.inject.Inject;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ocs.dynamo.dao.query.Aggregate;
+import com.ocs.dynamo.domain.TestEntity;
+import com.ocs.dynamo.domain.model.EntityModel;
+import com.ocs.dynamo.domain.model.EntityModelFactory;
+import com.ocs.dynamo.service.TestEntityService;
+import com.ocs.dynamo.test.BaseIntegrationTest;
+import com.vaadin.data.util.filter.Compare;
+
+public class ServiceContainerTest extends BaseIntegrationTest {
+
+	@Inject
+	private EntityModelFactory entityModelFactory;
+
+	@Inject
+	private TestEntityService testEntityService;
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testTotals() {
+		testEntityService.save(new TestEntity("Bob", 10L));
+		testEntityService.save(new TestEntity("Harry", 20L));
+		testEntityService.save(new TestEntity("Kevin", 30L));
+
+		EntityModel<TestEntity> model = entityModelFactory.getModel(TestEntity.class);
+		ServiceContainer<Integer, TestEntity> container = new ServiceContainer<>(testEntityService, model, false,
+		        20, QueryType.ID_BASED, null);
+		((ServiceQueryDefinition<Integer, TestEntity>) container.getQueryView().getQueryDefinition())
+		        .setEntityModel(model);
+
+		// no aggregates, no totals
+		Assert.assertTrue(container.getTotals().isEmpty());
+
+		container.setTotalAggregates(Aggregate.sum("age"));
+		Assert.assertEquals(60L, container.getTotals().get("age"));
+
+		// the totals follow the filter
+		container.search(new Compare.Greater("age", 15L));
+		Assert.assertEquals(50L, container.getTotals().get("age"));
+	}
+
+	@Test
+	public void testTotals_InvalidAggregates() {
+		ServiceContainer<Integer, TestEntity> container = new ServiceContainer<>(testEntityService,
+		        entityModelFactory.getModel(TestEntity.class), false, 20, QueryType.ID_BASED, null);
+
+		// a count of the rows cannot be displayed in a column
+		try {
+			container.setTotalAggregates(Aggregate.count());
+			Assert.fail();
+		} catch (IllegalArgumentException ex) {
+			// expected
+		}
+
+		// there is only one total per column
+		try {
+			container.setTotalAggregates(Aggregate.sum("age"), Aggregate.avg("age"));
+			Assert.fail();
+		} catch (IllegalArgumentException ex) {
+			// expected
+		}
+	}
+}
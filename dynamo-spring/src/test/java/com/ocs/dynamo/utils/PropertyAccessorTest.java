@@ -0,0 +1,94 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.utils;
+
+import java.math.BigDecimal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ocs.dynamo.domain.TestEntity;
+import com.ocs.dynamo.exception.OCSRuntimeException;
+
+public class PropertyAccessorTest {
+
+    @SuppressWarnings("unused")
+    private static class Overloaded {
+
+        private Long value;
+
+        private boolean active;
+
+        public Long getValue() {
+            return value;
+        }
+
+        public void setValue(Long value) {
+            this.value = value;
+        }
+
+        public void setValue(String value) {
+            this.value = Long.valueOf(value);
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public void setActive(boolean active) {
+            this.active = active;
+        }
+    }
+
+    @Test
+    public void testGetAndSet() {
+        TestEntity entity = new TestEntity("Bob", 12L);
+        PropertyAccessor accessor = PropertyAccessor.forProperty(TestEntity.class, "name");
+        Assert.assertSame(accessor, PropertyAccessor.forProperty(TestEntity.class, "name"));
+        Assert.assertTrue(accessor.isReadable());
+        Assert.assertTrue(accessor.isWritable());
+
+        Assert.assertEquals("Bob", accessor.getValue(entity));
+        accessor.setValue(entity, "Kevin");
+        Assert.assertEquals("Kevin", entity.getName());
+        accessor.setValue(entity, null);
+        Assert.assertNull(entity.getName());
+
+        PropertyAccessor discount = PropertyAccessor.forProperty(TestEntity.class, "discount");
+        discount.setValue(entity, BigDecimal.TEN);
+        Assert.assertEquals(BigDecimal.TEN, discount.getValue(entity));
+    }
+
+    @Test
+    public void testIsAndOverloaded() {
+        Overloaded overloaded = new Overloaded();
+        PropertyAccessor active = PropertyAccessor.forProperty(Overloaded.class, "active");
+        active.setValue(overloaded, true);
+        Assert.assertEquals(Boolean.TRUE, active.getValue(overloaded));
+
+        PropertyAccessor value = PropertyAccessor.forProperty(Overloaded.class, "value");
+        value.setValue(overloaded, 4L);
+        Assert.assertEquals(4L, value.getValue(overloaded));
+        value.setValue(overloaded, "5");
+        Assert.assertEquals(5L, value.getValue(overloaded));
+    }
+
+    @Test(expected = OCSRuntimeException.class)
+    public void testNoGetter() {
+        PropertyAccessor accessor = PropertyAccessor.forProperty(TestEntity.class, "unknown");
+        Assert.assertFalse(accessor.isReadable());
+        Assert.assertFalse(accessor.isWritable());
+        accessor.getValue(new TestEntity());
+    }
+}
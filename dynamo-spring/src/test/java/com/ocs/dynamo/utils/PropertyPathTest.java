@@ -0,0 +1,89 @@
+/*
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.ocs.dynamo.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ocs.dynamo.domain.TestEntity;
+import com.ocs.dynamo.domain.TestEntity2;
+import com.ocs.dynamo.exception.OCSRuntimeException;
+
+public class PropertyPathTest {
+
+    /**
+     * Subclass used to verify that the path works for intermediate values of different classes
+     */
+    private static class SpecialEntity extends TestEntity {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public String getName() {
+            return "special";
+        }
+    }
+
+    @Test
+    public void testParse() {
+        PropertyPath path = PropertyPath.of("testEntity.name");
+        Assert.assertSame(path, PropertyPath.of("testEntity.name"));
+        Assert.assertArrayEquals(new String[] { "testEntity", "name" }, path.getSegments());
+        Assert.assertTrue(path.isNested());
+        Assert.assertEquals("testEntity.name", path.toString());
+
+        Assert.assertFalse(PropertyPath.of("name").isNested());
+    }
+
+    @Test
+    public void testGetValue() {
+        TestEntity2 entity2 = new TestEntity2();
+        PropertyPath path = PropertyPath.of("testEntity.name");
+
+        // null-safe traversal
+        Assert.assertNull(path.getValue(null));
+        Assert.assertNull(path.getValue(entity2));
+
+        entity2.setTestEntity(new TestEntity("Bob", 12L));
+        Assert.assertEquals("Bob", path.getValue(entity2));
+
+        // the intermediate value can be a subclass
+        entity2.setTestEntity(new SpecialEntity());
+        Assert.assertEquals("special", path.getValue(entity2));
+
+        entity2.setTestEntity(new TestEntity("Kevin", 13L));
+        Assert.assertEquals("Kevin", path.getValue(entity2));
+    }
+
+    @Test
+    public void testSetValue() {
+        TestEntity2 entity2 = new TestEntity2();
+        PropertyPath path = PropertyPath.of("testEntity.age");
+
+        // nothing happens when an intermediate value is null
+        path.setValue(entity2, 4L);
+        Assert.assertNull(entity2.getTestEntity());
+
+        entity2.setTestEntity(new TestEntity());
+        path.setValue(entity2, 4L);
+        Assert.assertEquals(4L, entity2.getTestEntity().getAge().longValue());
+    }
+
+    @Test(expected = OCSRuntimeException.class)
+    public void testUnknownProperty() {
+        TestEntity2 entity2 = new TestEntity2();
+        entity2.setTestEntity(new TestEntity());
+        PropertyPath.of("testEntity.unknown").getValue(entity2);
+    }
+}